@@ -1,6 +1,9 @@
 package com.winteralexander.gdx.masterpacker;
 
 import com.badlogic.gdx.graphics.Texture;
+import com.winteralexander.gdx.utils.Hash;
+
+import java.util.Arrays;
 
 import static com.winteralexander.gdx.utils.Validation.*;
 import static com.winteralexander.gdx.utils.collection.CollectionUtil.toArray;
@@ -22,6 +25,7 @@ public class AssetBundle {
 	private final Texture.TextureFilter minFilter;
 	private final Texture.TextureFilter magFilter;
 	private final String atlasName;
+	private final BundleOptions options;
 	private final AssetResolution[] outRes;
 	private final String outPath;
 	private final String[] basePaths;
@@ -41,10 +45,80 @@ public class AssetBundle {
 	                   AssetResolution[] outRes,
 	                   String outPath,
 	                   String... basePaths) {
+		this(bundleId,
+				shaded,
+				square,
+				grid,
+				baseScale,
+				paddingX,
+				paddingY,
+				maxWidth,
+				maxHeight,
+				minFilter,
+				magFilter,
+				atlasName,
+				new BundleOptions(),
+				outRes,
+				outPath,
+				basePaths);
+	}
+
+	public AssetBundle(String bundleId,
+					   boolean shaded,
+					   boolean square,
+					   boolean grid,
+					   float baseScale,
+					   int paddingX,
+					   int paddingY,
+					   int maxWidth,
+					   int maxHeight,
+					   Texture.TextureFilter minFilter,
+					   Texture.TextureFilter magFilter,
+					   String atlasName,
+	                   AssetResolution[] outRes,
+	                   String outPath,
+	                   Iterable<String> basePaths) {
+		this(bundleId,
+				shaded,
+				square,
+				grid,
+				baseScale,
+				paddingX,
+				paddingY,
+				maxWidth,
+				maxHeight,
+				minFilter,
+				magFilter,
+				atlasName,
+				new BundleOptions(),
+				outRes,
+				outPath,
+				toArray(String.class, basePaths));
+	}
+
+	public AssetBundle(String bundleId,
+					   boolean shaded,
+					   boolean square,
+					   boolean grid,
+					   float baseScale,
+					   int paddingX,
+					   int paddingY,
+					   int maxWidth,
+					   int maxHeight,
+					   Texture.TextureFilter minFilter,
+					   Texture.TextureFilter magFilter,
+					   String atlasName,
+					   BundleOptions options,
+	                   AssetResolution[] outRes,
+	                   String outPath,
+	                   String... basePaths) {
 		ensureNotNull(basePaths, "basePaths");
 		ensureNotEmpty(outRes, "outRes");
 		ensureNoneNull(outRes, "outRes");
 		ensureNotNull(outPath, "outPath");
+		ensureNotNull(options, "options");
+		ensureNoneNull(options.compressions, "options.compressions");
+		ensureNotNull(options.format, "options.format");
 		this.bundleId = bundleId;
 		this.shaded = shaded;
 		this.square = square;
@@ -57,6 +131,7 @@ public class AssetBundle {
 		this.maxWidth = maxWidth;
 		this.maxHeight = maxHeight;
 		this.atlasName = atlasName;
+		this.options = new BundleOptions(options);
 		this.outRes = outRes;
 		this.outPath = outPath;
 		this.basePaths = basePaths;
@@ -74,6 +149,7 @@ public class AssetBundle {
 					   Texture.TextureFilter minFilter,
 					   Texture.TextureFilter magFilter,
 					   String atlasName,
+					   BundleOptions options,
 	                   AssetResolution[] outRes,
 	                   String outPath,
 	                   Iterable<String> basePaths) {
@@ -89,6 +165,7 @@ public class AssetBundle {
 				minFilter,
 				magFilter,
 				atlasName,
+				options,
 				outRes,
 				outPath,
 				toArray(String.class, basePaths));
@@ -122,6 +199,80 @@ public class AssetBundle {
 		return atlasName;
 	}
 
+	/**
+	 * @return true if unchanged regions should be kept where the previous pack placed them
+	 */
+	public boolean isStableLayout() {
+		return options.stableLayout;
+	}
+
+	/**
+	 * @return minimum occupancy of the pages under which a stable layout is discarded and
+	 * the bundle is fully repacked
+	 */
+	public float getRepackThreshold() {
+		return options.repackThreshold;
+	}
+
+	/**
+	 * @return true if packing heuristics and page sizes should be evaluated in parallel
+	 */
+	public boolean isParallelPacking() {
+		return options.parallelPacking;
+	}
+
+	/**
+	 * @return true if the preshaded and normal atlases should reuse the layout of the flat
+	 * atlas instead of being packed separately
+	 */
+	public boolean isSharedLayout() {
+		return options.sharedLayout;
+	}
+
+	/**
+	 * @return GPU compressed formats the pages should also be encoded to
+	 */
+	public TextureCompression[] getCompressions() {
+		return options.compressions;
+	}
+
+	/**
+	 * @return true if the mipmap chain of the pages should be computed at pack time and
+	 * stored in KTX files
+	 */
+	public boolean isMipmaps() {
+		return options.mipmaps;
+	}
+
+	/**
+	 * @return true if a binary atlas should be written next to every text atlas
+	 */
+	public boolean isBinaryAtlas() {
+		return options.binaryAtlas;
+	}
+
+	/**
+	 * @return precision the pages are quantized to
+	 */
+	public PageFormat getFormat() {
+		return options.format;
+	}
+
+	/**
+	 * @return true if the PNG pages should be losslessly recompressed before being written
+	 */
+	public boolean isOptimizePng() {
+		return options.optimizePng;
+	}
+
+	/**
+	 * @return maximum amount of bytes the pages of this bundle may use in video memory at
+	 * any of its resolutions, or -1 if unlimited
+	 */
+	public long getVramBudget() {
+		return options.vramBudget;
+	}
+
 	public AssetResolution[] getOutRes() {
 		return outRes;
 	}
@@ -134,6 +285,23 @@ public class AssetBundle {
 		return basePaths;
 	}
 
+	/**
+	 * @param path path of an input, relative to the input directory
+	 * @return path relative to the longest base path of this bundle it starts with, or the
+	 * path itself if it starts with none, without leading slashes
+	 */
+	public String getRelativePath(String path) {
+		int start = 0;
+		for(String basePath : basePaths)
+			if(path.startsWith(basePath) && basePath.length() > start)
+				start = basePath.length();
+
+		while(start < path.length() && path.charAt(start) == '/')
+			start++;
+
+		return path.substring(start);
+	}
+
 	public float getBaseScale() {
 		return baseScale;
 	}
@@ -153,4 +321,31 @@ public class AssetBundle {
 	public int getMaxHeight() {
 		return maxHeight;
 	}
+
+	/**
+	 * Packing strategies such as the stable layout and the parallel packing are left out,
+	 * their layouts being just as valid as the previous one.
+	 *
+	 * @return hash of the settings deciding which outputs the bundle produces and what they
+	 * contain, the bundle must be packed again when it changes
+	 */
+	public String getOutputFingerprint() {
+		return Hash.sha256(String.join("|",
+				atlasName,
+				outPath,
+				Arrays.toString(outRes),
+				String.valueOf(shaded),
+				String.valueOf(square),
+				String.valueOf(grid),
+				String.valueOf(baseScale),
+				paddingX + "x" + paddingY,
+				maxWidth + "x" + maxHeight,
+				minFilter + "/" + magFilter,
+				String.valueOf(options.sharedLayout),
+				Arrays.toString(options.compressions),
+				String.valueOf(options.mipmaps),
+				String.valueOf(options.binaryAtlas),
+				String.valueOf(options.format),
+				String.valueOf(options.optimizePng)));
+	}
 }
@@ -0,0 +1,145 @@
+package com.winteralexander.gdx.masterpacker;
+
+/**
+ * Encodes blocks to ASTC 4x4 in LDR. Every block uses a single partition with direct RGBA
+ * endpoints (CEM 12) quantized to 8 bits, and a 4x4 grid of 2 bits weights. Endpoints are
+ * picked along the principal axis of the block's colors.
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class AstcBlockEncoder implements BlockEncoder {
+	/**
+	 * 4x4 weight grid, weights quantized to 4 levels, single plane
+	 */
+	private static final int BLOCK_MODE = 0x042;
+
+	/**
+	 * LDR RGBA direct color endpoint mode
+	 */
+	private static final int ENDPOINT_MODE = 12;
+
+	private static final int[] WEIGHTS = { 0, 21, 43, 64 };
+
+	@Override
+	public int getBlockBytes() {
+		return 16;
+	}
+
+	@Override
+	public void encode(int[] pixels, byte[] out, int offset) {
+		double[] mean = new double[4];
+		for(int pixel : pixels)
+			for(int c = 0; c < 4; c++)
+				mean[c] += channel(pixel, c) / 16.0;
+
+		double[] axis = principalAxis(pixels, mean);
+
+		double min = 0.0, max = 0.0;
+		for(int pixel : pixels) {
+			double projection = 0.0;
+			for(int c = 0; c < 4; c++)
+				projection += (channel(pixel, c) - mean[c]) * axis[c];
+			min = Math.min(min, projection);
+			max = Math.max(max, projection);
+		}
+
+		int[] start = new int[4], end = new int[4];
+		for(int c = 0; c < 4; c++) {
+			start[c] = clamp((int)Math.round(mean[c] + axis[c] * min));
+			end[c] = clamp((int)Math.round(mean[c] + axis[c] * max));
+		}
+
+		// the decoder swaps and blue contracts endpoints when the second one is darker
+		if(end[0] + end[1] + end[2] < start[0] + start[1] + start[2]) {
+			int[] tmp = start;
+			start = end;
+			end = tmp;
+		}
+
+		int[] weights = new int[16];
+		for(int i = 0; i < 16; i++) {
+			int bestError = Integer.MAX_VALUE;
+			for(int w = 0; w < WEIGHTS.length; w++) {
+				int error = 0;
+				for(int c = 0; c < 4; c++) {
+					int value = (start[c] * (64 - WEIGHTS[w]) + end[c] * WEIGHTS[w] + 32) >> 6;
+					int diff = value - channel(pixels[i], c);
+					error += diff * diff;
+				}
+
+				if(error < bestError) {
+					bestError = error;
+					weights[i] = w;
+				}
+			}
+		}
+
+		for(int i = 0; i < 16; i++)
+			out[offset + i] = 0;
+
+		setBits(out, offset, 0, 11, BLOCK_MODE);
+		setBits(out, offset, 13, 4, ENDPOINT_MODE);
+		for(int c = 0; c < 4; c++) {
+			setBits(out, offset, 17 + c * 16, 8, start[c]);
+			setBits(out, offset, 25 + c * 16, 8, end[c]);
+		}
+
+		// weights are stored from the end of the block, bit reversed
+		for(int i = 0; i < 16; i++) {
+			setBits(out, offset, 127 - 2 * i, 1, weights[i] & 1);
+			setBits(out, offset, 126 - 2 * i, 1, weights[i] >> 1);
+		}
+	}
+
+	private static double[] principalAxis(int[] pixels, double[] mean) {
+		double[][] covariance = new double[4][4];
+		for(int pixel : pixels)
+			for(int i = 0; i < 4; i++)
+				for(int j = 0; j < 4; j++)
+					covariance[i][j] += (channel(pixel, i) - mean[i]) * (channel(pixel, j) - mean[j]);
+
+		// starts from the channel varying the most, so the iteration can't begin orthogonal
+		int widest = 0;
+		for(int i = 1; i < 4; i++)
+			if(covariance[i][i] > covariance[widest][widest])
+				widest = i;
+
+		double[] axis = covariance[widest].clone();
+		for(int iteration = 0; iteration < 8; iteration++) {
+			double[] next = new double[4];
+			for(int i = 0; i < 4; i++)
+				for(int j = 0; j < 4; j++)
+					next[i] += covariance[i][j] * axis[j];
+
+			double length = Math.sqrt(next[0] * next[0] + next[1] * next[1]
+					+ next[2] * next[2] + next[3] * next[3]);
+
+			// uniform block, any axis gives the same endpoints
+			if(length < 1e-9)
+				return new double[4];
+
+			for(int i = 0; i < 4; i++)
+				axis[i] = next[i] / length;
+		}
+		return axis;
+	}
+
+	/**
+	 * @return value of a channel of a pixel, in RGBA order
+	 */
+	private static int channel(int pixel, int c) {
+		return c == 3 ? pixel >>> 24 : pixel >> (16 - 8 * c) & 0xFF;
+	}
+
+	private static int clamp(int value) {
+		return Math.max(0, Math.min(255, value));
+	}
+
+	private static void setBits(byte[] out, int offset, int start, int count, int value) {
+		for(int i = 0; i < count; i++)
+			if((value >> i & 1) != 0)
+				out[offset + (start + i) / 8] |= (byte)(1 << (start + i) % 8);
+	}
+}
@@ -1,19 +1,33 @@
 package com.winteralexander.gdx.masterpacker;
 
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Set;
 
 import static com.winteralexander.gdx.masterpacker.Downscalator.downscaleInPlace;
 import static com.winteralexander.gdx.masterpacker.TexturePackTarget.extendInPlace;
+import static com.winteralexander.gdx.masterpacker.TexturePackTarget.prepareImage;
 import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
-import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
 /**
  * An atlas target for packing (atlas to be packed with other atlas or textures)
  * <p>
+ * By default the page of the atlas is packed as a single image. When unpacking, every
+ * region of the atlas is restored to its original size and packed as an individual sprite
+ * instead, so the whitespace and padding of the atlas are not packed again.
+ * <p>
  * Created on 2021-10-16.
  *
  * @author Alexander Winter
@@ -23,9 +37,16 @@ public class AtlasPackTarget implements PackTarget {
 	private final TextureType textureType;
 	private final String bundleId;
 	private final float scale;
-	private final boolean noDownscale;
+	private final boolean noDownscale, unpack;
 	private final int extendLeft, extendRight, extendTop, extendBottom;
 
+	/**
+	 * Name of the region of the atlas and names matched by {@link #matches}, computed by
+	 * {@link #prepare}
+	 */
+	private volatile String regionName = null;
+	private volatile Set<String> matchedNames = null;
+
 	public AtlasPackTarget(String path,
 	                       TextureType textureType,
 	                       String bundleId,
@@ -34,7 +55,8 @@ public class AtlasPackTarget implements PackTarget {
 	                       int extendLeft,
 	                       int extendRight,
 	                       int extendTop,
-	                       int extendBottom) {
+	                       int extendBottom,
+	                       boolean unpack) {
 		ensureNotNull(path, "path");
 		ensureNotNull(textureType, "textureType");
 		this.path = path;
@@ -46,6 +68,7 @@ public class AtlasPackTarget implements PackTarget {
 		this.extendRight = extendRight;
 		this.extendTop = extendTop;
 		this.extendBottom = extendBottom;
+		this.unpack = unpack;
 	}
 
 	@Override
@@ -53,6 +76,26 @@ public class AtlasPackTarget implements PackTarget {
 		return bundleId;
 	}
 
+	@Override
+	public void prepare(AssetBundle bundle, File baseDir) throws IOException {
+		String regionName = computeRegionName(bundle);
+		Set<String> matchedNames;
+
+		if(unpack) {
+			matchedNames = new HashSet<>();
+			for(TextureAtlasData.Region region : readSubAtlas(baseDir).getRegions())
+				matchedNames.add(getUnpackedName(regionName, region));
+		} else {
+			// unlike the region name, suffixes of the texture type are kept
+			matchedNames = Collections.singleton(bundle.getRelativePath(path)
+					.replace('/', '_')
+					.replace(".atlas", ""));
+		}
+
+		this.regionName = regionName;
+		this.matchedNames = matchedNames;
+	}
+
 	@Override
 	public void process(AssetBundle bundle,
 	                    AssetResolution resolution,
@@ -78,29 +121,88 @@ public class AtlasPackTarget implements PackTarget {
 				throw new IllegalStateException("Invalid texture type " + textureType);
 		}
 
+		if(unpack) {
+			unpack(bundle, resolution, baseDir, outDir);
+			return;
+		}
+
 		String png = path.substring(0, path.length() - 6) + ".png";
 
-		File dest = new File(outDir, regionName + ".png");
-		Files.copy(new File(baseDir, png).toPath(), dest.toPath(), REPLACE_EXISTING);
-		extendInPlace(dest, extendLeft, extendRight, extendTop, extendBottom);
-		downscaleInPlace(dest, bundle.getBaseScale() *
-				scale * (noDownscale ? 1f : resolution.getScale()));
+		prepareImage(new File(baseDir, png), new File(outDir, regionName + ".png"),
+				extendLeft, extendRight, extendTop, extendBottom,
+				bundle.getBaseScale() * scale * (noDownscale ? 1f : resolution.getScale()));
 	}
 
-	private String getRegionName(AssetBundle bundle) {
-		String relPath = path;
-		int curBest = 0;
-
-		for(String basePath : bundle.getBasePaths())
-			if(path.startsWith(basePath) && basePath.length() > curBest) {
-				relPath = path.replaceFirst(Pattern.quote(basePath), "");
-				curBest = basePath.length();
+	/**
+	 * Writes every region of the atlas as a separate image at its original size
+	 */
+	private void unpack(AssetBundle bundle,
+	                    AssetResolution resolution,
+	                    File baseDir,
+	                    File outDir) throws IOException {
+		String regionName = getRegionName(bundle);
+		float scale = bundle.getBaseScale() * this.scale
+				* (noDownscale ? 1f : resolution.getScale());
+		Map<String, BufferedImage> pages = new HashMap<>();
+
+		for(TextureAtlasData.Region region : readSubAtlas(baseDir).getRegions()) {
+			File pageFile = region.page.textureFile.file();
+			BufferedImage page = pages.get(pageFile.getName());
+			if(page == null) {
+				page = ImageIO.read(pageFile);
+				if(page == null)
+					throw new IOException("Could not read page " + pageFile);
+				pages.put(pageFile.getName(), page);
 			}
 
-		while(relPath.startsWith("/"))
-			relPath = relPath.substring(1);
+			// offsetY is measured from the bottom of the original image
+			int drawX = (int)region.offsetX;
+			int drawY = region.originalHeight - region.height - (int)region.offsetY;
+			BufferedImage image = new BufferedImage(region.originalWidth, region.originalHeight,
+					BufferedImage.TYPE_INT_ARGB);
+
+			for(int y = 0; y < region.height; y++)
+				for(int x = 0; x < region.width; x++) {
+					// rotated regions are stored turned counter-clockwise
+					int pixel = region.rotate
+							? page.getRGB(region.left + y, region.top + region.width - 1 - x)
+							: page.getRGB(region.left + x, region.top + y);
+					image.setRGB(drawX + x, drawY + y, pixel);
+				}
+
+			File dest = new File(outDir, getUnpackedName(regionName, region) + ".png");
+			ImageIO.write(image, "png", dest);
+			extendInPlace(dest, extendLeft, extendRight, extendTop, extendBottom);
+			downscaleInPlace(dest, scale);
+		}
+	}
+
+	private TextureAtlasData readSubAtlas(File baseDir) throws IOException {
+		File atlas = new File(baseDir, path);
+		try {
+			return new TextureAtlasData(new FileHandle(atlas),
+					new FileHandle(atlas.getParentFile()), false);
+		} catch(GdxRuntimeException ex) {
+			throw new IOException("Could not read atlas " + atlas, ex);
+		}
+	}
+
+	/**
+	 * @return name of the image an unpacked region is written to, which is also its name in
+	 * the packed atlas before indexes are restored
+	 */
+	private static String getUnpackedName(String regionName, TextureAtlasData.Region region) {
+		String name = regionName + "_" + region.name.replace('/', '_');
+		return region.index == -1 ? name : name + "_" + region.index;
+	}
+
+	private String getRegionName(AssetBundle bundle) {
+		String name = regionName;
+		return name != null ? name : computeRegionName(bundle);
+	}
 
-		return relPath.replace('/', '_')
+	private String computeRegionName(AssetBundle bundle) {
+		return bundle.getRelativePath(path).replace('/', '_')
 				.replace("_flat.atlas", "")
 				.replace("_normal.atlas", "")
 				.replace("_preshaded.atlas", "")
@@ -117,6 +219,11 @@ public class AtlasPackTarget implements PackTarget {
 
 		String regionName = getRegionName(bundle);
 
+		if(unpack) {
+			restoreUnpackedRegions(atlas, readSubAtlas(baseDir), regionName);
+			return;
+		}
+
 		List<String> subAtlas = Files.readAllLines(new File(baseDir, path).toPath());
 
 		subAtlas = subAtlas.subList(5, subAtlas.size());
@@ -161,31 +268,66 @@ public class AtlasPackTarget implements PackTarget {
 		}
 	}
 
+	/**
+	 * Gives back to unpacked regions the index and custom fields they had in the atlas
+	 */
+	private static void restoreUnpackedRegions(List<String> atlas,
+	                                           TextureAtlasData subAtlas,
+	                                           String regionName) {
+		Map<String, TextureAtlasData.Region> regions = new HashMap<>();
+		for(TextureAtlasData.Region region : subAtlas.getRegions())
+			regions.put(getUnpackedName(regionName, region), region);
+
+		TextureAtlasData.Region current = null;
+		for(int i = 0; i < atlas.size(); i++) {
+			String line = atlas.get(i);
+
+			if(!line.startsWith(" ")) {
+				current = regions.get(line);
+				if(current != null && current.index != -1)
+					atlas.set(i, regionName + "_" + current.name.replace('/', '_'));
+				continue;
+			}
+
+			if(current == null)
+				continue;
+
+			if(line.startsWith("  index:"))
+				atlas.set(i, "  index: " + current.index);
+
+			boolean lastLine = i + 1 == atlas.size() || !atlas.get(i + 1).startsWith(" ");
+			if(lastLine && current.names != null) {
+				for(int j = 0; j < current.names.length; j++) {
+					StringBuilder field = new StringBuilder("  " + current.names[j] + ":");
+					for(int k = 0; k < current.values[j].length; k++)
+						field.append(k == 0 ? " " : ", ").append(current.values[j][k]);
+					atlas.add(++i, field.toString());
+				}
+				current = null;
+			}
+		}
+	}
+
 	@Override
 	public boolean matches(AssetBundle bundle, TextureType textureType, File baseDir, String name) {
 		if(textureType != this.textureType)
 			return false;
 
-		String relPath = path;
-		int curBest = 0;
-
-		for(String basePath : bundle.getBasePaths())
-			if(path.startsWith(basePath) && basePath.length() > curBest) {
-				relPath = path.replaceFirst(Pattern.quote(basePath), "");
-				curBest = basePath.length();
+		if(matchedNames == null) {
+			try {
+				prepare(bundle, baseDir);
+			} catch(IOException ex) {
+				throw new IllegalStateException(ex);
 			}
-
-		while(relPath.startsWith("/"))
-			relPath = relPath.substring(1);
-
-		return relPath.replace('/', '_')
-				.replace(".atlas", "")
-				.equals(name);
+		}
+		return matchedNames.contains(name);
 	}
 
 	@Override
 	public boolean stripWhitespace() {
-		return false;
+		// unpacked regions are restored with their whitespace, which is stripped again
+		return unpack
+				&& extendLeft == 0 && extendRight == 0 && extendTop == 0 && extendBottom == 0;
 	}
 
 	@Override
@@ -210,8 +352,18 @@ public class AtlasPackTarget implements PackTarget {
 
 	@Override
 	public long lastModified(File baseDir) {
-		return Math.max(new File(baseDir, path).lastModified(),
+		long lastModified = Math.max(new File(baseDir, path).lastModified(),
 				new File(baseDir, path.substring(0, path.length() - 6) + ".png").lastModified());
+
+		if(unpack) {
+			try {
+				for(TextureAtlasData.Page page : readSubAtlas(baseDir).getPages())
+					lastModified = Math.max(lastModified, page.textureFile.lastModified());
+			} catch(IOException ex) {
+				// the atlas being unreadable will be reported when it is processed
+			}
+		}
+		return lastModified;
 	}
 
 	@Override
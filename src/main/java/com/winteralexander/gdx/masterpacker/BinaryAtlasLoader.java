@@ -0,0 +1,178 @@
+package com.winteralexander.gdx.masterpacker;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+
+/**
+ * Loads atlases written by {@link BinaryAtlasWriter}, building the {@link TextureAtlasData}
+ * straight from its records instead of parsing text. Regions can be looked up by name in
+ * constant time through the hash table of the file.
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class BinaryAtlasLoader {
+	private final TextureAtlasData data = new TextureAtlasData();
+	private final String[] regionNames;
+	private final int[] slots;
+
+	/**
+	 * Reads a binary atlas
+	 *
+	 * @param binaryFile binary atlas to read
+	 * @param imagesDir directory of the pages of the atlas
+	 * @throws GdxRuntimeException if the file could not be read
+	 */
+	public BinaryAtlasLoader(FileHandle binaryFile, FileHandle imagesDir) {
+		ensureNotNull(binaryFile, "binaryFile");
+		ensureNotNull(imagesDir, "imagesDir");
+
+		try(DataInputStream input = new DataInputStream(
+				new BufferedInputStream(binaryFile.read()))) {
+			if(input.readInt() != BinaryAtlasWriter.MAGIC)
+				throw new IOException("Not a binary atlas");
+
+			if(input.readInt() != BinaryAtlasWriter.VERSION)
+				throw new IOException("Unsupported binary atlas version");
+
+			String[] strings = new String[input.readInt()];
+			for(int i = 0; i < strings.length; i++)
+				strings[i] = input.readUTF();
+
+			TextureAtlasData.Page[] pages = new TextureAtlasData.Page[input.readInt()];
+			for(int i = 0; i < pages.length; i++) {
+				TextureAtlasData.Page page = new TextureAtlasData.Page();
+				page.textureFile = imagesDir.child(strings[input.readInt()]);
+				page.width = input.readFloat();
+				page.height = input.readFloat();
+				page.format = Pixmap.Format.valueOf(strings[input.readInt()]);
+				page.minFilter = Texture.TextureFilter.valueOf(strings[input.readInt()]);
+				page.magFilter = Texture.TextureFilter.valueOf(strings[input.readInt()]);
+				page.uWrap = Texture.TextureWrap.valueOf(strings[input.readInt()]);
+				page.vWrap = Texture.TextureWrap.valueOf(strings[input.readInt()]);
+				page.useMipMaps = input.readBoolean();
+				page.pma = input.readBoolean();
+				pages[i] = page;
+				data.getPages().add(page);
+			}
+
+			TextureAtlasData.Region[] regions = new TextureAtlasData.Region[input.readInt()];
+			int[] firstFields = new int[regions.length];
+			int[] fieldCounts = new int[regions.length];
+			regionNames = new String[regions.length];
+
+			for(int i = 0; i < regions.length; i++) {
+				TextureAtlasData.Region region = new TextureAtlasData.Region();
+				region.name = strings[input.readInt()];
+				region.page = pages[input.readInt()];
+				region.index = input.readInt();
+				region.left = input.readInt();
+				region.top = input.readInt();
+				region.width = input.readInt();
+				region.height = input.readInt();
+				region.offsetX = input.readFloat();
+				region.offsetY = input.readFloat();
+				region.originalWidth = input.readInt();
+				region.originalHeight = input.readInt();
+				region.degrees = input.readInt();
+				region.rotate = region.degrees == 90;
+				firstFields[i] = input.readInt();
+				fieldCounts[i] = input.readInt();
+				regions[i] = region;
+				regionNames[i] = region.name;
+				data.getRegions().add(region);
+			}
+
+			int[] fieldNames = new int[input.readInt()];
+			int[] firstValues = new int[fieldNames.length];
+			int[] valueCounts = new int[fieldNames.length];
+			for(int i = 0; i < fieldNames.length; i++) {
+				fieldNames[i] = input.readInt();
+				firstValues[i] = input.readInt();
+				valueCounts[i] = input.readInt();
+			}
+
+			int[] values = new int[input.readInt()];
+			for(int i = 0; i < values.length; i++)
+				values[i] = input.readInt();
+
+			for(int i = 0; i < regions.length; i++) {
+				if(fieldCounts[i] == 0)
+					continue;
+
+				regions[i].names = new String[fieldCounts[i]];
+				regions[i].values = new int[fieldCounts[i]][];
+				for(int j = 0; j < fieldCounts[i]; j++) {
+					int field = firstFields[i] + j;
+					regions[i].names[j] = strings[fieldNames[field]];
+					regions[i].values[j] = new int[valueCounts[field]];
+					System.arraycopy(values, firstValues[field],
+							regions[i].values[j], 0, valueCounts[field]);
+				}
+			}
+
+			slots = new int[input.readInt()];
+			for(int i = 0; i < slots.length; i++)
+				slots[i] = input.readInt();
+		} catch(IOException | IllegalArgumentException | IndexOutOfBoundsException ex) {
+			throw new GdxRuntimeException("Failed to read binary atlas " + binaryFile, ex);
+		}
+	}
+
+	/**
+	 * @return data of the atlas, with pages and regions in the order of the text atlas
+	 */
+	public TextureAtlasData getData() {
+		return data;
+	}
+
+	/**
+	 * Creates the atlas, loading its pages
+	 *
+	 * @return atlas loaded
+	 */
+	public TextureAtlas createAtlas() {
+		return new TextureAtlas(data);
+	}
+
+	/**
+	 * Finds the index of the first region of specified name, which is also its index in
+	 * {@link TextureAtlas#getRegions()} of an atlas created by this loader
+	 *
+	 * @param name name of the region
+	 * @return index of the region, or -1 if there is none of that name
+	 */
+	public int indexOf(String name) {
+		ensureNotNull(name, "name");
+		int slot = name.hashCode() & (slots.length - 1);
+
+		while(slots[slot] != 0) {
+			if(regionNames[slots[slot] - 1].equals(name))
+				return slots[slot] - 1;
+			slot = (slot + 1) & (slots.length - 1);
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the data of the first region of specified name
+	 *
+	 * @param name name of the region
+	 * @return region found, or null if there is none of that name
+	 */
+	public TextureAtlasData.Region findRegion(String name) {
+		int index = indexOf(name);
+		return index == -1 ? null : data.getRegions().get(index);
+	}
+}
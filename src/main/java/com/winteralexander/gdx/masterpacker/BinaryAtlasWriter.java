@@ -0,0 +1,187 @@
+package com.winteralexander.gdx.masterpacker;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectIntMap;
+
+import java.io.*;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+
+/**
+ * Converts a text atlas to the binary atlas format read by {@link BinaryAtlasLoader}.
+ * <p>
+ * The format is made of an interned string table, fixed-width page and region records,
+ * the custom fields of regions and a hash table indexing regions by name. All values are
+ * big endian, strings are modified UTF-8 as written by {@link DataOutputStream#writeUTF}.
+ * <pre>
+ * int magic, int version
+ * int stringCount, string[stringCount]
+ * int pageCount, page[pageCount]
+ *     int file, float width, float height, int format, int minFilter, int magFilter,
+ *     int uWrap, int vWrap, byte useMipMaps, byte pma
+ * int regionCount, region[regionCount]
+ *     int name, int page, int index, int left, int top, int width, int height,
+ *     float offsetX, float offsetY, int originalWidth, int originalHeight, int degrees,
+ *     int firstField, int fieldCount
+ * int fieldCount, field[fieldCount]
+ *     int name, int firstValue, int valueCount
+ * int valueCount, int[valueCount]
+ * int slotCount, int[slotCount] (region index + 1 by name hash, linear probing, 0 if empty)
+ * </pre>
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class BinaryAtlasWriter {
+	public static final int MAGIC = 0x41544C42; // ATLB
+	public static final int VERSION = 1;
+
+	/**
+	 * Writes the binary version of a text atlas
+	 *
+	 * @param atlas text atlas to convert
+	 * @param binary binary atlas to write
+	 * @throws IOException if the atlas could not be read or the binary atlas written
+	 */
+	public static void write(File atlas, File binary) throws IOException {
+		ensureNotNull(atlas, "atlas");
+		ensureNotNull(binary, "binary");
+
+		TextureAtlasData data = new TextureAtlasData(new FileHandle(atlas),
+				new FileHandle(atlas.getParentFile()), false);
+
+		Array<String> strings = new Array<>();
+		ObjectIntMap<String> stringIds = new ObjectIntMap<>();
+		Array<TextureAtlasData.Page> pages = data.getPages();
+		Array<TextureAtlasData.Region> regions = data.getRegions();
+
+		for(TextureAtlasData.Page page : pages) {
+			intern(page.textureFile.name(), strings, stringIds);
+			intern(page.format.name(), strings, stringIds);
+			intern(page.minFilter.name(), strings, stringIds);
+			intern(page.magFilter.name(), strings, stringIds);
+			intern(page.uWrap.name(), strings, stringIds);
+			intern(page.vWrap.name(), strings, stringIds);
+		}
+
+		int fieldCount = 0, valueCount = 0;
+		for(TextureAtlasData.Region region : regions) {
+			intern(region.name, strings, stringIds);
+			if(region.names == null)
+				continue;
+
+			for(int i = 0; i < region.names.length; i++) {
+				intern(region.names[i], strings, stringIds);
+				valueCount += region.values[i].length;
+			}
+			fieldCount += region.names.length;
+		}
+
+		try(DataOutputStream output = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(binary)))) {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+
+			output.writeInt(strings.size);
+			for(String string : strings)
+				output.writeUTF(string);
+
+			output.writeInt(pages.size);
+			for(TextureAtlasData.Page page : pages) {
+				output.writeInt(stringIds.get(page.textureFile.name(), -1));
+				output.writeFloat(page.width);
+				output.writeFloat(page.height);
+				output.writeInt(stringIds.get(page.format.name(), -1));
+				output.writeInt(stringIds.get(page.minFilter.name(), -1));
+				output.writeInt(stringIds.get(page.magFilter.name(), -1));
+				output.writeInt(stringIds.get(page.uWrap.name(), -1));
+				output.writeInt(stringIds.get(page.vWrap.name(), -1));
+				output.writeBoolean(page.useMipMaps);
+				output.writeBoolean(page.pma);
+			}
+
+			output.writeInt(regions.size);
+			int field = 0;
+			for(TextureAtlasData.Region region : regions) {
+				int regionFields = region.names == null ? 0 : region.names.length;
+
+				output.writeInt(stringIds.get(region.name, -1));
+				output.writeInt(pages.indexOf(region.page, true));
+				output.writeInt(region.index);
+				output.writeInt(region.left);
+				output.writeInt(region.top);
+				output.writeInt(region.width);
+				output.writeInt(region.height);
+				output.writeFloat(region.offsetX);
+				output.writeFloat(region.offsetY);
+				output.writeInt(region.originalWidth);
+				output.writeInt(region.originalHeight);
+				output.writeInt(region.degrees);
+				output.writeInt(field);
+				output.writeInt(regionFields);
+				field += regionFields;
+			}
+
+			output.writeInt(fieldCount);
+			int value = 0;
+			for(TextureAtlasData.Region region : regions) {
+				if(region.names == null)
+					continue;
+
+				for(int i = 0; i < region.names.length; i++) {
+					output.writeInt(stringIds.get(region.names[i], -1));
+					output.writeInt(value);
+					output.writeInt(region.values[i].length);
+					value += region.values[i].length;
+				}
+			}
+
+			output.writeInt(valueCount);
+			for(TextureAtlasData.Region region : regions) {
+				if(region.values == null)
+					continue;
+
+				for(int[] values : region.values)
+					for(int v : values)
+						output.writeInt(v);
+			}
+
+			int[] slots = new int[getSlotCount(regions.size)];
+			for(int i = 0; i < regions.size; i++) {
+				int slot = regions.get(i).name.hashCode() & (slots.length - 1);
+
+				// first region of a name wins, like TextureAtlas.findRegion
+				boolean duplicate = false;
+				while(slots[slot] != 0) {
+					duplicate |= regions.get(slots[slot] - 1).name.equals(regions.get(i).name);
+					slot = (slot + 1) & (slots.length - 1);
+				}
+
+				if(!duplicate)
+					slots[slot] = i + 1;
+			}
+
+			output.writeInt(slots.length);
+			for(int slot : slots)
+				output.writeInt(slot);
+		}
+	}
+
+	/**
+	 * @param regionCount amount of regions to index
+	 * @return size of the hash table, a power of two at most half full
+	 */
+	static int getSlotCount(int regionCount) {
+		return Integer.highestOneBit(Math.max(1, regionCount * 2 - 1)) << 1;
+	}
+
+	private static void intern(String string, Array<String> strings, ObjectIntMap<String> ids) {
+		if(!ids.containsKey(string)) {
+			ids.put(string, strings.size);
+			strings.add(string);
+		}
+	}
+}
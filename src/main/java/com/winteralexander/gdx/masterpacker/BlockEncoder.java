@@ -0,0 +1,26 @@
+package com.winteralexander.gdx.masterpacker;
+
+/**
+ * Encodes blocks of 4x4 pixels to a GPU compressed texture format
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public interface BlockEncoder {
+	int BLOCK_SIZE = 4;
+
+	/**
+	 * @return size in bytes of an encoded block
+	 */
+	int getBlockBytes();
+
+	/**
+	 * Encodes a block of pixels. Implementations must be thread safe.
+	 *
+	 * @param pixels 16 pixels in ARGB8888, row by row
+	 * @param out buffer to write the encoded block to
+	 * @param offset position in the buffer at which to write the block
+	 */
+	void encode(int[] pixels, byte[] out, int offset);
+}
@@ -9,8 +9,8 @@ import java.io.OutputStream;
 import static com.winteralexander.gdx.utils.io.StreamUtil.*;
 
 /**
- * Stores the information of a bundle in the bundle cache, that is last modification date and how
- * many pack targets were in the bundle
+ * Stores the information of a bundle in the bundle cache, that is last modification date, how
+ * many pack targets were in the bundle and the cost of its last pack
  * <p>
  * Created on 2025-04-15.
  *
@@ -20,6 +20,17 @@ public class BundleCacheEntry implements Serializable {
 	public long lastModification = -1L;
 	public int lastTargetCount = 0;
 
+	/**
+	 * Time in milliseconds the last full pack of the bundle took, -1 if unknown
+	 */
+	public long duration = -1L;
+
+	/**
+	 * Amount of pixels of the images packed in the last full pack of the bundle, over all of
+	 * its resolutions, -1 if unknown
+	 */
+	public long inputPixels = -1L;
+
 	public BundleCacheEntry() {}
 
 	public BundleCacheEntry(long lastModification, int lastTargetCount) {
@@ -27,15 +38,29 @@ public class BundleCacheEntry implements Serializable {
 		this.lastTargetCount = lastTargetCount;
 	}
 
+	public BundleCacheEntry(long lastModification,
+	                        int lastTargetCount,
+	                        long duration,
+	                        long inputPixels) {
+		this.lastModification = lastModification;
+		this.lastTargetCount = lastTargetCount;
+		this.duration = duration;
+		this.inputPixels = inputPixels;
+	}
+
 	@Override
 	public void readFrom(InputStream input) throws IOException {
 		lastModification = readLong(input);
 		lastTargetCount = readInt(input);
+		duration = readLong(input);
+		inputPixels = readLong(input);
 	}
 
 	@Override
 	public void writeTo(OutputStream output) throws IOException {
 		writeLong(output, lastModification);
 		writeInt(output, lastTargetCount);
+		writeLong(output, duration);
+		writeLong(output, inputPixels);
 	}
 }
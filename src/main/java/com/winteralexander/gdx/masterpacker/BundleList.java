@@ -82,6 +82,7 @@ public class BundleList {
 								minFilter,
 								magFilter,
 								atlasName,
+								BundleOptions.fromArgs(parts),
 								outRes,
 								partsWithoutParams[1],
 								range(partsWithoutParams, 2, partsWithoutParams.length));
@@ -0,0 +1,127 @@
+package com.winteralexander.gdx.masterpacker;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import static com.winteralexander.gdx.utils.CLIUtil.getParamValue;
+import static com.winteralexander.gdx.utils.math.NumberUtil.tryParseBoolean;
+import static com.winteralexander.gdx.utils.math.NumberUtil.tryParseFloat;
+
+/**
+ * Packing options of an {@link AssetBundle} beyond its layout, either filled in by code or
+ * parsed from a line of the bundle list with {@link #fromArgs(String...)}. The bundle keeps
+ * a copy, so options can be reused for several bundles.
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class BundleOptions {
+	/**
+	 * Keeps unchanged regions where the previous pack placed them
+	 */
+	public boolean stableLayout = false;
+
+	/**
+	 * Minimum occupancy of the pages under which a stable layout is discarded and the bundle
+	 * is fully repacked
+	 */
+	public float repackThreshold = 0.6f;
+
+	/**
+	 * Evaluates packing heuristics and page sizes in parallel
+	 */
+	public boolean parallelPacking = false;
+
+	/**
+	 * Reuses the layout of the flat atlas for the preshaded and normal atlases instead of
+	 * packing them separately
+	 */
+	public boolean sharedLayout = false;
+
+	/**
+	 * GPU compressed formats the pages are also encoded to
+	 */
+	public TextureCompression[] compressions = new TextureCompression[0];
+
+	/**
+	 * Computes the mipmap chain of the pages at pack time and stores it in KTX files
+	 */
+	public boolean mipmaps = false;
+
+	/**
+	 * Writes a binary atlas next to every text atlas
+	 */
+	public boolean binaryAtlas = false;
+
+	/**
+	 * Precision the pages are quantized to
+	 */
+	public PageFormat format = PageFormat.RGBA8888;
+
+	/**
+	 * Losslessly recompresses the PNG pages before writing them
+	 */
+	public boolean optimizePng = false;
+
+	/**
+	 * Maximum amount of bytes the pages may use in video memory at any resolution, -1 if
+	 * unlimited
+	 */
+	public long vramBudget = -1L;
+
+	public BundleOptions() {}
+
+	public BundleOptions(BundleOptions other) {
+		stableLayout = other.stableLayout;
+		repackThreshold = other.repackThreshold;
+		parallelPacking = other.parallelPacking;
+		sharedLayout = other.sharedLayout;
+		compressions = other.compressions.clone();
+		mipmaps = other.mipmaps;
+		binaryAtlas = other.binaryAtlas;
+		format = other.format;
+		optimizePng = other.optimizePng;
+		vramBudget = other.vramBudget;
+	}
+
+	/**
+	 * Parses the options from the parameters of a bundle list line
+	 *
+	 * @param parts parameters of the line
+	 * @return options parsed, with default values for missing parameters
+	 * @throws IllegalArgumentException if a compression or format is unknown
+	 */
+	public static BundleOptions fromArgs(String... parts) {
+		BundleOptions options = new BundleOptions();
+
+		options.stableLayout = tryParseBoolean(getParamValue(parts, "--stable-layout"),
+				options.stableLayout);
+		options.repackThreshold = tryParseFloat(getParamValue(parts, "--repack-threshold"),
+				options.repackThreshold);
+		options.parallelPacking = tryParseBoolean(getParamValue(parts, "--parallel-pack"),
+				options.parallelPacking);
+		options.sharedLayout = tryParseBoolean(getParamValue(parts, "--shared-layout"),
+				options.sharedLayout);
+		options.mipmaps = tryParseBoolean(getParamValue(parts, "--mipmaps"), options.mipmaps);
+		options.binaryAtlas = tryParseBoolean(getParamValue(parts, "--binary-atlas"),
+				options.binaryAtlas);
+		options.optimizePng = tryParseBoolean(getParamValue(parts, "--optimize-png"),
+				options.optimizePng);
+
+		String compressStr = getParamValue(parts, "--compress");
+		if(compressStr != null)
+			options.compressions = Arrays.stream(compressStr.split(","))
+					.map(s -> s.toUpperCase(Locale.ROOT))
+					.map(TextureCompression::valueOf)
+					.toArray(TextureCompression[]::new);
+
+		String formatStr = getParamValue(parts, "--format");
+		if(formatStr != null)
+			options.format = PageFormat.valueOf(formatStr.toUpperCase(Locale.ROOT));
+
+		float vramBudgetMb = tryParseFloat(getParamValue(parts, "--vram-budget"), -1f);
+		options.vramBudget = vramBudgetMb < 0f ? -1L : (long)(vramBudgetMb * 1024L * 1024L);
+		return options;
+	}
+}
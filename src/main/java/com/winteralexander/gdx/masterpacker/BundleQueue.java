@@ -0,0 +1,364 @@
+package com.winteralexander.gdx.masterpacker;
+
+import com.badlogic.gdx.utils.ObjectMap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Queue of bundles to pack shared by several master packer processes through a directory,
+ * which can be on a network file system for processes on different machines.
+ * <p>
+ * The coordinator holds the coordinator lock for the whole run. It publishes the stale
+ * bundles as task files in {@code pending/}, then a manifest listing them under a new run
+ * ID, greater than the ID of every previous run. Task names start with the run ID, so the
+ * files of a run are never mistaken for those of another, and the files of previous runs
+ * are only removed once the new manifest is published. Any process claims a task of a run
+ * by atomically moving it to {@code claimed/}, so idle workers keep taking the remaining
+ * bundles of busier ones until none are left. A worker holds the lock of a task while
+ * packing it and publishes the resulting cache entry in {@code done/}. Tasks whose lock was
+ * released without a result, because their worker died, can be put back in the queue.
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class BundleQueue {
+	private final File pendingDir, claimedDir, doneDir, lockDir, manifest, coordinatorLock;
+
+	public BundleQueue(File workDir) {
+		ensureNotNull(workDir, "workDir");
+		this.pendingDir = new File(workDir, "pending");
+		this.claimedDir = new File(workDir, "claimed");
+		this.doneDir = new File(workDir, "done");
+		this.lockDir = new File(workDir, "locks");
+		this.manifest = new File(workDir, "manifest");
+		this.coordinatorLock = new File(workDir, "coordinator.lock");
+	}
+
+	/**
+	 * Acquires the lock held by the coordinator for the whole run, waiting for the previous
+	 * coordinator sharing the queue to finish
+	 *
+	 * @return lock acquired, to close once the run is over
+	 * @throws IOException if the lock could not be acquired
+	 */
+	public ProcessLock lockCoordinator() throws IOException {
+		return ProcessLock.acquire(coordinatorLock);
+	}
+
+	/**
+	 * @return true if a coordinator is running, in which case the published run is in
+	 * progress and not left over by a coordinator which stopped
+	 * @throws IOException if the lock could not be checked
+	 */
+	public boolean isCoordinated() throws IOException {
+		try(ProcessLock lock = ProcessLock.tryAcquire(coordinatorLock)) {
+			return lock == null;
+		}
+	}
+
+	/**
+	 * Publishes a new run of bundles to pack, then removes the files of previous runs. Must
+	 * be called while holding the {@link #lockCoordinator() coordinator lock}.
+	 *
+	 * @param bundleIds IDs of the bundles to pack, in the order they should be claimed
+	 * @return ID of the run published
+	 * @throws IOException if the queue could not be written
+	 */
+	public long publish(List<String> bundleIds) throws IOException {
+		ensureNotNull(bundleIds, "bundleIds");
+
+		// greater than the previous run even if the clocks of the machines disagree
+		long runId = Math.max(System.currentTimeMillis(), getRunId() + 1L);
+
+		for(File dir : new File[] { pendingDir, claimedDir, doneDir, lockDir })
+			dir.mkdirs();
+
+		for(int i = 0; i < bundleIds.size(); i++)
+			Files.write(new File(pendingDir, getTaskName(runId, i, bundleIds.get(i))).toPath(),
+					bundleIds.get(i).getBytes(StandardCharsets.UTF_8));
+
+		// published once every task is there, workers only claim tasks of the manifest run
+		List<String> lines = new ArrayList<>();
+		lines.add(Long.toString(runId));
+		lines.addAll(bundleIds);
+		writeAtomically(manifest, String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+
+		// workers still busy with a previous run only find their task gone, and their
+		// result is ignored
+		for(File dir : new File[] { pendingDir, claimedDir, doneDir })
+			for(String taskName : list(dir))
+				if(!isOfRun(taskName, runId))
+					Files.deleteIfExists(new File(dir, taskName).toPath());
+
+		// locks still held are left, a locked file can't be deleted on every platform
+		for(String lockName : list(lockDir))
+			if(!isOfRun(lockName, runId)) {
+				ProcessLock lock = ProcessLock.tryAcquire(new File(lockDir, lockName));
+				if(lock == null)
+					continue;
+
+				lock.close();
+				Files.deleteIfExists(new File(lockDir, lockName).toPath());
+			}
+		return runId;
+	}
+
+	/**
+	 * @return ID of the last run published, or -1 if none was
+	 * @throws IOException if the manifest could not be read
+	 */
+	public long getRunId() throws IOException {
+		List<String> lines = readManifest();
+		return lines == null ? -1L : Long.parseLong(lines.get(0));
+	}
+
+	/**
+	 * @param runId ID of the run
+	 * @return IDs of the bundles of the run, in the order they should be claimed, or null if
+	 * another run was published since
+	 * @throws IOException if the manifest could not be read
+	 */
+	public List<String> getBundleIds(long runId) throws IOException {
+		List<String> lines = readManifest();
+		if(lines == null || Long.parseLong(lines.get(0)) != runId)
+			return null;
+		return lines.subList(1, lines.size());
+	}
+
+	/**
+	 * Claims the task of a bundle of a run. Each process picks the bundles of a run in the
+	 * order its scheduler starts them, the tasks already claimed by others are skipped.
+	 *
+	 * @param runId ID of the run to claim a task of
+	 * @param index position of the bundle in the {@link #getBundleIds bundles of the run}
+	 * @param bundleId ID of the bundle
+	 * @return claimed task, to close once it is complete or abandoned, or null if the task
+	 * isn't pending
+	 * @throws IOException if the queue could not be read
+	 */
+	public Task claim(long runId, int index, String bundleId) throws IOException {
+		ensureNotNull(bundleId, "bundleId");
+
+		String taskName = getTaskName(runId, index, bundleId);
+		ProcessLock lock = ProcessLock.tryAcquire(new File(lockDir, taskName + ".lock"));
+		if(lock == null)
+			return null;
+
+		try {
+			Files.move(new File(pendingDir, taskName).toPath(),
+					new File(claimedDir, taskName).toPath(), ATOMIC_MOVE);
+			return new Task(runId, taskName, bundleId, lock);
+		} catch(NoSuchFileException ex) {
+			// claimed by another worker or removed by a new run in the meantime
+			lock.close();
+			return null;
+		} catch(IOException | RuntimeException ex) {
+			lock.close();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Puts back in the queue the claimed tasks of a run whose worker stopped without
+	 * completing them
+	 *
+	 * @param runId ID of the run
+	 * @return amount of tasks put back
+	 * @throws IOException if the queue could not be read or written
+	 */
+	public int requeueAbandoned(long runId) throws IOException {
+		int requeued = 0;
+
+		for(String taskName : list(claimedDir)) {
+			if(!isOfRun(taskName, runId))
+				continue;
+
+			try(ProcessLock lock = ProcessLock.tryAcquire(new File(lockDir, taskName + ".lock"))) {
+				if(lock == null || new File(doneDir, taskName).exists())
+					continue;
+
+				try {
+					Files.move(new File(claimedDir, taskName).toPath(),
+							new File(pendingDir, taskName).toPath(), ATOMIC_MOVE);
+					requeued++;
+				} catch(NoSuchFileException ex) {
+					// completed in the meantime
+				}
+			}
+		}
+		return requeued;
+	}
+
+	/**
+	 * @param runId ID of the run
+	 * @return true if every task of the run is complete or another run was published since
+	 * @throws IOException if the queue could not be read
+	 */
+	public boolean isFinished(long runId) throws IOException {
+		List<String> lines = readManifest();
+		if(lines == null || Long.parseLong(lines.get(0)) != runId)
+			return true;
+
+		int done = 0;
+		for(String taskName : list(doneDir))
+			if(isOfRun(taskName, runId))
+				done++;
+		return done >= lines.size() - 1;
+	}
+
+	/**
+	 * Reads the cache entries published by the workers for a run
+	 *
+	 * @param runId ID of the run
+	 * @return cache entry of every completed bundle of the run by ID
+	 * @throws IOException if a result could not be read
+	 */
+	public ObjectMap<String, BundleCacheEntry> getResults(long runId) throws IOException {
+		ObjectMap<String, BundleCacheEntry> results = new ObjectMap<>();
+
+		for(String taskName : list(doneDir)) {
+			if(!isOfRun(taskName, runId))
+				continue;
+
+			try(DataInputStream input = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(new File(doneDir, taskName))))) {
+				if(input.readLong() != runId)
+					continue; // written by a worker of another run
+
+				String bundleId = input.readUTF();
+				BundleCacheEntry entry = new BundleCacheEntry();
+				entry.readFrom(input);
+				results.put(bundleId, entry);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * @return lines of the manifest, the run ID followed by the bundle IDs, or null if no
+	 * run was published
+	 */
+	private List<String> readManifest() throws IOException {
+		byte[] content;
+		try {
+			content = Files.readAllBytes(manifest.toPath());
+		} catch(NoSuchFileException ex) {
+			return null;
+		}
+
+		List<String> lines = new ArrayList<>();
+		for(String line : new String(content, StandardCharsets.UTF_8).split("\n"))
+			if(!line.isEmpty())
+				lines.add(line);
+
+		// manifests of queues before run IDs start with a bundle ID, and are never current
+		try {
+			Long.parseLong(lines.get(0));
+		} catch(NumberFormatException | IndexOutOfBoundsException ex) {
+			return null;
+		}
+		return lines;
+	}
+
+	private static String getTaskName(long runId, int index, String bundleId) {
+		// the index keeps the order of the tasks and names unique whatever the IDs contain
+		return runId + "-" + String.format("%05d", index) + "-" +
+				bundleId.replaceAll("[^A-Za-z0-9_.-]", "_");
+	}
+
+	private static boolean isOfRun(String fileName, long runId) {
+		return fileName.startsWith(runId + "-");
+	}
+
+	private static List<String> list(File dir) {
+		List<String> names = new ArrayList<>();
+		String[] files = dir.list();
+		if(files == null)
+			return names;
+
+		for(String name : files)
+			if(!name.endsWith(".tmp"))
+				names.add(name);
+		names.sort(null);
+		return names;
+	}
+
+	private static void writeAtomically(File file, byte[] content) throws IOException {
+		File tmp = new File(file.getPath() + ".tmp");
+		Files.write(tmp.toPath(), content);
+		try {
+			Files.move(tmp.toPath(), file.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+		} catch(AtomicMoveNotSupportedException ex) {
+			Files.move(tmp.toPath(), file.toPath(), REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * A bundle claimed by this process
+	 */
+	public class Task implements AutoCloseable {
+		private final long runId;
+		private final String name, bundleId;
+		private final ProcessLock lock;
+
+		private Task(long runId, String name, String bundleId, ProcessLock lock) {
+			this.runId = runId;
+			this.name = name;
+			this.bundleId = bundleId;
+			this.lock = lock;
+		}
+
+		public String getBundleId() {
+			return bundleId;
+		}
+
+		/**
+		 * Publishes the result of the task, unless a new run was published since it was
+		 * claimed
+		 *
+		 * @param entry cache entry of the bundle once packed
+		 * @return true if the result was published, false if the run of the task is over
+		 * @throws IOException if the result could not be written
+		 */
+		public boolean complete(BundleCacheEntry entry) throws IOException {
+			if(getRunId() != runId)
+				return false;
+
+			File tmp = new File(doneDir, name + ".tmp");
+			try(DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tmp)))) {
+				output.writeLong(runId);
+				output.writeUTF(bundleId);
+				entry.writeTo(output);
+			}
+			Files.move(tmp.toPath(), new File(doneDir, name).toPath(), ATOMIC_MOVE);
+			return true;
+		}
+
+		/**
+		 * Releases the task, which can be requeued if it wasn't completed
+		 */
+		@Override
+		public void close() throws IOException {
+			lock.close();
+		}
+	}
+}
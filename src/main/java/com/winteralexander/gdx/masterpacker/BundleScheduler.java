@@ -0,0 +1,233 @@
+package com.winteralexander.gdx.masterpacker;
+
+import com.badlogic.gdx.utils.ObjectMap;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+
+/**
+ * Packs stale bundles on several threads, most expensive first according to the duration
+ * of their last pack so a large bundle doesn't start last and delay the end of the run.
+ * Bundles are only started while the sum of their estimated peak memory fits the budget,
+ * and bundles writing to the same output directory never run at the same time.
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class BundleScheduler {
+	/**
+	 * Estimated bytes of memory used at peak per input pixel of a bundle, accounting for
+	 * the source images, the pages and the copies made while processing them
+	 */
+	private static final long BYTES_PER_PIXEL = 16L;
+
+	private final List<AssetBundle> pending;
+	private final Map<AssetBundle, Long> memoryEstimates = new HashMap<>();
+	private final long memoryBudget;
+	private final int threads;
+
+	private final Set<String> runningOutPaths = new HashSet<>();
+	private long usedMemory = 0L;
+	private int running = 0;
+	private IOException failure;
+
+	/**
+	 * @param bundles stale bundles to pack
+	 * @param lastPacks cache entries of the last packs of the bundles, to estimate their
+	 * cost
+	 * @param threads amount of bundles packed at the same time at most
+	 * @param memoryBudget bytes of memory the bundles packed at the same time may use
+	 */
+	public BundleScheduler(List<AssetBundle> bundles,
+	                       ObjectMap<String, BundleCacheEntry> lastPacks,
+	                       int threads,
+	                       long memoryBudget) {
+		ensureNotNull(bundles, "bundles");
+		ensureNotNull(lastPacks, "lastPacks");
+		this.pending = sortByCost(bundles, lastPacks);
+		this.threads = Math.max(1, threads);
+		this.memoryBudget = memoryBudget;
+
+		// estimated upfront, the cache entries being replaced as bundles are packed
+		for(AssetBundle bundle : bundles) {
+			BundleCacheEntry entry = lastPacks.get(bundle.getBundleId());
+			memoryEstimates.put(bundle, entry == null || entry.inputPixels < 0L
+					? memoryBudget / this.threads
+					: entry.inputPixels * BYTES_PER_PIXEL);
+		}
+	}
+
+	/**
+	 * Sorts bundles from the most to the least expensive to pack. Bundles never packed
+	 * come first since their cost is unknown.
+	 *
+	 * @param bundles bundles to sort
+	 * @param lastPacks cache entries of the last packs of the bundles
+	 * @return sorted copy of the bundles
+	 */
+	public static List<AssetBundle> sortByCost(List<AssetBundle> bundles,
+	                                           ObjectMap<String, BundleCacheEntry> lastPacks) {
+		List<AssetBundle> sorted = new ArrayList<>(bundles);
+		sorted.sort(Comparator.comparingLong((AssetBundle bundle) -> {
+			BundleCacheEntry entry = lastPacks.get(bundle.getBundleId());
+			return entry == null || entry.duration < 0L ? Long.MAX_VALUE : entry.duration;
+		}).reversed());
+		return sorted;
+	}
+
+	/**
+	 * Packs every bundle, returning once all are packed and their outputs written
+	 *
+	 * @param executor executor to pack the bundles on, with at least as many threads as
+	 * this scheduler
+	 * @param job packs a single bundle
+	 * @throws IOException if a bundle could not be packed, after the bundles being packed
+	 * finished
+	 */
+	public void run(ExecutorService executor, BundleJob job) throws IOException {
+		ensureNotNull(executor, "executor");
+		ensureNotNull(job, "job");
+
+		List<Future<?>> futures = new ArrayList<>();
+		for(int i = 0; i < threads; i++)
+			futures.add(executor.submit(() -> {
+				AssetBundle bundle;
+				while((bundle = next()) != null) {
+					AssetBundle started = bundle;
+					long memory = estimateMemory(bundle);
+
+					// the bundle is running until its outputs are written, while this thread
+					// moves on to the next one
+					try {
+						job.pack(bundle).whenComplete((result, ex) -> {
+							if(ex != null)
+								fail(new IOException("Failed to pack bundle " + started.getBundleId(),
+										OutputStage.toIOException(ex)));
+							release(started, memory);
+						});
+					} catch(IOException | RuntimeException ex) {
+						fail(new IOException("Failed to pack bundle " + bundle.getBundleId(), ex));
+						release(bundle, memory);
+					}
+				}
+			}));
+
+		for(Future<?> future : futures) {
+			try {
+				future.get();
+			} catch(InterruptedException ex) {
+				for(Future<?> other : futures)
+					other.cancel(true);
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while packing bundles", ex);
+			} catch(ExecutionException ex) {
+				fail(new IOException("Failed to pack bundles", ex.getCause()));
+			}
+		}
+
+		awaitRunning();
+
+		if(failure != null)
+			throw failure;
+	}
+
+	/**
+	 * Waits for the outputs of the bundles started to be written
+	 *
+	 * @throws IOException if interrupted while waiting
+	 */
+	private synchronized void awaitRunning() throws IOException {
+		while(running > 0) {
+			try {
+				wait();
+			} catch(InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while writing outputs", ex);
+			}
+		}
+	}
+
+	/**
+	 * Waits for the next bundle which can start
+	 *
+	 * @return bundle started, or null if there is none left or a bundle failed
+	 */
+	private synchronized AssetBundle next() {
+		while(true) {
+			if(pending.isEmpty() || failure != null)
+				return null;
+
+			for(int i = 0; i < pending.size(); i++) {
+				AssetBundle bundle = pending.get(i);
+				long memory = estimateMemory(bundle);
+
+				// a bundle alone is always started, even if it doesn't fit the budget
+				if(runningOutPaths.contains(bundle.getOutPath())
+						|| running > 0 && usedMemory + memory > memoryBudget)
+					continue;
+
+				pending.remove(i);
+				runningOutPaths.add(bundle.getOutPath());
+				usedMemory += memory;
+				running++;
+				return bundle;
+			}
+
+			try {
+				wait();
+			} catch(InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return null;
+			}
+		}
+	}
+
+	private synchronized void release(AssetBundle bundle, long memory) {
+		runningOutPaths.remove(bundle.getOutPath());
+		usedMemory -= memory;
+		running--;
+		notifyAll();
+	}
+
+	private synchronized void fail(IOException ex) {
+		if(failure == null)
+			failure = ex;
+		else
+			failure.addSuppressed(ex);
+		notifyAll();
+	}
+
+	/**
+	 * @return estimated peak memory used while packing a bundle, a share of the budget per
+	 * thread if the bundle was never packed
+	 */
+	private long estimateMemory(AssetBundle bundle) {
+		return memoryEstimates.get(bundle);
+	}
+
+	/**
+	 * Packs a single bundle
+	 */
+	@FunctionalInterface
+	public interface BundleJob {
+		/**
+		 * @param bundle bundle to pack
+		 * @return future completing once the outputs of the bundle are written
+		 * @throws IOException if the bundle could not be packed
+		 */
+		CompletableFuture<?> pack(AssetBundle bundle) throws IOException;
+	}
+}
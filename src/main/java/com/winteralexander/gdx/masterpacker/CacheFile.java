@@ -0,0 +1,107 @@
+package com.winteralexander.gdx.masterpacker;
+
+import com.badlogic.gdx.utils.ObjectMap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.util.function.BinaryOperator;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+import static com.winteralexander.gdx.utils.io.SerializationUtil.readMap;
+import static com.winteralexander.gdx.utils.io.SerializationUtil.writeMap;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Reads and writes the cache files of the master packer and the downscalator so they
+ * survive the process being killed at any time. A cache is written to a temporary file
+ * which replaces the previous one only once complete, so it is either fully updated or
+ * left as it was, and the cache can be saved as often as progress is made.
+ * <p>
+ * Several processes may share a cache. Writes are serialized with a lock file and merge the
+ * entries written by other processes since the cache was read instead of discarding them.
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class CacheFile {
+	/**
+	 * Reads a cache, leaving the map untouched if it doesn't exist or can't be read
+	 *
+	 * @param file cache file to read
+	 * @param keyType type of the keys of the map
+	 * @param valueType type of the values of the map
+	 * @param map map to read the cache into
+	 */
+	public static <K, V> void read(File file, Class<K> keyType, Class<V> valueType, ObjectMap<K, V> map) {
+		ensureNotNull(file, "file");
+		ensureNotNull(map, "map");
+
+		if(!file.isFile())
+			return;
+
+		ObjectMap<K, V> read = new ObjectMap<>();
+		try(InputStream input = new BufferedInputStream(new FileInputStream(file))) {
+			readMap(input, keyType, valueType, read);
+		} catch(IOException | RuntimeException ex) {
+			System.out.println("Ignoring unreadable cache " + file + ": " + ex.getMessage());
+			return;
+		}
+		map.putAll(read);
+	}
+
+	/**
+	 * Writes a cache, merging it with the entries other processes wrote since it was read
+	 * and atomically replacing the previous one. The map is updated with the merged entries.
+	 *
+	 * @param file cache file to write
+	 * @param keyType type of the keys of the map
+	 * @param valueType type of the values of the map
+	 * @param map content of the cache
+	 * @param merge picks the value to keep between the one of the map and the one written
+	 * by another process, in that order, when both have the same key
+	 * @throws IOException if the cache could not be written
+	 */
+	public static <K, V> void write(File file,
+	                                Class<K> keyType,
+	                                Class<V> valueType,
+	                                ObjectMap<K, V> map,
+	                                BinaryOperator<V> merge) throws IOException {
+		ensureNotNull(file, "file");
+		ensureNotNull(map, "map");
+		ensureNotNull(merge, "merge");
+
+		try(ProcessLock ignored = ProcessLock.acquire(new File(file.getPath() + ".lock"))) {
+			ObjectMap<K, V> written = new ObjectMap<>();
+			read(file, keyType, valueType, written);
+
+			for(ObjectMap.Entry<K, V> entry : written) {
+				V current = map.get(entry.key);
+				map.put(entry.key, current == null ? entry.value : merge.apply(current, entry.value));
+			}
+
+			File tmp = new File(file.getPath() + ".tmp");
+			try(FileOutputStream fileOutput = new FileOutputStream(tmp)) {
+				OutputStream output = new BufferedOutputStream(fileOutput);
+				writeMap(output, map);
+				output.flush();
+				fileOutput.getFD().sync();
+			}
+
+			try {
+				Files.move(tmp.toPath(), file.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+			} catch(AtomicMoveNotSupportedException ex) {
+				Files.move(tmp.toPath(), file.toPath(), REPLACE_EXISTING);
+			}
+		}
+	}
+}
@@ -1,17 +1,18 @@
 package com.winteralexander.gdx.masterpacker;
 
+import com.badlogic.gdx.utils.ObjectMap;
 import com.winteralexander.gdx.utils.collection.CollectionUtil;
 import com.winteralexander.gdx.utils.io.FileUtil;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.util.regex.Pattern;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
-import static com.winteralexander.gdx.masterpacker.Downscalator.downscaleInPlace;
-import static com.winteralexander.gdx.masterpacker.TexturePackTarget.extendInPlace;
+import static com.winteralexander.gdx.masterpacker.TexturePackTarget.prepareImage;
 import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
-import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
 /**
  * A directory of textures to be automatically packed
@@ -20,13 +21,20 @@ import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
  *
  * @author Alexander Winter
  */
-public class DirectoryPackTarget implements PackTarget {
+public class DirectoryPackTarget implements PatchablePackTarget {
 	private final String path;
 	private final RecursionMode recursionMode;
 	private final String bundleId;
 	private final float scale;
 	private final boolean stripWhitespace, noDownscale;
 	private final int extendLeft, extendRight, extendTop, extendBottom;
+	private final int polygonVertices;
+
+	/**
+	 * Names matched by {@link #matches} for every type of texture, computed by
+	 * {@link #prepare}
+	 */
+	private volatile Map<TextureType, Set<String>> matchedNames = null;
 
 	public DirectoryPackTarget(RecursionMode recursionMode,
 	                           String path,
@@ -37,7 +45,8 @@ public class DirectoryPackTarget implements PackTarget {
 	                           int extendLeft,
 	                           int extendRight,
 	                           int extendTop,
-	                           int extendBottom) {
+	                           int extendBottom,
+	                           int polygonVertices) {
 		ensureNotNull(recursionMode, "recursionMode");
 		ensureNotNull(path, "path");
 		this.recursionMode = recursionMode;
@@ -50,6 +59,7 @@ public class DirectoryPackTarget implements PackTarget {
 		this.extendRight = extendRight;
 		this.extendTop = extendTop;
 		this.extendBottom = extendBottom;
+		this.polygonVertices = polygonVertices;
 	}
 
 	@Override
@@ -57,6 +67,57 @@ public class DirectoryPackTarget implements PackTarget {
 		return bundleId;
 	}
 
+	@Override
+	public void prepare(AssetBundle bundle, File baseDir) {
+		Map<TextureType, Set<String>> matchedNames = new HashMap<>();
+		for(TextureType textureType : TextureType.values)
+			matchedNames.put(textureType, new HashSet<>());
+
+		collectMatchedNames(bundle, baseDir, new File(baseDir, path), 0, matchedNames);
+		this.matchedNames = matchedNames;
+	}
+
+	private void collectMatchedNames(AssetBundle bundle,
+	                                 File baseDir,
+	                                 File file,
+	                                 int depth,
+	                                 Map<TextureType, Set<String>> matchedNames) {
+		if(recursionMode == RecursionMode.DISABLED && depth > 1)
+			return;
+
+		if(file.isDirectory()) {
+			File[] children = file.listFiles();
+			if(children != null)
+				for(File child : children)
+					collectMatchedNames(bundle, baseDir, child, depth + 1, matchedNames);
+			return;
+		}
+
+		if(recursionMode == RecursionMode.SUB_DIRS_ONLY && depth == 1)
+			return;
+
+		File atlas = new File(file.getAbsolutePath().replace(".png", ".atlas"));
+
+		if(atlas.exists())
+			return;
+
+		String relPath = bundle.getRelativePath(baseDir.toURI().relativize(file.toURI()).getPath());
+		String regionName = relPath.replace('/', '_')
+				.replace("_f.png", "")
+				.replace("_n.png", "")
+				.replace(".png", "");
+
+		for(TextureType textureType : TextureType.values) {
+			if(relPath.endsWith("_n") && textureType != TextureType.NORMAL)
+				continue;
+
+			if(relPath.endsWith("_f") && textureType != TextureType.FLAT)
+				continue;
+
+			matchedNames.get(textureType).add(regionName);
+		}
+	}
+
 	@Override
 	public void process(AssetBundle bundle,
 	                    AssetResolution resolution,
@@ -87,101 +148,111 @@ public class DirectoryPackTarget implements PackTarget {
 			return;
 		}
 
-		File atlas = new File(file.getAbsolutePath().replace(".png", ".atlas"));
+		TextureType textureType = getTextureType(file);
 
-		if(atlas.exists())
+		if(textureType == null)
 			return;
 
-		String baseRel = baseDir.toURI().relativize(file.toURI()).getPath();
-		String relPath = baseRel;
-		int curBest = 0;
-
-		for(String basePath : bundle.getBasePaths())
-			if(baseRel.startsWith(basePath) && curBest < basePath.length()) {
-				relPath = baseRel.replaceFirst(Pattern.quote(basePath), "");
-				curBest = basePath.length();
-			}
-
-		while(relPath.startsWith("/"))
-			relPath = relPath.substring(1);
-
-		String name = relPath.replace('/', '_')
-				.replace("_f.png", ".png")
-				.replace("_n.png", ".png");
-
-		File flatVersion = new File(file.getParent(), file.getName().replace(".png", "_f.png"));
-		File dest;
-
-		if(file.getName().endsWith("_n.png"))
-			dest = new File(normalDir, name);
-
-		else if(file.getName().endsWith("_f.png")
-				|| file.getName().endsWith(".png") && !flatVersion.exists())
-			dest = new File(flatDir, name);
-
-		else if(file.getName().endsWith(".png") && flatVersion.exists())
-			dest = new File(preshadedDir, name);
-		else
-			return;
+		File outDir;
+
+		switch(textureType) {
+			case FLAT:
+				outDir = flatDir;
+				break;
+			case NORMAL:
+				outDir = normalDir;
+				break;
+			case PRESHADED:
+				outDir = preshadedDir;
+				break;
+			default:
+				throw new IllegalStateException("Invalid texture type " + textureType);
+		}
 
-		Files.copy(file.toPath(), dest.toPath(), REPLACE_EXISTING);
-		extendInPlace(dest, extendLeft, extendRight, extendTop, extendBottom);
-		downscaleInPlace(dest, bundle.getBaseScale() * scale *
-				(noDownscale ? 1f : resolution.getScale()));
+		processRegion(bundle, resolution, file,
+				new File(outDir, getRegionName(bundle, baseDir, file) + ".png"));
 	}
 
 	@Override
-	public boolean matches(AssetBundle bundle, TextureType textureType, File baseDir, String name) {
-		return recurMatches(bundle, textureType, baseDir, new File(baseDir, path), name, 0);
-	}
+	public ObjectMap<String, File> getRegionSources(AssetBundle bundle,
+	                                                TextureType textureType,
+	                                                File baseDir) {
+		ObjectMap<String, File> sources = new ObjectMap<>();
+		File file = new File(baseDir, path);
 
-	private boolean recurMatches(AssetBundle bundle, TextureType textureType,
-	                             File baseDir, File file, String name,
-	                             int depth) {
-		if(recursionMode == RecursionMode.DISABLED && depth > 1)
-			return false;
+		if(recursionMode != RecursionMode.ENABLED) {
+			for(File child : file.listFiles())
+				if((recursionMode == RecursionMode.DISABLED) != child.isDirectory())
+					collectSources(child, bundle, textureType, baseDir, sources);
+		} else
+			collectSources(file, bundle, textureType, baseDir, sources);
+		return sources;
+	}
 
+	private void collectSources(File file,
+	                            AssetBundle bundle,
+	                            TextureType textureType,
+	                            File baseDir,
+	                            ObjectMap<String, File> sources) {
 		if(file.isDirectory()) {
 			for(File children : file.listFiles())
-				if(recurMatches(bundle, textureType, baseDir, children, name, depth + 1))
-					return true;
-			return false;
+				collectSources(children, bundle, textureType, baseDir, sources);
+			return;
 		}
 
-		if(recursionMode == RecursionMode.SUB_DIRS_ONLY && depth == 1)
-			return false;
+		if(getTextureType(file) == textureType)
+			sources.put(getRegionName(bundle, baseDir, file), file);
+	}
+
+	@Override
+	public void processRegion(AssetBundle bundle,
+	                          AssetResolution resolution,
+	                          File source,
+	                          File dest) throws IOException {
+		prepareImage(source, dest, extendLeft, extendRight, extendTop, extendBottom,
+				bundle.getBaseScale() * scale * (noDownscale ? 1f : resolution.getScale()));
+	}
 
+	/**
+	 * Finds the type of texture a file of this directory is packed as
+	 *
+	 * @param file file to check
+	 * @return type of texture of the file, or null if it isn't packed
+	 */
+	private static TextureType getTextureType(File file) {
 		File atlas = new File(file.getAbsolutePath().replace(".png", ".atlas"));
 
 		if(atlas.exists())
-			return false;
+			return null;
 
-		String baseRel = baseDir.toURI().relativize(file.toURI()).getPath();
-		String relPath = baseRel;
-		int curBest = 0;
-
-		for(String basePath : bundle.getBasePaths())
-			if(baseRel.startsWith(basePath) && curBest < basePath.length()) {
-				relPath = baseRel.replaceFirst(Pattern.quote(basePath), "");
-				curBest = basePath.length();
-			}
+		File flatVersion = new File(file.getParent(), file.getName().replace(".png", "_f.png"));
 
-		while(relPath.startsWith("/"))
-			relPath = relPath.substring(1);
+		if(file.getName().endsWith("_n.png"))
+			return TextureType.NORMAL;
 
+		if(file.getName().endsWith("_f.png")
+				|| file.getName().endsWith(".png") && !flatVersion.exists())
+			return TextureType.FLAT;
 
-		if(relPath.endsWith("_n") && textureType != TextureType.NORMAL)
-			return false;
+		if(file.getName().endsWith(".png") && flatVersion.exists())
+			return TextureType.PRESHADED;
 
-		if(relPath.endsWith("_f") && textureType != TextureType.FLAT)
-			return false;
+		return null;
+	}
 
-		String regionName = relPath.replace('/', '_')
+	private String getRegionName(AssetBundle bundle, File baseDir, File file) {
+		return bundle.getRelativePath(baseDir.toURI().relativize(file.toURI()).getPath())
+				.replace('/', '_')
 				.replace("_f.png", "")
 				.replace("_n.png", "")
 				.replace(".png", "");
+	}
 
-		return regionName.equals(name);
+	@Override
+	public boolean matches(AssetBundle bundle, TextureType textureType, File baseDir, String name) {
+		if(matchedNames == null)
+			prepare(bundle, baseDir);
+		return matchedNames.get(textureType).contains(name);
 	}
 
 	@Override
@@ -209,6 +280,11 @@ public class DirectoryPackTarget implements PackTarget {
 		return extendBottom;
 	}
 
+	@Override
+	public int getPolygonVertices() {
+		return polygonVertices;
+	}
+
 	@Override
 	public long lastModified(File baseDir) {
 		File directory = new File(baseDir, path);
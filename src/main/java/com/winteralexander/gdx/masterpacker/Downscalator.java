@@ -11,13 +11,13 @@ import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.*;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
+import java.util.zip.Deflater;
 import java.util.stream.Collectors;
 
 import static com.winteralexander.gdx.utils.CLIUtil.getParamValue;
 import static com.winteralexander.gdx.utils.ObjectUtil.firstNonNull;
-import static com.winteralexander.gdx.utils.io.SerializationUtil.readMap;
-import static com.winteralexander.gdx.utils.io.SerializationUtil.writeMap;
 
 /**
  * Downscales assets from 4K to 1080p and 720p
@@ -27,6 +27,19 @@ import static com.winteralexander.gdx.utils.io.SerializationUtil.writeMap;
  * @author Alexander Winter
  */
 public class Downscalator {
+	/**
+	 * Minimum time in milliseconds between two saves of the cache while resizing
+	 */
+	private static final long CACHE_WRITE_INTERVAL = 5000L;
+
+	/**
+	 * Images with more pixels than this are resized in strips while being decoded, instead of
+	 * being loaded whole, which would take gigabytes of memory for the largest backgrounds
+	 */
+	static final long STREAMING_PIXELS = 4096L * 4096L;
+
+	private static long lastCacheWrite = System.currentTimeMillis();
+
 	public static void main(String[] args) throws IOException {
 		ObjectMap<String, Long> lastDownscales = new ObjectMap<>();
 
@@ -38,10 +51,6 @@ public class Downscalator {
 		File cache = new File(cacheDir, "downscalator-" +
 				Hash.sha256(listFile.getAbsolutePath()).substring(0, 8) + ".cache");
 
-		if(cache.exists())
-			readMap(new BufferedInputStream(new FileInputStream(cache)),
-					String.class, Long.class, lastDownscales);
-
 		for(AssetResolution resolution : AssetResolution.values) {
 			File baseDir = new File("client/assets/gfx_src");
 			File outDir = new File(baseDir.getParentFile(), resolution.getDirectory());
@@ -53,15 +62,21 @@ public class Downscalator {
 							CLIUtil.getParamValue(s, "--nodownscale") == null))
 					.collect(Collectors.toList());
 
-			process(baseDir,
-					baseDir,
-					outDir,
-					resolution,
-					paths,
-					lastDownscales);
-
-			try(OutputStream output = new BufferedOutputStream(new FileOutputStream(cache))) {
-				writeMap(output, lastDownscales);
+			// processes sharing the cache resize a resolution one at a time, the next one
+			// reusing the images resized by the previous
+			try(ProcessLock ignored = ProcessLock.acquire(new File(cacheDir,
+					cache.getName().replace(".cache", "") + "-" + resolution.getDirectory() + ".lock"))) {
+				CacheFile.read(cache, String.class, Long.class, lastDownscales);
+
+				process(baseDir,
+						baseDir,
+						outDir,
+						resolution,
+						paths,
+						lastDownscales,
+						cache);
+
+				CacheFile.write(cache, String.class, Long.class, lastDownscales, Math::max);
 			}
 		}
 	}
@@ -93,10 +108,11 @@ public class Downscalator {
 	                           File outDir,
 	                           AssetResolution size,
 	                           List<DownscalatorEntry> paths,
-	                           ObjectMap<String, Long> lastDownscales) throws IOException {
+	                           ObjectMap<String, Long> lastDownscales,
+	                           File cache) throws IOException {
 		if(file.isDirectory()) {
 			for(File inner : file.listFiles())
-				process(baseDir, inner, outDir, size, paths, lastDownscales);
+				process(baseDir, inner, outDir, size, paths, lastDownscales, cache);
 			return;
 		}
 
@@ -119,17 +135,26 @@ public class Downscalator {
 
 		try {
 			outFile.getParentFile().mkdirs();
-			BufferedImage img = ImageIO.read(file);
 
-			if(img == null)
-				return; // not an image
+			if(!resizeStreaming(file, outFile, size.getScale(), false)) {
+				BufferedImage img = ImageIO.read(file);
 
-			BufferedImage copy = createResizedCopy(img,
-					Math.round(img.getWidth() * size.getScale()),
-					Math.round(img.getHeight() * size.getScale()));
-			ImageIO.write(copy, "png", outFile);
+				if(img == null)
+					return; // not an image
+
+				BufferedImage copy = createResizedCopy(img,
+						Math.round(img.getWidth() * size.getScale()),
+						Math.round(img.getHeight() * size.getScale()));
+				ImageIO.write(copy, "png", outFile);
+			}
 			System.out.println("Resized " + file.getAbsolutePath());
 			lastDownscales.put(outFile.getAbsolutePath(), System.currentTimeMillis());
+
+			if(System.currentTimeMillis() - lastCacheWrite > CACHE_WRITE_INTERVAL) {
+				cache.getParentFile().mkdirs();
+				CacheFile.write(cache, String.class, Long.class, lastDownscales, Math::max);
+				lastCacheWrite = System.currentTimeMillis();
+			}
 		} catch(Exception ex) {
 			System.out.println("Didn't work with " + file.getAbsolutePath());
 			ex.printStackTrace();
@@ -148,6 +173,10 @@ public class Downscalator {
 		if(scale == 1f)
 			return;
 
+		// colors are weighted by alpha instead of bleeding them, which needs the whole image
+		if(resizeStreaming(file, file, scale, true))
+			return;
+
 		BufferedImage img = ImageIO.read(file);
 
 		if(img.getWidth() == 1 || img.getHeight() == 1)
@@ -160,6 +189,66 @@ public class Downscalator {
 		ImageIO.write(copy, "png", file);
 	}
 
+	/**
+	 * Resizes a large PNG image without loading it whole, decoding, resampling and encoding
+	 * it row by row
+	 *
+	 * @param file image to resize
+	 * @param outFile file to write the resized image to, can be the image itself
+	 * @param scale scale to resize the image by
+	 * @param premultiplied true to weight colors by their alpha while resampling
+	 * @return true if the image was resized, false if it isn't a PNG image large enough to
+	 * be streamed and must be resized in memory
+	 * @throws IOException if the image could not be read or the resized image written
+	 */
+	static boolean resizeStreaming(File file,
+	                               File outFile,
+	                               float scale,
+	                               boolean premultiplied) throws IOException {
+		File tmpFile = new File(outFile.getParentFile(), outFile.getName() + ".tmp");
+
+		try(InputStream input = new BufferedInputStream(new FileInputStream(file), 64 * 1024)) {
+			PngDecoder decoder;
+			try {
+				decoder = new PngDecoder(input);
+			} catch(IOException ex) {
+				return false; // left to ImageIO, which reports images it can't read
+			}
+
+			try {
+				int width = decoder.getWidth(), height = decoder.getHeight();
+				if(decoder.isInterlaced()
+						|| (long)width * height <= STREAMING_PIXELS
+						|| width == 1 || height == 1)
+					return false;
+
+				int destWidth = Math.max(1, Math.round(width * scale));
+				int destHeight = Math.max(1, Math.round(height * scale));
+
+				try(OutputStream output = new BufferedOutputStream(
+						new FileOutputStream(tmpFile), 64 * 1024)) {
+					PngEncoder encoder = new PngEncoder(output, destWidth, destHeight,
+							decoder.hasAlpha() ? PngEncoder.COLOR_RGBA : PngEncoder.COLOR_RGB,
+							null,
+							PngEncoder.FILTER_ADAPTIVE,
+							Deflater.DEFAULT_COMPRESSION,
+							Deflater.DEFAULT_STRATEGY);
+					new StripResampler(width, height, destWidth, destHeight, premultiplied)
+							.resize(decoder, encoder);
+					encoder.finish();
+				}
+			} finally {
+				decoder.close();
+			}
+		} catch(IOException | RuntimeException ex) {
+			tmpFile.delete();
+			throw ex;
+		}
+
+		Files.move(tmpFile.toPath(), outFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		return true;
+	}
+
 	public static class DownscalatorEntry {
 		public final String path;
 		public final boolean doDownscale;
@@ -0,0 +1,278 @@
+package com.winteralexander.gdx.masterpacker;
+
+/**
+ * Encodes blocks to ETC2 RGBA8 with EAC alpha. Colors are encoded with the individual and
+ * differential modes ETC2 inherits from ETC1, which are tried with both subblock
+ * orientations, keeping the one with the least error.
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class Etc2BlockEncoder implements BlockEncoder {
+	private static final int[][] COLOR_MODIFIERS = {
+			{ 2, 8 }, { 5, 17 }, { 9, 29 }, { 13, 42 },
+			{ 18, 60 }, { 24, 80 }, { 33, 106 }, { 47, 183 }
+	};
+
+	private static final int[][] ALPHA_MODIFIERS = {
+			{ -3, -6, -9, -15, 2, 5, 8, 14 },
+			{ -3, -7, -10, -13, 2, 6, 9, 12 },
+			{ -2, -5, -8, -13, 1, 4, 7, 12 },
+			{ -2, -4, -6, -13, 1, 3, 5, 12 },
+			{ -3, -6, -8, -12, 2, 5, 7, 11 },
+			{ -3, -7, -9, -11, 2, 6, 8, 10 },
+			{ -4, -7, -8, -11, 3, 6, 7, 10 },
+			{ -3, -5, -8, -11, 2, 4, 7, 10 },
+			{ -2, -6, -8, -10, 1, 5, 7, 9 },
+			{ -2, -5, -8, -10, 1, 4, 7, 9 },
+			{ -2, -4, -8, -10, 1, 3, 7, 9 },
+			{ -2, -5, -7, -10, 1, 4, 6, 9 },
+			{ -3, -4, -7, -10, 2, 3, 6, 9 },
+			{ -1, -2, -3, -10, 0, 1, 2, 9 },
+			{ -4, -6, -8, -9, 3, 5, 7, 8 },
+			{ -3, -5, -7, -9, 2, 4, 6, 8 }
+	};
+
+	@Override
+	public int getBlockBytes() {
+		return 16;
+	}
+
+	@Override
+	public void encode(int[] pixels, byte[] out, int offset) {
+		writeLong(out, offset, encodeAlpha(pixels));
+		writeLong(out, offset + 8, encodeColor(pixels));
+	}
+
+	private static long encodeAlpha(int[] pixels) {
+		int min = 255, max = 0;
+		for(int pixel : pixels) {
+			int alpha = pixel >>> 24;
+			min = Math.min(min, alpha);
+			max = Math.max(max, alpha);
+		}
+
+		// table 13 has a null modifier, which represents a uniform alpha exactly
+		if(min == max)
+			return (long)min << 56 | 1L << 52 | 13L << 48 | indicesOf(4);
+
+		long best = 0L;
+		long bestError = Long.MAX_VALUE;
+
+		for(int table = 0; table < ALPHA_MODIFIERS.length; table++) {
+			int[] modifiers = ALPHA_MODIFIERS[table];
+			int range = modifiers[7] - modifiers[3];
+			int estimate = Math.min(15, Math.round((float)(max - min) / range));
+
+			for(int multiplier = Math.max(1, estimate - 1);
+			    multiplier <= Math.min(15, estimate + 1);
+			    multiplier++) {
+				int base = Math.round((max + min) / 2f
+						- multiplier * (modifiers[7] + modifiers[3]) / 2f);
+				base = Math.max(0, Math.min(255, base));
+
+				long error = 0L;
+				long indices = 0L;
+				for(int i = 0; i < 16; i++) {
+					int alpha = pixels[i] >>> 24;
+					int bestIndex = 0;
+					int bestPixelError = Integer.MAX_VALUE;
+
+					for(int index = 0; index < 8; index++) {
+						int value = clamp(base + modifiers[index] * multiplier);
+						int pixelError = (value - alpha) * (value - alpha);
+						if(pixelError < bestPixelError) {
+							bestPixelError = pixelError;
+							bestIndex = index;
+						}
+					}
+					error += bestPixelError;
+					indices |= (long)bestIndex << (45 - 3 * indexPosition(i));
+				}
+
+				if(error < bestError) {
+					bestError = error;
+					best = (long)base << 56 | (long)multiplier << 52 | (long)table << 48 | indices;
+				}
+			}
+		}
+		return best;
+	}
+
+	private static long indicesOf(int index) {
+		long indices = 0L;
+		for(int i = 0; i < 16; i++)
+			indices |= (long)index << (45 - 3 * i);
+		return indices;
+	}
+
+	private static long encodeColor(int[] pixels) {
+		long best = 0L;
+		long bestError = Long.MAX_VALUE;
+
+		for(int flip = 0; flip < 2; flip++) {
+			int[] first = averageColor(pixels, flip, 0);
+			int[] second = averageColor(pixels, flip, 1);
+
+			// individual mode, 4 bits per channel for both subblocks
+			int[] first4 = quantize(first, 15);
+			int[] second4 = quantize(second, 15);
+			long header = (long)first4[0] << 60 | (long)second4[0] << 56
+					| (long)first4[1] << 52 | (long)second4[1] << 48
+					| (long)first4[2] << 44 | (long)second4[2] << 40
+					| (long)flip << 32;
+			long[] encoded = encodeSubblocks(pixels, flip, header,
+					expand(first4, 15), expand(second4, 15));
+
+			if(encoded[1] < bestError) {
+				bestError = encoded[1];
+				best = encoded[0];
+			}
+
+			// differential mode, 5 bits per channel and a 3 bits delta for the second subblock
+			int[] first5 = quantize(first, 31);
+			int[] second5 = quantize(second, 31);
+			boolean deltaFits = true;
+			for(int c = 0; c < 3; c++) {
+				int delta = second5[c] - first5[c];
+				deltaFits &= delta >= -4 && delta <= 3;
+			}
+
+			if(!deltaFits)
+				continue;
+
+			header = (long)first5[0] << 59 | (long)((second5[0] - first5[0]) & 7) << 56
+					| (long)first5[1] << 51 | (long)((second5[1] - first5[1]) & 7) << 48
+					| (long)first5[2] << 43 | (long)((second5[2] - first5[2]) & 7) << 40
+					| 1L << 33 | (long)flip << 32;
+			encoded = encodeSubblocks(pixels, flip, header,
+					expand(first5, 31), expand(second5, 31));
+
+			if(encoded[1] < bestError) {
+				bestError = encoded[1];
+				best = encoded[0];
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Picks the modifier table and the pixel indices of both subblocks
+	 *
+	 * @return encoded block and its error
+	 */
+	private static long[] encodeSubblocks(int[] pixels,
+	                                      int flip,
+	                                      long header,
+	                                      int[] firstBase,
+	                                      int[] secondBase) {
+		long block = header;
+		long error = 0L;
+
+		for(int subblock = 0; subblock < 2; subblock++) {
+			int[] base = subblock == 0 ? firstBase : secondBase;
+			long bestError = Long.MAX_VALUE;
+			int bestTable = 0;
+			long bestIndices = 0L;
+
+			for(int table = 0; table < COLOR_MODIFIERS.length; table++) {
+				long tableError = 0L;
+				long indices = 0L;
+
+				for(int i = 0; i < 16; i++) {
+					int x = i % 4, y = i / 4;
+					if(getSubblock(x, y, flip) != subblock)
+						continue;
+
+					int bestPixelError = Integer.MAX_VALUE;
+					int bestIndex = 0;
+
+					for(int index = 0; index < 4; index++) {
+						int modifier = COLOR_MODIFIERS[table][index & 1];
+						if(index >= 2)
+							modifier = -modifier;
+
+						int pixelError = 0;
+						for(int c = 0; c < 3; c++) {
+							int diff = clamp(base[c] + modifier) - channel(pixels[i], c);
+							pixelError += diff * diff;
+						}
+
+						if(pixelError < bestPixelError) {
+							bestPixelError = pixelError;
+							bestIndex = index;
+						}
+					}
+
+					int position = indexPosition(i);
+					tableError += bestPixelError;
+					indices |= (long)(bestIndex >> 1) << (16 + position)
+							| (long)(bestIndex & 1) << position;
+				}
+
+				if(tableError < bestError) {
+					bestError = tableError;
+					bestTable = table;
+					bestIndices = indices;
+				}
+			}
+
+			block |= (long)bestTable << (subblock == 0 ? 37 : 34) | bestIndices;
+			error += bestError;
+		}
+		return new long[] { block, error };
+	}
+
+	private static int[] averageColor(int[] pixels, int flip, int subblock) {
+		int[] sum = new int[3];
+		for(int i = 0; i < 16; i++)
+			if(getSubblock(i % 4, i / 4, flip) == subblock)
+				for(int c = 0; c < 3; c++)
+					sum[c] += channel(pixels[i], c);
+
+		for(int c = 0; c < 3; c++)
+			sum[c] = (sum[c] + 4) / 8;
+		return sum;
+	}
+
+	private static int getSubblock(int x, int y, int flip) {
+		return flip == 0 ? x / 2 : y / 2;
+	}
+
+	/**
+	 * Pixels are indexed column by column in ETC blocks
+	 */
+	private static int indexPosition(int rowMajorIndex) {
+		return (rowMajorIndex % 4) * 4 + rowMajorIndex / 4;
+	}
+
+	private static int[] quantize(int[] color, int max) {
+		int[] quantized = new int[3];
+		for(int c = 0; c < 3; c++)
+			quantized[c] = Math.round(color[c] * max / 255f);
+		return quantized;
+	}
+
+	private static int[] expand(int[] quantized, int max) {
+		int[] color = new int[3];
+		for(int c = 0; c < 3; c++)
+			color[c] = max == 15
+					? quantized[c] << 4 | quantized[c]
+					: quantized[c] << 3 | quantized[c] >> 2;
+		return color;
+	}
+
+	private static int channel(int pixel, int c) {
+		return pixel >> (16 - 8 * c) & 0xFF;
+	}
+
+	private static int clamp(int value) {
+		return Math.max(0, Math.min(255, value));
+	}
+
+	private static void writeLong(byte[] out, int offset, long value) {
+		for(int i = 0; i < 8; i++)
+			out[offset + i] = (byte)(value >>> (56 - 8 * i));
+	}
+}
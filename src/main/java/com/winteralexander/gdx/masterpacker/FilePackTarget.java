@@ -5,30 +5,58 @@ import com.winteralexander.gdx.utils.io.FileUtil;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileStore;
 import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
-import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
 
 /**
- * {@link PackTarget} that just copies a file
+ * {@link PackTarget} that just copies a file. A destination which already has the content
+ * of the file is left untouched, otherwise it is linked to the file when its
+ * {@link LinkMode} allows it, falling back to a copy, then committed over the destination.
  * <p>
  * Created on 2024-06-14.
  *
  * @author Alexander Winter
  */
 public class FilePackTarget implements PackTarget {
+	/**
+	 * True if there is no cp supporting reflinks on this system
+	 */
+	private static volatile boolean reflinkUnsupported = false;
+
+	/**
+	 * File systems on which a reflink already failed, not attempted again
+	 */
+	private static final Set<FileStore> reflinkUnsupportedStores = ConcurrentHashMap.newKeySet();
+
 	private final String path, bundleId;
 	private boolean keepStructure;
+	private final LinkMode linkMode;
+
+	/**
+	 * Hash of the source, computed once per pack by the first resolution comparing it
+	 */
+	private String sourceHash = null;
 
 	public FilePackTarget(String path,
 	                      String bundleId,
-	                      boolean keepStructure) {
+	                      boolean keepStructure,
+	                      LinkMode linkMode) {
 		ensureNotNull(path, "path");
+		ensureNotNull(linkMode, "linkMode");
 		this.path = path;
 		this.bundleId = bundleId;
 		this.keepStructure = keepStructure;
+		this.linkMode = linkMode;
 	}
 
 	@Override
@@ -36,6 +64,12 @@ public class FilePackTarget implements PackTarget {
 		return bundleId;
 	}
 
+	@Override
+	public synchronized void prepare(AssetBundle bundle, File baseDir) {
+		// the source may have changed since the last pack
+		sourceHash = null;
+	}
+
 	@Override
 	public void process(AssetBundle bundle,
 	                    AssetResolution resolution,
@@ -43,9 +77,112 @@ public class FilePackTarget implements PackTarget {
 	                    File flatDir,
 	                    File normalDir,
 	                    File preshadedDir) throws IOException {
-		File dest = getDestinationFile(flatDir.getParentFile());
+		copy(baseDir, flatDir.getParentFile(), new OutputCommitter());
+	}
+
+	/**
+	 * Copies the file to the output directory of a bundle. The copy or link is staged next
+	 * to the destination and committed, so the destination is either left as it was or
+	 * fully replaced.
+	 *
+	 * @param baseDir input directory in which the file is
+	 * @param outDir output directory of the bundle at the resolution being packed
+	 * @param committer committer to commit the copy with, recording the destination if it
+	 * changed
+	 * @throws IOException if the file could not be copied
+	 */
+	public void copy(File baseDir, File outDir, OutputCommitter committer) throws IOException {
+		File source = new File(baseDir, path);
+		File dest = getDestinationFile(outDir);
 		FileUtil.ensureDirectory(dest.getParentFile());
-		Files.copy(new File(baseDir, path).toPath(), dest.toPath(), REPLACE_EXISTING);
+
+		if(dest.isFile()
+				&& dest.length() == source.length()
+				&& (Files.isSameFile(source.toPath(), dest.toPath())
+				|| getSourceHash(source).equals(OutputCommitter.hash(dest))))
+			return;
+
+		// on the file system of the destination, for links and an atomic commit
+		File staged = new File(dest.getParentFile(), "." + dest.getName() + ".tmp");
+		Files.deleteIfExists(staged.toPath());
+
+		try {
+			if(!(linkMode == LinkMode.HARD && hardLink(source, staged)
+					|| linkMode == LinkMode.REFLINK && reflink(source, staged)))
+				try(FileChannel input = FileChannel.open(source.toPath(), READ);
+				    FileChannel output = FileChannel.open(staged.toPath(), CREATE_NEW, WRITE)) {
+					long size = input.size();
+					long position = 0L;
+					while(position < size)
+						position += input.transferTo(position, size - position, output);
+				}
+
+			// moved over the destination, a hard link to the source is never written to
+			committer.commit(staged, dest);
+		} finally {
+			Files.deleteIfExists(staged.toPath());
+		}
+	}
+
+	private synchronized String getSourceHash(File source) throws IOException {
+		if(sourceHash == null)
+			sourceHash = OutputCommitter.hash(source);
+		return sourceHash;
+	}
+
+	/**
+	 * @return true if the destination was linked to the source, false if the file system
+	 * doesn't support it
+	 */
+	private static boolean hardLink(File source, File dest) {
+		try {
+			Files.createLink(dest.toPath(), source.toPath());
+			return true;
+		} catch(IOException | UnsupportedOperationException ex) {
+			return false; // on another file system or unsupported by it
+		}
+	}
+
+	/**
+	 * @return true if the source was cloned to the destination, false if the file system
+	 * doesn't support it
+	 */
+	private static boolean reflink(File source, File dest) throws IOException {
+		if(reflinkUnsupported)
+			return false;
+
+		FileStore store = Files.getFileStore(dest.getAbsoluteFile().getParentFile().toPath());
+		if(reflinkUnsupportedStores.contains(store))
+			return false;
+
+		Process process;
+		try {
+			process = new ProcessBuilder("cp", "--reflink=always",
+					source.getAbsolutePath(), dest.getAbsolutePath())
+					.redirectErrorStream(true)
+					.start();
+		} catch(IOException ex) {
+			reflinkUnsupported = true; // no cp supporting it on this system
+			return false;
+		}
+
+		try(InputStream output = process.getInputStream()) {
+			byte[] buffer = new byte[1024];
+			while(output.read(buffer) != -1)
+				continue; // the error message isn't needed, only the exit code
+
+			if(process.waitFor() == 0)
+				return true;
+		} catch(InterruptedException ex) {
+			process.destroy();
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while cloning " + source, ex);
+		}
+
+		// copy on write file systems clone any file, another failure would only repeat
+		reflinkUnsupportedStores.add(store);
+		Files.deleteIfExists(dest.toPath());
+		return false;
 	}
 
 	@Override
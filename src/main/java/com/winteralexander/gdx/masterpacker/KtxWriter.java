@@ -0,0 +1,83 @@
+package com.winteralexander.gdx.masterpacker;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+
+/**
+ * Writes textures in the KTX 1 container, which libGDX loads through KTXTextureData
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class KtxWriter {
+	private static final byte[] IDENTIFIER = {
+			(byte)0xAB, 'K', 'T', 'X', ' ', '1', '1', (byte)0xBB, '\r', '\n', 0x1A, '\n'
+	};
+
+	public static final int GL_UNSIGNED_BYTE = 0x1401;
+	public static final int GL_RGBA = 0x1908;
+
+	/**
+	 * Writes a 2D texture to a KTX file
+	 *
+	 * @param file file to write
+	 * @param glType type of the data, 0 for compressed formats
+	 * @param glFormat format of the data, 0 for compressed formats
+	 * @param glInternalFormat internal format of the texture
+	 * @param width width of the first level
+	 * @param height height of the first level
+	 * @param levels data of every mipmap level, starting with the full size one
+	 * @throws IOException if the file could not be written
+	 */
+	public static void write(File file,
+	                         int glType,
+	                         int glFormat,
+	                         int glInternalFormat,
+	                         int width,
+	                         int height,
+	                         List<byte[]> levels) throws IOException {
+		ensureNotNull(file, "file");
+		ensureNotNull(levels, "levels");
+
+		if(levels.isEmpty())
+			throw new IllegalArgumentException("levels must not be empty");
+
+		try(OutputStream output = new BufferedOutputStream(new FileOutputStream(file))) {
+			output.write(IDENTIFIER);
+			writeInt(output, 0x04030201);
+			writeInt(output, glType);
+			writeInt(output, 1); // glTypeSize
+			writeInt(output, glFormat);
+			writeInt(output, glInternalFormat);
+			writeInt(output, GL_RGBA); // glBaseInternalFormat
+			writeInt(output, width);
+			writeInt(output, height);
+			writeInt(output, 0); // pixelDepth
+			writeInt(output, 0); // numberOfArrayElements
+			writeInt(output, 1); // numberOfFaces
+			writeInt(output, levels.size());
+			writeInt(output, 0); // bytesOfKeyValueData
+
+			for(byte[] level : levels) {
+				writeInt(output, level.length);
+				output.write(level);
+				for(int i = level.length; i % 4 != 0; i++)
+					output.write(0);
+			}
+		}
+	}
+
+	private static void writeInt(OutputStream output, int value) throws IOException {
+		output.write(value);
+		output.write(value >>> 8);
+		output.write(value >>> 16);
+		output.write(value >>> 24);
+	}
+}
@@ -0,0 +1,32 @@
+package com.winteralexander.gdx.masterpacker;
+
+import com.winteralexander.gdx.utils.EnumConstantCache;
+
+/**
+ * How {@link FilePackTarget} creates the copies of its file which differ from the source
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public enum LinkMode {
+	/**
+	 * Copies the content of the file
+	 */
+	NONE,
+
+	/**
+	 * Links the destination to the source, which then share their content. Modifying one
+	 * modifies the other.
+	 */
+	HARD,
+
+	/**
+	 * Clones the file on file systems supporting copy-on-write, sharing its content on disk
+	 * until either is modified
+	 */
+	REFLINK
+	;
+
+	public static final LinkMode[] values = EnumConstantCache.store(values());
+}
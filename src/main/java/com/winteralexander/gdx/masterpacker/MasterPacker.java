@@ -5,305 +5,928 @@ import com.badlogic.gdx.tools.texturepacker.TexturePacker.Settings;
 import com.badlogic.gdx.utils.ObjectMap;
 import com.winteralexander.gdx.utils.Hash;
 import com.winteralexander.gdx.utils.StringUtil;
-import com.winteralexander.gdx.utils.io.FileUtil;
 
 import java.io.*;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.winteralexander.gdx.utils.CLIUtil.getParamValue;
-import static com.winteralexander.gdx.utils.ObjectUtil.firstNonNull;
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
 import static com.winteralexander.gdx.utils.io.FileUtil.ensureDirectory;
-import static com.winteralexander.gdx.utils.io.SerializationUtil.readMap;
-import static com.winteralexander.gdx.utils.io.SerializationUtil.writeMap;
 
 /**
  * Application which packs assets automatically based on a config
  * <p>
+ * A packer can also be embedded and kept for a whole session to pack many times, keeping
+ * its parsed bundle and pack lists until they are modified, its caches and its threads
+ * between packs.
+ * <p>
  * Created on 2021-10-16.
  *
  * @author Alexander Winter
  */
-public class MasterPacker {
-	public static void main(String... args) throws IOException {
-		File bundleFile = new File(firstNonNull(getParamValue(args, "--bundle-list", "-b"),
-				"bundles.bundlelist"));
-		File targetsFile = new File(firstNonNull(getParamValue(args, "--pack-list", "-p"),
-				"assets.packlist"));
-		boolean resetCache = getParamValue(args, "--reset-cache", "-r") != null;
+public class MasterPacker implements Closeable {
+	/**
+	 * Time in milliseconds between two checks of the bundle queue while waiting on workers
+	 */
+	private static final long QUEUE_POLL_INTERVAL = 500L;
+
+	private final MasterPackerConfig config;
+	private final File cacheFile;
+	private final ObjectMap<String, BundleCacheEntry> lastPacks = new ObjectMap<>();
+	private final PngOptimizer optimizer;
+	private final ExecutorService bundleExecutor;
+	private final OutputStage outputStage;
+
+	private List<AssetBundle> bundles;
+	private final ObjectMap<String, List<PackTarget>> targetsByBundle = new ObjectMap<>();
+	private long bundleListModified, packListModified;
+
+	private boolean resetCache;
+	private OutputCommitter committer = new OutputCommitter();
+
+	public MasterPacker(MasterPackerConfig config) {
+		ensureNotNull(config, "config");
+		this.config = config;
+		this.cacheFile = config.getCacheFile();
+		this.resetCache = config.resetCache;
+		this.optimizer = new PngOptimizer(config.pngTimeBudget,
+				Runtime.getRuntime().availableProcessors());
+		this.bundleExecutor = Executors.newFixedThreadPool(Math.max(1, config.threads), runnable -> {
+			Thread thread = new Thread(runnable, "master-packer");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		int processors = Runtime.getRuntime().availableProcessors();
+		this.outputStage = new OutputStage(processors, 2 * processors);
+
+		ProcessedImageCache.getInstance().setMaxBytes(config.imageCacheBytes);
+
+		if(!resetCache) {
+			CacheFile.read(cacheFile, String.class, BundleCacheEntry.class, lastPacks);
+			optimizer.readCache(config.getPngCacheFile());
+		}
+	}
 
-		File cacheDir = new File(firstNonNull(getParamValue(args, "--cache-dir", "-c"),
-				"build"));
-		File cacheFile = new File(cacheDir, "packer-" +
-				Hash.sha256(bundleFile.getAbsolutePath()).substring(0, 8) + ".cache");
+	public static void main(String... args) throws IOException {
+		MasterPackerConfig config = MasterPackerConfig.fromArgs(args);
 
-		File inputDir = new File(firstNonNull(getParamValue(args, "--input-dir", "-i"),
-				"client/assets/gfx_src"));
-		File outputDir = new File(firstNonNull(getParamValue(args, "--output-dir", "-o"),
-				"client/assets"));
+		if(getParamValue(args, "--plan") != null) {
+			PackPlan plan;
+			try(MasterPacker packer = new MasterPacker(config)) {
+				plan = packer.plan();
+			}
 
-		ObjectMap<String, BundleCacheEntry> lastPacks = new ObjectMap<>();
+			plan.printSummary();
+			String planOutput = getParamValue(args, "--plan-output");
+			if(planOutput != null)
+				plan.write(new File(planOutput));
 
-		if(cacheFile.exists() && !resetCache)
-			readMap(new BufferedInputStream(new FileInputStream(cacheFile)),
-					String.class, BundleCacheEntry.class, lastPacks);
+			System.exit(plan.isEmpty() ? 0 : 2);
+			return;
+		}
 
-		List<AssetBundle> bundles = BundleList.parseFile(bundleFile);
-		List<PackTarget> targets = PackingList.parseFile(targetsFile);
+		try(MasterPacker packer = new MasterPacker(config)) {
+			packer.pack();
+		}
+	}
 
+	/**
+	 * Finds the bundles the next pack would pack, only detecting changes, creating no
+	 * directory and decoding no image
+	 *
+	 * @return plan of the next pack
+	 * @throws IOException if the bundle or pack list could not be read
+	 */
+	public PackPlan plan() throws IOException {
+		loadLists();
+
+		PackPlan plan = new PackPlan();
 		for(AssetBundle bundle : bundles) {
-			ensureDirectory(inputDir);
-			long bundleLastModification = -1L;
-			int packTargetCount = 0;
+			BundleCacheEntry lastPack = resetCache ? null : lastPacks.get(bundle.getBundleId());
+			int targetCount = getTargets(bundle).size();
+			String reason = getStaleReason(bundle, lastPack, getLastModification(bundle),
+					targetCount, config.verifyOutputs);
 
-			for(PackTarget target : targets)
-				if(Objects.equals(target.getBundleId(), bundle.getBundleId())) {
-					packTargetCount++;
-					bundleLastModification = Math.max(bundleLastModification,
-							target.lastModified(inputDir));
+			if(reason != null)
+				plan.addBundle(bundle.getBundleId(), reason, targetCount, lastPack);
+		}
+		return plan;
+	}
+
+	/**
+	 * Packs every stale bundle
+	 *
+	 * @throws IOException if a bundle could not be packed
+	 */
+	public void pack() throws IOException {
+		loadLists();
+		pack(bundles);
+	}
+
+	/**
+	 * Packs the specified bundles, those already up to date are left as they are
+	 *
+	 * @param bundleIds IDs of the bundles to pack
+	 * @throws IOException if a bundle could not be packed
+	 */
+	public void packBundles(Collection<String> bundleIds) throws IOException {
+		ensureNotNull(bundleIds, "bundleIds");
+		loadLists();
+
+		List<AssetBundle> selected = new ArrayList<>();
+		for(String bundleId : bundleIds)
+			selected.add(getBundle(bundleId));
+		pack(selected);
+	}
+
+	/**
+	 * @return outputs written or replaced by the last pack
+	 */
+	public List<File> getChangedFiles() {
+		return committer.getChangedFiles();
+	}
+
+	/**
+	 * @return stale outputs deleted by the last pack
+	 */
+	public List<File> getRemovedFiles() {
+		return committer.getRemovedFiles();
+	}
+
+	@Override
+	public void close() {
+		optimizer.close();
+		outputStage.close();
+		bundleExecutor.shutdown();
+	}
+
+	private void pack(List<AssetBundle> selected) throws IOException {
+		ensureDirectory(config.inputDir);
+		committer = new OutputCommitter();
+
+		if(config.queueDir != null)
+			packQueue(selected);
+		else
+			packLocally(selected);
+
+		// the previous packs are only ignored once, the next packs build on this one
+		resetCache = false;
+
+		System.out.println("Image cache: " + ProcessedImageCache.getInstance().getStatistics());
+
+		for(File changed : committer.getChangedFiles())
+			System.out.println("Updated " + changed.getPath());
+		for(File removed : committer.getRemovedFiles())
+			System.out.println("Removed " + removed.getPath());
+
+		ensureDirectory(config.cacheDir);
+		optimizer.writeCache(config.getPngCacheFile());
+
+		// the coordinator reports on the bundles of every worker
+		if(config.worker)
+			return;
+
+		VramReport report = new VramReport();
+		for(AssetBundle bundle : bundles)
+			report.addBundle(bundle, config.outputDir);
+		report.printSummary();
+		report.write(config.getVramReportFile());
+
+		List<String> exceeded = report.checkBudgets(bundles, config.vramBudget);
+		if(!exceeded.isEmpty())
+			throw new IllegalStateException("Video memory budget exceeded:\n" +
+					StringUtil.join(exceeded, "\n"));
+	}
+
+	private void packLocally(List<AssetBundle> selected) throws IOException {
+		BundleScheduler scheduler = new BundleScheduler(getStaleBundles(selected),
+				lastPacks, config.threads, getMemoryBudget());
+
+		scheduler.run(bundleExecutor, bundle -> packStaleBundle(bundle).thenAccept(entry -> {
+			// saved after every bundle so an interrupted run resumes where it stopped
+			synchronized(lastPacks) {
+				lastPacks.put(bundle.getBundleId(), entry);
+				try {
+					ensureDirectory(config.cacheDir);
+					CacheFile.write(cacheFile, String.class, BundleCacheEntry.class, lastPacks,
+							MasterPacker::getNewest);
+				} catch(IOException ex) {
+					throw new UncheckedIOException(ex);
 				}
+			}
+		}));
+	}
+
+	private void packQueue(List<AssetBundle> selected) throws IOException {
+		BundleQueue queue = new BundleQueue(config.queueDir);
 
-			if(bundleLastModification != -1L
-					&& lastPacks.containsKey(bundle.getBundleId())
-					&& lastPacks.get(bundle.getBundleId()).lastModification > bundleLastModification
-					&& lastPacks.get(bundle.getBundleId()).lastTargetCount == packTargetCount
-					&& !anyDestinationMissing(bundle, targets, outputDir, inputDir)) {
+		if(config.worker) {
+			workQueue(queue);
+			return;
+		}
+
+		try(ProcessLock ignored = queue.lockCoordinator()) {
+			// most expensive first, so the longest bundles don't end up delaying the run
+			List<String> staleIds = new ArrayList<>();
+			for(AssetBundle bundle : BundleScheduler.sortByCost(getStaleBundles(selected), lastPacks))
+				staleIds.add(bundle.getBundleId());
+
+			long runId = queue.publish(staleIds);
+			System.out.println("Published " + staleIds.size() + " stale bundle(s) to " +
+					config.queueDir + " as run " + runId);
+
+			// the coordinator works too, and picks up the tasks of workers which died
+			while(!queue.isFinished(runId))
+				if(packRun(queue, runId, staleIds) == 0 && queue.requeueAbandoned(runId) == 0)
+					waitForQueue();
+
+			if(queue.getRunId() != runId)
+				throw new IOException("Run " + runId + " of " + config.queueDir +
+						" was replaced by a coordinator which didn't wait for it");
+
+			lastPacks.putAll(queue.getResults(runId));
+			ensureDirectory(config.cacheDir);
+			CacheFile.write(cacheFile, String.class, BundleCacheEntry.class, lastPacks,
+					MasterPacker::getNewest);
+		}
+	}
+
+	private void workQueue(BundleQueue queue) throws IOException {
+		// a run left over by a previous coordinator, finished or not, is never joined
+		long startRun = queue.getRunId();
+		boolean inProgress = startRun != -1L
+				&& queue.isCoordinated()
+				&& !queue.isFinished(startRun);
+		long minRun = inProgress ? startRun : startRun + 1L;
+		boolean waiting = false;
+
+		while(true) {
+			long runId = queue.getRunId();
+			if(runId < minRun) {
+				if(!waiting)
+					System.out.println("Waiting for a coordinator to publish a run to " +
+							config.queueDir);
+				waiting = true;
+				waitForQueue();
 				continue;
 			}
-			System.out.println("Packing bundle " + bundle.getBundleId());
 
-			for(AssetResolution resolution : bundle.getOutRes()) {
-				File resDir = new File(outputDir, resolution.getDirectory());
+			List<String> bundleIds = queue.getBundleIds(runId);
+			if(bundleIds == null)
+				continue; // replaced by a new run in the meantime
+
+			if(packRun(queue, runId, bundleIds) == 0 && queue.getRunId() == runId)
+				return; // the remaining tasks of the run are claimed by other processes
+		}
+	}
+
+	/**
+	 * Packs the pending bundles of a run of the queue with a {@link BundleScheduler}, like a
+	 * local pack. Each bundle is claimed when the scheduler starts it, so this process holds
+	 * at most as many tasks as it packs bundles at the same time.
+	 *
+	 * @param queue queue of the run
+	 * @param runId ID of the run
+	 * @param bundleIds IDs of the bundles of the run
+	 * @return amount of bundles claimed
+	 * @throws IOException if a bundle could not be claimed or packed
+	 */
+	private int packRun(BundleQueue queue, long runId, List<String> bundleIds) throws IOException {
+		List<AssetBundle> runBundles = new ArrayList<>();
+		for(String bundleId : bundleIds) {
+			AssetBundle bundle = null;
+			for(AssetBundle current : bundles)
+				if(current.getBundleId().equals(bundleId))
+					bundle = current;
+
+			if(bundle == null)
+				throw new IOException("Bundle " + bundleId +
+						" isn't in the bundle list of this worker");
+			runBundles.add(bundle);
+		}
+
+		AtomicInteger claimed = new AtomicInteger();
+		BundleScheduler scheduler = new BundleScheduler(runBundles, lastPacks, config.threads,
+				getMemoryBudget());
+
+		scheduler.run(bundleExecutor, bundle -> {
+			BundleQueue.Task task = queue.claim(runId, bundleIds.indexOf(bundle.getBundleId()),
+					bundle.getBundleId());
+			if(task == null)
+				return CompletableFuture.completedFuture(null); // claimed by another process
+			claimed.incrementAndGet();
+
+			CompletableFuture<BundleCacheEntry> packed;
+			try {
+				packed = packStaleBundle(bundle);
+			} catch(IOException | RuntimeException ex) {
+				task.close();
+				throw ex;
+			}
 
-				File outDir = new File(resDir, bundle.getOutPath());
-				File tmpFlat = new File(outDir, "tmp_f");
-				File tmpNormal = new File(outDir, "tmp_n");
-				File tmpPreshaded = new File(outDir, "tmp_p");
+			return packed.thenAccept(entry -> {
+				try {
+					if(!task.complete(entry))
+						System.out.println("Bundle " + bundle.getBundleId() + " was packed for a " +
+								"run of the queue which is over, its result is discarded");
+				} catch(IOException ex) {
+					throw new UncheckedIOException(ex);
+				}
+			}).whenComplete((result, ex) -> {
+				try {
+					task.close();
+				} catch(IOException closeEx) {
+					throw new UncheckedIOException(closeEx);
+				}
+			});
+		});
+		return claimed.get();
+	}
 
-				ensureDirectory(tmpFlat);
-				ensureDirectory(tmpNormal);
-				ensureDirectory(tmpPreshaded);
+	/**
+	 * @return bytes of memory the bundles packed at the same time may use, three quarters
+	 * of the heap, leaving room for everything else the packer keeps
+	 */
+	private static long getMemoryBudget() {
+		return Runtime.getRuntime().maxMemory() / 4L * 3L;
+	}
+
+	private static void waitForQueue() throws IOException {
+		try {
+			Thread.sleep(QUEUE_POLL_INTERVAL);
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for bundles", ex);
+		}
+	}
+
+	/**
+	 * Parses the bundle and pack lists, unless they were not modified since they were last
+	 * parsed
+	 *
+	 * @throws IOException if a list could not be read
+	 */
+	private void loadLists() throws IOException {
+		if(bundles != null
+				&& config.bundleFile.lastModified() == bundleListModified
+				&& config.packListFile.lastModified() == packListModified)
+			return;
+
+		bundleListModified = config.bundleFile.lastModified();
+		packListModified = config.packListFile.lastModified();
+		bundles = BundleList.parseFile(config.bundleFile);
+
+		targetsByBundle.clear();
+		for(PackTarget target : PackingList.parseFile(config.packListFile)) {
+			if(target.getBundleId() == null)
+				continue;
+
+			List<PackTarget> targets = targetsByBundle.get(target.getBundleId());
+			if(targets == null) {
+				targets = new ArrayList<>();
+				targetsByBundle.put(target.getBundleId(), targets);
+			}
+			targets.add(target);
+		}
+	}
+
+	private AssetBundle getBundle(String bundleId) {
+		for(AssetBundle bundle : bundles)
+			if(bundle.getBundleId().equals(bundleId))
+				return bundle;
+		throw new IllegalArgumentException("No bundle " + bundleId + " in " + config.bundleFile);
+	}
+
+	/**
+	 * @return pack targets of a bundle
+	 */
+	private List<PackTarget> getTargets(AssetBundle bundle) {
+		return targetsByBundle.get(bundle.getBundleId(), Collections.emptyList());
+	}
+
+	/**
+	 * Packs a stale bundle while holding its lock, unless another process sharing the cache
+	 * packed it while this one waited for the lock. The lock is held until the outputs of
+	 * the bundle are written.
+	 *
+	 * @param bundle bundle to pack
+	 * @return future of the cache entry of the bundle, completing once its outputs are
+	 * written
+	 * @throws IOException if the bundle could not be packed
+	 */
+	private CompletableFuture<BundleCacheEntry> packStaleBundle(AssetBundle bundle) throws IOException {
+		// processes sharing the cache wait for each other instead of packing a bundle twice
+		ProcessLock lock = ProcessLock.acquire(getBundleLockFile(bundle));
+		CompletableFuture<BundleCacheEntry> packed;
+		try {
+			packed = packLockedBundle(bundle);
+		} catch(IOException | RuntimeException ex) {
+			lock.close();
+			throw ex;
+		}
+
+		return packed.whenComplete((entry, ex) -> {
+			try {
+				lock.close();
+			} catch(IOException closeEx) {
+				throw new UncheckedIOException(closeEx);
+			}
+		});
+	}
+
+	private CompletableFuture<BundleCacheEntry> packLockedBundle(AssetBundle bundle) throws IOException {
+		List<PackTarget> targets = getTargets(bundle);
+		long lastModification = getLastModification(bundle);
+
+		BundleCacheEntry lastPack = null;
+		if(!resetCache)
+			synchronized(lastPacks) {
+				CacheFile.read(cacheFile, String.class, BundleCacheEntry.class, lastPacks);
+				lastPack = lastPacks.get(bundle.getBundleId());
+			}
+
+		if(!resetCache && isUpToDate(bundle, lastPack, lastModification, targets.size())) {
+			System.out.println("Bundle " + bundle.getBundleId() +
+					" was packed by another process");
+			return CompletableFuture.completedFuture(lastPack);
+		}
+
+		long start = System.currentTimeMillis();
+		List<CompletableFuture<?>> outputs = new ArrayList<>();
+		ObjectMap<File, PackLayout> layouts = new ObjectMap<>();
+		long inputPixels;
+		try {
+			inputPixels = packBundle(bundle, lastPack, outputs, layouts);
+		} catch(IOException | RuntimeException ex) {
+			// the lock isn't released while outputs of the bundle are still being written
+			OutputStage.awaitQuietly(outputs);
+			throw ex;
+		}
+
+		BundleCacheEntry previous = lastPack;
+		return CompletableFuture.allOf(outputs.toArray(new CompletableFuture[0])).thenApply(result -> {
+			try {
+				// only describes the pages once they are committed, patches would otherwise
+				// be applied to the pages of the previous pack
+				for(ObjectMap.Entry<File, PackLayout> layout : layouts) {
+					ensureDirectory(layout.key.getParentFile());
+					layout.value.writeFile(layout.key);
+				}
+
+				File manifestFile = getManifestFile(config.cacheDir, config.getCachePrefix(), bundle);
+				ensureDirectory(manifestFile.getParentFile());
+				OutputManifest.collect(bundle, targets, config.outputDir).writeFile(manifestFile);
+			} catch(IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+
+			// a patch says nothing of the cost of a full pack, the previous one is kept
+			if(inputPixels == -1L)
+				return new BundleCacheEntry(System.currentTimeMillis(), targets.size(),
+						previous.duration, previous.inputPixels);
+
+			long duration = System.currentTimeMillis() - start;
+			System.out.println("Packed bundle " + bundle.getBundleId() + " in " + duration + " ms");
+			return new BundleCacheEntry(System.currentTimeMillis(), targets.size(),
+					duration, inputPixels);
+		});
+	}
+
+	/**
+	 * @return bundles whose outputs aren't up to date with their pack targets
+	 */
+	private List<AssetBundle> getStaleBundles(List<AssetBundle> selected) {
+		List<AssetBundle> stale = new ArrayList<>();
+		for(AssetBundle bundle : selected) {
+			String reason = getStaleReason(bundle,
+					resetCache ? null : lastPacks.get(bundle.getBundleId()),
+					getLastModification(bundle), getTargets(bundle).size(), config.verifyOutputs);
+
+			if(reason != null) {
+				System.out.println("Bundle " + bundle.getBundleId() + " will be packed: " + reason);
+				stale.add(bundle);
+			}
+		}
+		return stale;
+	}
+
+	private static BundleCacheEntry getNewest(BundleCacheEntry current, BundleCacheEntry written) {
+		return written.lastModification > current.lastModification ? written : current;
+	}
+
+	/**
+	 * @return last modification of the inputs of a bundle, -1 if it has no pack target
+	 */
+	private long getLastModification(AssetBundle bundle) {
+		long lastModification = -1L;
+		for(PackTarget target : getTargets(bundle))
+			lastModification = Math.max(lastModification, target.lastModified(config.inputDir));
+		return lastModification;
+	}
+
+	/**
+	 * Packs a bundle at all of its resolutions, or patches its pages when possible
+	 *
+	 * @param bundle bundle to pack
+	 * @param lastPack cache entry of the last pack of the bundle, or null if there is none
+	 * @param outputs list to add the futures of the outputs being written to, the bundle is
+	 * packed once they all complete
+	 * @param layouts map to add the layouts to store by file to, written once the outputs
+	 * are complete
+	 * @return amount of pixels of the images packed over all resolutions, -1 if the bundle
+	 * was patched instead
+	 * @throws IOException if the bundle could not be packed
+	 */
+	private long packBundle(AssetBundle bundle,
+	                        BundleCacheEntry lastPack,
+	                        List<CompletableFuture<?>> outputs,
+	                        ObjectMap<File, PackLayout> layouts) throws IOException {
+		List<PackTarget> targets = getTargets(bundle);
+		File inputDir = config.inputDir, outputDir = config.outputDir, cacheDir = config.cacheDir;
+		int changedBefore = committer.getChangedFiles().size();
+		long inputPixels = 0L;
+
+		// the inputs may have changed since the targets were last prepared
+		for(PackTarget target : targets)
+			target.prepare(bundle, inputDir);
+
+		if(bundle.isStableLayout()
+				&& !bundle.isShaded()
+				&& !resetCache
+				&& lastPack != null
+				&& lastPack.lastTargetCount == targets.size()
+				&& isSameOutputSettings(bundle)
+				&& PagePatcher.patch(bundle, targets, inputDir, outputDir, cacheDir,
+						config.getCachePrefix(), lastPack.lastModification, committer, optimizer)) {
+			System.out.println("Patched bundle " + bundle.getBundleId() + ", changed " +
+					(committer.getChangedFiles().size() - changedBefore) + " output(s)");
+			return -1L;
+		}
+
+		System.out.println("Packing bundle " + bundle.getBundleId());
+
+		for(AssetResolution resolution : bundle.getOutRes()) {
+			File resDir = new File(outputDir, resolution.getDirectory());
+
+			File outDir = new File(resDir, bundle.getOutPath());
+			File tmpFlat = new File(outDir, "tmp_f");
+			File tmpNormal = new File(outDir, "tmp_n");
+			File tmpPreshaded = new File(outDir, "tmp_p");
+			File tmpOut = new File(outDir, "tmp_o");
+			List<CompletableFuture<?>> pending = new ArrayList<>();
+
+			ensureDirectory(tmpFlat);
+			ensureDirectory(tmpNormal);
+			ensureDirectory(tmpPreshaded);
+			ensureDirectory(tmpOut);
+
+			try {
+				// file copies are independent from each other, so they are made in parallel
+				try {
+					targets.parallelStream()
+							.filter(target -> target instanceof FilePackTarget)
+							.forEach(target -> {
+								try {
+									((FilePackTarget)target).copy(inputDir, outDir, committer);
+								} catch(IOException ex) {
+									throw new UncheckedIOException(ex);
+								}
+							});
+				} catch(UncheckedIOException ex) {
+					throw ex.getCause();
+				}
 
 				for(PackTarget target : targets)
-					if(Objects.equals(target.getBundleId(), bundle.getBundleId()))
-						target.process(bundle, resolution,
-								inputDir, tmpFlat, tmpNormal, tmpPreshaded);
-
-				Settings settings = new Settings();
-
-				settings.paddingX = bundle.getPaddingX();
-				settings.paddingY = bundle.getPaddingY();
-				settings.filterMin = bundle.getMinFilter();
-				settings.filterMag = bundle.getMagFilter();
-				settings.maxWidth = settings.maxHeight = resolution.getAtlasMaxSize();
-
-				if(bundle.getMaxWidth() != -1)
-					settings.maxWidth = bundle.getMaxWidth();
-				if(bundle.getMaxHeight() != -1)
-					settings.maxHeight = bundle.getMaxHeight();
-
-				settings.pot = bundle.isSquare();
-				settings.useIndexes = false;
-				settings.bleedIterations = 20;
-				settings.stripWhitespaceX = settings.stripWhitespaceY = true;
-				settings.square = bundle.isSquare();
-				settings.grid = bundle.isGrid();
-
-				String flatName = bundle.getAtlasName() != null
-						? bundle.isShaded() ? bundle.getAtlasName() + "_flat" : bundle.getAtlasName()
-						: bundle.isShaded() ? "flat" : outDir.getName();
+					if(!(target instanceof FilePackTarget))
+						target.process(bundle, resolution, inputDir, tmpFlat, tmpNormal, tmpPreshaded);
+
+				inputPixels += getPixelCount(tmpFlat) + getPixelCount(tmpNormal) +
+						getPixelCount(tmpPreshaded);
+
+				Settings settings = createSettings(bundle, resolution);
+				boolean sharedLayout = bundle.isShaded() && bundle.isSharedLayout();
+
+				// layers are drawn over the flat regions, which must keep their full size
+				if(sharedLayout) {
+					settings.stripWhitespaceX = settings.stripWhitespaceY = false;
+					settings.alias = false;
+				}
+
+				String flatName = getAtlasName(bundle, outDir, TextureType.FLAT);
 
 				MasterPackerFileProcessor processor = new MasterPackerFileProcessor(settings,
 						flatName, targets, bundle, inputDir);
+				File flatLayoutFile = getLayoutFile(cacheDir, config.getCachePrefix(),
+						bundle, resolution, TextureType.FLAT);
+
+				if(bundle.isStableLayout() && !resetCache)
+					processor.setPreviousLayout(PackLayout.readFile(flatLayoutFile));
 
 				try {
 					processor.setCurrentTextureType(TextureType.FLAT);
-					processor.process(tmpFlat, outDir);
+					processor.process(tmpFlat, tmpOut);
 
-					postProcessAtlas(inputDir, outDir, TextureType.FLAT, bundle, targets);
+					postProcessAtlas(tmpOut, flatName, TextureType.FLAT, bundle);
 				} catch(Exception ex) {
 					throw new IOException("Failed to pack", ex);
 				}
+				if(sharedLayout && processor.getLayout() != null) {
+					String preshadedName = getAtlasName(bundle, outDir, TextureType.PRESHADED);
+					SharedLayoutComposer.compose(processor.getLayout(), settings, tmpOut,
+							flatName, tmpPreshaded, preshadedName);
+					pending.add(outputStage.submit(() -> commitAtlas(bundle, tmpOut, outDir, preshadedName)));
+
+					String normalName = getAtlasName(bundle, outDir, TextureType.NORMAL);
+					SharedLayoutComposer.compose(processor.getLayout(), settings, tmpOut,
+							flatName, tmpNormal, normalName);
+					pending.add(outputStage.submit(() -> commitAtlas(bundle, tmpOut, outDir, normalName)));
+				}
+				pending.add(outputStage.submit(() -> commitAtlas(bundle, tmpOut, outDir, flatName)));
+
+				if(bundle.isStableLayout() && processor.getLayout() != null)
+					layouts.put(flatLayoutFile, processor.getLayout());
 
-				if(bundle.isShaded()) {
+				if(bundle.isShaded() && !sharedLayout) {
 					settings.stripWhitespaceX = settings.stripWhitespaceY = false;
 
+					String preshadedName = getAtlasName(bundle, outDir, TextureType.PRESHADED);
 					processor.setCurrentTextureType(TextureType.PRESHADED);
 					TexturePacker.process(settings, tmpPreshaded.getAbsolutePath(),
-							outDir.getAbsolutePath(),
-							bundle.getAtlasName() != null ? bundle.getAtlasName() + "_preshaded" : "preshaded");
+							tmpOut.getAbsolutePath(), preshadedName);
 
-					postProcessAtlas(inputDir, outDir, TextureType.PRESHADED, bundle, targets);
+					postProcessAtlas(tmpOut, preshadedName, TextureType.PRESHADED, bundle);
+					pending.add(outputStage.submit(() -> commitAtlas(bundle, tmpOut, outDir, preshadedName)));
 
 					settings.paddingX = settings.paddingY = 0;
 
+					String normalName = getAtlasName(bundle, outDir, TextureType.NORMAL);
 					processor.setCurrentTextureType(TextureType.NORMAL);
 					TexturePacker.process(settings, tmpNormal.getAbsolutePath(),
-							outDir.getAbsolutePath(),
-							bundle.getAtlasName() != null ? bundle.getAtlasName() + "_normal" : "normal");
+							tmpOut.getAbsolutePath(), normalName);
 
-					postProcessAtlas(inputDir, outDir, TextureType.NORMAL, bundle, targets);
+					postProcessAtlas(tmpOut, normalName, TextureType.NORMAL, bundle);
+					pending.add(outputStage.submit(() -> commitAtlas(bundle, tmpOut, outDir, normalName)));
 				}
-
-				for(File tmp : tmpFlat.listFiles())
-					tmp.delete();
-				for(File tmp : tmpNormal.listFiles())
-					tmp.delete();
-				for(File tmp : tmpPreshaded.listFiles())
-					tmp.delete();
-
-				tmpFlat.delete();
-				tmpNormal.delete();
-				tmpPreshaded.delete();
+			} finally {
+				// staging directories are only deleted once their outputs are written, which
+				// are awaited before releasing the bundle even if packing failed after some
+				// of them were submitted
+				outputs.add(CompletableFuture.allOf(pending.toArray(new CompletableFuture[0]))
+						.whenComplete((result, ex) -> {
+							for(File tmpDir : new File[] { tmpFlat, tmpNormal, tmpPreshaded, tmpOut }) {
+								File[] tmpFiles = tmpDir.listFiles();
+								if(tmpFiles != null)
+									for(File tmp : tmpFiles)
+										tmp.delete();
+								tmpDir.delete();
+							}
+						}));
 			}
-
-			lastPacks.put(bundle.getBundleId(), new BundleCacheEntry(System.currentTimeMillis(),
-					packTargetCount));
-		}
-
-		ensureDirectory(cacheDir);
-		try(OutputStream out = new BufferedOutputStream(new FileOutputStream(cacheFile))) {
-			writeMap(out, lastPacks);
 		}
+		return inputPixels;
 	}
 
-	private static boolean anyDestinationMissing(AssetBundle bundle,
-	                                             Iterable<PackTarget> targets,
-	                                             File baseDir,
-	                                             File inputDir) {
-		boolean hasFlatTarget = false;
-		boolean hasNormalTarget = false;
-		boolean hasPreshadedTarget = false;
-
-		for(PackTarget target : targets)
-			if(Objects.equals(target.getBundleId(), bundle.getBundleId())) {
-				for(AssetResolution resolution : bundle.getOutRes()) {
-					File resDir = new File(baseDir, resolution.getDirectory());
-					File outDir = new File(resDir, bundle.getOutPath());
-
-					if(target instanceof FilePackTarget) {
-						if(!((FilePackTarget)target)
-								.getDestinationFile(outDir)
-								.exists()) {
-							missingMessage("Destination of " + target, bundle);
-							return true;
-						}
-					} else if(target instanceof AtlasPackTarget || target instanceof TexturePackTarget) {
-						TextureType textureType = target instanceof AtlasPackTarget
-								? ((AtlasPackTarget)target).getTextureType()
-								: ((TexturePackTarget)target).getTextureType();
-						switch(textureType) {
-							case FLAT:
-								hasFlatTarget = true;
-								break;
-							case NORMAL:
-								hasNormalTarget = true;
-								break;
-							case PRESHADED:
-								hasPreshadedTarget = true;
-								break;
-						}
-					} else if(target instanceof DirectoryPackTarget) {
-						hasFlatTarget |= ((DirectoryPackTarget)target).hasFlatTexture(inputDir);
-						hasNormalTarget |= ((DirectoryPackTarget)target).hasNormalTexture(inputDir);
-						hasPreshadedTarget |= ((DirectoryPackTarget)target).hasPreshadedTexture(inputDir);
-					}
-				}
+	/**
+	 * @return amount of pixels of the images of a directory, read from their headers
+	 */
+	private static long getPixelCount(File dir) {
+		File[] files = dir.listFiles();
+		if(files == null)
+			return 0L;
+
+		long pixels = 0L;
+		for(File file : files) {
+			try {
+				int[] size = SharedLayoutComposer.readImageSize(file);
+				pixels += (long)size[0] * size[1];
+			} catch(IOException ex) {
+				// not an image, doesn't weigh on the pack
 			}
+		}
+		return pixels;
+	}
 
-		for(AssetResolution resolution : bundle.getOutRes()) {
-			File resDir = new File(baseDir, resolution.getDirectory());
-			File outDir = new File(resDir, bundle.getOutPath());
-
-			if(hasFlatTarget) {
-				String flatName = bundle.getAtlasName() != null
-						? bundle.isShaded()
-							? bundle.getAtlasName() + "_flat"
-							: bundle.getAtlasName()
-						: bundle.isShaded()
-							? "flat"
-							: outDir.getName();
-
-				if(!new File(outDir, flatName + ".atlas").exists()) {
-					missingMessage(flatName + ".atlas", bundle);
-					return true;
-				}
+	/**
+	 * Checks if the outputs of a bundle are up to date with its pack targets, only comparing
+	 * the size of the outputs
+	 *
+	 * @param bundle bundle to check
+	 * @param lastPack cache entry of the last pack of the bundle, or null if there is none
+	 * @param lastModification last modification of the inputs of the bundle, -1 if none
+	 * @param packTargetCount amount of pack targets of the bundle
+	 * @return true if the bundle doesn't need to be packed again
+	 */
+	private boolean isUpToDate(AssetBundle bundle,
+	                           BundleCacheEntry lastPack,
+	                           long lastModification,
+	                           int packTargetCount) {
+		return getStaleReason(bundle, lastPack, lastModification, packTargetCount, false) == null;
+	}
 
-				if(!new File(outDir, flatName + ".png").exists()) {
-					missingMessage(flatName + ".png", bundle);
-					return true;
-				}
-			}
+	/**
+	 * Finds why the outputs of a bundle aren't up to date with its pack targets
+	 *
+	 * @param bundle bundle to check
+	 * @param lastPack cache entry of the last pack of the bundle, or null if there is none
+	 * @param lastModification last modification of the inputs of the bundle, -1 if none
+	 * @param packTargetCount amount of pack targets of the bundle
+	 * @param verifyOutputs true to hash the outputs to detect the ones modified or corrupted
+	 * @return reason the bundle must be packed again, or null if it is up to date
+	 */
+	private String getStaleReason(AssetBundle bundle,
+	                              BundleCacheEntry lastPack,
+	                              long lastModification,
+	                              int packTargetCount,
+	                              boolean verifyOutputs) {
+		if(lastModification == -1L)
+			return "no pack target";
+		if(lastPack == null)
+			return "never packed";
+		if(lastPack.lastModification <= lastModification)
+			return "inputs modified";
+		if(lastPack.lastTargetCount != packTargetCount)
+			return "pack targets changed from " + lastPack.lastTargetCount + " to " + packTargetCount;
+
+		OutputManifest manifest = OutputManifest.readFile(getManifestFile(config.cacheDir, config.getCachePrefix(), bundle));
+		if(manifest == null)
+			return "no output manifest";
+		if(!manifest.getFingerprint().equals(bundle.getOutputFingerprint()))
+			return "output settings changed";
+		return manifest.verify(config.outputDir, verifyOutputs);
+	}
 
-			if(bundle.isShaded()) {
-				if(hasPreshadedTarget) {
-					String preshadedName = bundle.getAtlasName() != null
-							? bundle.getAtlasName() + "_preshaded" : "preshaded";
+	/**
+	 * @param bundle bundle to check
+	 * @return true if the last pack of the bundle was done with the same output settings,
+	 * so its pages can be patched instead of producing the outputs of the new settings
+	 */
+	private boolean isSameOutputSettings(AssetBundle bundle) {
+		OutputManifest manifest = OutputManifest.readFile(getManifestFile(config.cacheDir, config.getCachePrefix(), bundle));
+		return manifest != null && manifest.getFingerprint().equals(bundle.getOutputFingerprint());
+	}
 
+	/**
+	 * @param cacheDir cache directory of the master packer
+	 * @param cachePrefix prefix of the cache files of the bundle list, as bundles of
+	 * different lists sharing the cache directory can have the same ID
+	 * @param bundle bundle of the manifest
+	 * @return file listing the outputs of the last pack of the bundle
+	 */
+	public static File getManifestFile(File cacheDir, String cachePrefix, AssetBundle bundle) {
+		return new File(new File(cacheDir, "manifests"), cachePrefix + "-" +
+				Hash.sha256(bundle.getBundleId()).substring(0, 8) + ".manifest");
+	}
 
-					if(!new File(outDir, preshadedName + ".atlas").exists()) {
-						missingMessage(preshadedName + ".atlas", bundle);
-						return true;
-					}
+	/**
+	 * @param bundle bundle to lock
+	 * @return file locked while a bundle is packed, shared by the processes using the cache
+	 */
+	private File getBundleLockFile(AssetBundle bundle) {
+		String cacheName = cacheFile.getName().replace(".cache", "");
+		return new File(cacheFile.getParentFile(), cacheName + "-" + bundle.getBundleId() + ".lock");
+	}
 
-					if(!new File(outDir, preshadedName + ".png").exists()) {
-						missingMessage(preshadedName + ".png", bundle);
-						return true;
-					}
-				}
+	/**
+	 * Commits a packed atlas, quantizing its pages, encoding them to the KTX formats of the
+	 * bundle, writing its binary version and optimizing its PNG pages beforehand
+	 *
+	 * @param bundle bundle of the atlas
+	 * @param stagingDir directory in which the atlas was packed
+	 * @param outDir final output directory of the atlas
+	 * @param atlasName name of the atlas
+	 * @throws IOException if the pages could not be compressed or the outputs committed
+	 */
+	private void commitAtlas(AssetBundle bundle,
+	                         File stagingDir,
+	                         File outDir,
+	                         String atlasName) throws IOException {
+		PageQuantizer.quantizeAtlas(stagingDir, atlasName, bundle.getFormat());
+
+		TextureCompression[] formats = PageCompressor.getFormats(bundle);
+		for(TextureCompression compression : formats) {
+			String compressedName = PageCompressor.getCompressedName(atlasName, compression);
+			PageCompressor.compressAtlas(stagingDir, atlasName, compression, bundle.isMipmaps());
+			writeBinaryAtlas(bundle, stagingDir, compressedName);
+			committer.commitAtlas(stagingDir, outDir, compressedName);
+		}
 
-				if(hasNormalTarget) {
-					String normalName = bundle.getAtlasName() != null
-							? bundle.getAtlasName() + "_normal" : "normal";
+		// formats dropped since the previous pack
+		for(TextureCompression compression : TextureCompression.values)
+			if(!Arrays.asList(formats).contains(compression))
+				committer.removeAtlas(outDir,
+						PageCompressor.getCompressedName(atlasName, compression));
+		writeBinaryAtlas(bundle, stagingDir, atlasName);
 
-					if(!new File(outDir, normalName + ".atlas").exists()) {
-						missingMessage(normalName + ".atlas", bundle);
-						return true;
-					}
+		if(bundle.isOptimizePng())
+			optimizer.optimizeAtlas(stagingDir, outDir, atlasName);
+		committer.commitAtlas(stagingDir, outDir, atlasName);
+	}
 
-					if(!new File(outDir, normalName + ".png").exists()) {
-						missingMessage(normalName + ".png", bundle);
-						return true;
-					}
-				}
-			}
-		}
-		return false;
+	private static void writeBinaryAtlas(AssetBundle bundle,
+	                                     File atlasDir,
+	                                     String atlasName) throws IOException {
+		File atlas = new File(atlasDir, atlasName + ".atlas");
+		if(bundle.isBinaryAtlas() && atlas.exists())
+			BinaryAtlasWriter.write(atlas, new File(atlasDir, atlasName + ".atlasb"));
 	}
 
-	private static void missingMessage(String name, AssetBundle bundle) {
-		System.out.println(name + " is missing, thus bundle " + bundle.getBundleId() +
-				" will be repacked.");
+	/**
+	 * Creates the settings of the {@link TexturePacker} used to pack the flat atlas of a
+	 * bundle
+	 *
+	 * @param bundle bundle to pack
+	 * @param resolution resolution being packed
+	 * @return settings to pack the bundle with
+	 */
+	public static Settings createSettings(AssetBundle bundle, AssetResolution resolution) {
+		Settings settings = new Settings();
+
+		settings.paddingX = bundle.getPaddingX();
+		settings.paddingY = bundle.getPaddingY();
+		settings.filterMin = bundle.getMinFilter();
+		settings.filterMag = bundle.getMagFilter();
+		settings.maxWidth = settings.maxHeight = resolution.getAtlasMaxSize();
+
+		if(bundle.getMaxWidth() != -1)
+			settings.maxWidth = bundle.getMaxWidth();
+		if(bundle.getMaxHeight() != -1)
+			settings.maxHeight = bundle.getMaxHeight();
+
+		settings.pot = bundle.isSquare();
+		settings.useIndexes = false;
+		settings.bleedIterations = 20;
+		settings.stripWhitespaceX = settings.stripWhitespaceY = true;
+		settings.square = bundle.isSquare();
+		settings.grid = bundle.isGrid();
+		settings.format = bundle.getFormat().getPixmapFormat();
+		return settings;
 	}
 
-	private static void postProcessAtlas(File inputDir,
-	                                     File outDir,
-	                                     TextureType textureType,
-	                                     AssetBundle bundle,
-	                                     List<PackTarget> targets) throws IOException {
-		String name;
+	/**
+	 * Retrieves the file in which the layout of an atlas is stored between packs
+	 *
+	 * @param cacheDir cache directory of the master packer
+	 * @param cachePrefix prefix of the cache files of the bundle list
+	 * @param bundle bundle of the atlas
+	 * @param resolution resolution of the atlas
+	 * @param textureType type of texture of the atlas
+	 * @return file storing the layout of the atlas
+	 */
+	public static File getLayoutFile(File cacheDir,
+	                                 String cachePrefix,
+	                                 AssetBundle bundle,
+	                                 AssetResolution resolution,
+	                                 TextureType textureType) {
+		return new File(new File(cacheDir, "layouts"), cachePrefix + "-" +
+				Hash.sha256(bundle.getBundleId()).substring(0, 8) + "-" +
+						resolution.name().substring(1).toLowerCase(Locale.ROOT) + "-" +
+						textureType.name().toLowerCase(Locale.ROOT) + ".layout");
+	}
 
+	/**
+	 * Retrieves the name of the atlas to output for a given texture type
+	 *
+	 * @param bundle bundle being packed
+	 * @param outDir output directory of the bundle at the resolution being packed
+	 * @param textureType type of texture of the atlas
+	 * @return name of the atlas, without extension
+	 */
+	public static String getAtlasName(AssetBundle bundle, File outDir, TextureType textureType) {
 		switch(textureType) {
 			case FLAT:
-				name = bundle.getAtlasName() != null
-					? bundle.isShaded() ? bundle.getAtlasName() + "_flat" : bundle.getAtlasName()
-					: bundle.isShaded() ? "flat" : outDir.getName();
-				break;
+				return bundle.getAtlasName() != null
+						? bundle.isShaded() ? bundle.getAtlasName() + "_flat" : bundle.getAtlasName()
+						: bundle.isShaded() ? "flat" : outDir.getName();
 			case NORMAL:
-				name = bundle.getAtlasName() != null
+				return bundle.getAtlasName() != null
 						? bundle.getAtlasName() + "_normal" : "normal";
-				break;
 			case PRESHADED:
-				name = bundle.getAtlasName() != null
+				return bundle.getAtlasName() != null
 						? bundle.getAtlasName() + "_preshaded" : "preshaded";
-				break;
 
 			default:
 				throw new IllegalArgumentException("Unrecognized texture type: " + textureType);
 		}
+	}
 
-		File atlas = new File(outDir, name + ".atlas");
+	private void postProcessAtlas(File atlasDir,
+	                              String name,
+	                              TextureType textureType,
+	                              AssetBundle bundle) throws IOException {
+		File inputDir = config.inputDir;
+		List<PackTarget> targets = getTargets(bundle);
+		File atlas = new File(atlasDir, name + ".atlas");
 
 		if(!atlas.exists())
 			return;
@@ -311,16 +934,19 @@ public class MasterPacker {
 		List<String> atlasContent = Files.readAllLines(atlas.toPath());
 
 		for(PackTarget target : targets)
-			if(Objects.equals(target.getBundleId(), bundle.getBundleId()))
-				target.postProcessAtlas(bundle, inputDir, atlasContent, textureType);
-
-		if(!atlas.delete() || !atlas.createNewFile())
-			throw new IOException("Failed to delete and recreate atlas file " + name +
-					".atlas for bundle " + bundle.getBundleId());
-		FileWriter writer = new FileWriter(atlas);
+			target.postProcessAtlas(bundle, inputDir, atlasContent, textureType);
 
-		writer.write(StringUtil.join(atlasContent, "\n"));
-		writer.close();
+		PolygonMesher.addMeshes(atlasDir, atlasContent, regionName -> {
+			for(PackTarget target : targets)
+				if(target.getPolygonVertices() > 0
+						&& target.matches(bundle, textureType, inputDir, regionName))
+					return target.getPolygonVertices();
+			return 0;
+		});
+
+		try(FileWriter writer = new FileWriter(atlas)) {
+			writer.write(StringUtil.join(atlasContent, "\n"));
+		}
 	}
 
 }
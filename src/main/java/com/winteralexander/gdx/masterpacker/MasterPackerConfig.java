@@ -0,0 +1,136 @@
+package com.winteralexander.gdx.masterpacker;
+
+import com.winteralexander.gdx.utils.Hash;
+
+import java.io.File;
+
+import static com.winteralexander.gdx.utils.CLIUtil.getParamValue;
+import static com.winteralexander.gdx.utils.ObjectUtil.firstNonNull;
+import static com.winteralexander.gdx.utils.math.NumberUtil.tryParseFloat;
+import static com.winteralexander.gdx.utils.math.NumberUtil.tryParseInt;
+import static com.winteralexander.gdx.utils.math.NumberUtil.tryParseLong;
+
+/**
+ * Configuration of a {@link MasterPacker}, either filled in by code embedding the packer or
+ * parsed from the command line arguments with {@link #fromArgs(String...)}
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class MasterPackerConfig {
+	public File bundleFile = new File("bundles.bundlelist");
+	public File packListFile = new File("assets.packlist");
+	public File inputDir = new File("client/assets/gfx_src");
+	public File outputDir = new File("client/assets");
+	public File cacheDir = new File("build");
+
+	/**
+	 * Ignores the previous packs on the first pack of the packer, packing every bundle
+	 */
+	public boolean resetCache = false;
+
+	/**
+	 * Hashes the outputs of the bundles to detect the ones modified or corrupted, instead
+	 * of only comparing their size to the last pack
+	 */
+	public boolean verifyOutputs = false;
+
+	/**
+	 * Amount of bundles packed at the same time at most
+	 */
+	public int threads = 1;
+
+	/**
+	 * Time in milliseconds after which the PNG optimizer starts no new attempt on a page
+	 */
+	public long pngTimeBudget = 10000L;
+
+	/**
+	 * Maximum total size of the processed images kept in memory between bundles
+	 */
+	public long imageCacheBytes = ProcessedImageCache.DEFAULT_MAX_BYTES;
+
+	/**
+	 * Maximum video memory used by all bundles at a resolution in bytes, -1 if unlimited
+	 */
+	public long vramBudget = -1L;
+
+	/**
+	 * File the video memory report is written to, or null for a file in the cache directory
+	 */
+	public File vramReportFile = null;
+
+	/**
+	 * Directory of the bundle queue shared with other packers, or null to pack alone
+	 */
+	public File queueDir = null;
+
+	/**
+	 * True to only pack bundles published in the queue by a coordinator, false to be the
+	 * coordinator publishing them
+	 */
+	public boolean worker = false;
+
+	/**
+	 * Parses the configuration from command line arguments
+	 *
+	 * @param args arguments of the master packer
+	 * @return configuration parsed, with default values for missing arguments
+	 */
+	public static MasterPackerConfig fromArgs(String... args) {
+		MasterPackerConfig config = new MasterPackerConfig();
+
+		config.bundleFile = new File(firstNonNull(getParamValue(args, "--bundle-list", "-b"),
+				config.bundleFile.getPath()));
+		config.packListFile = new File(firstNonNull(getParamValue(args, "--pack-list", "-p"),
+				config.packListFile.getPath()));
+		config.inputDir = new File(firstNonNull(getParamValue(args, "--input-dir", "-i"),
+				config.inputDir.getPath()));
+		config.outputDir = new File(firstNonNull(getParamValue(args, "--output-dir", "-o"),
+				config.outputDir.getPath()));
+		config.cacheDir = new File(firstNonNull(getParamValue(args, "--cache-dir", "-c"),
+				config.cacheDir.getPath()));
+
+		config.resetCache = getParamValue(args, "--reset-cache", "-r") != null;
+		config.verifyOutputs = getParamValue(args, "--verify-outputs") != null;
+		config.threads = tryParseInt(getParamValue(args, "--threads"), config.threads);
+		config.pngTimeBudget = tryParseLong(getParamValue(args, "--png-time-budget"),
+				config.pngTimeBudget);
+		config.imageCacheBytes = tryParseLong(getParamValue(args, "--image-cache-mb"),
+				config.imageCacheBytes / 1024L / 1024L) * 1024L * 1024L;
+
+		float vramBudgetMb = tryParseFloat(getParamValue(args, "--vram-budget"), -1f);
+		config.vramBudget = vramBudgetMb < 0f ? -1L : (long)(vramBudgetMb * 1024L * 1024L);
+
+		String vramReport = getParamValue(args, "--vram-report");
+		config.vramReportFile = vramReport == null ? null : new File(vramReport);
+
+		String queueDir = getParamValue(args, "--worker", "--coordinator");
+		config.queueDir = queueDir == null ? null : new File(queueDir);
+		config.worker = getParamValue(args, "--worker") != null;
+		return config;
+	}
+
+	/**
+	 * @return prefix of the files the packer stores in the cache directory for this bundle
+	 * list, so packers of different bundle lists can share a cache directory
+	 */
+	String getCachePrefix() {
+		return Hash.sha256(bundleFile.getAbsolutePath()).substring(0, 8);
+	}
+
+	File getCacheFile() {
+		return new File(cacheDir, "packer-v2-" + getCachePrefix() + ".cache");
+	}
+
+	File getPngCacheFile() {
+		return new File(cacheDir, "png-" + getCachePrefix() + ".cache");
+	}
+
+	File getVramReportFile() {
+		return vramReportFile != null
+				? vramReportFile
+				: new File(cacheDir, "vram-" + getCachePrefix() + ".csv");
+	}
+}
@@ -23,6 +23,8 @@ public class MasterPackerFileProcessor extends TexturePackerFileProcessor {
 	private final File inputDir;
 
 	private TextureType currentTextureType = null;
+	private PackLayout previousLayout = null;
+	private PackLayout layout = null;
 
 	public MasterPackerFileProcessor(TexturePacker.Settings defaultSettings,
 	                                 String packFileName,
@@ -50,12 +52,19 @@ public class MasterPackerFileProcessor extends TexturePackerFileProcessor {
 						currentTextureType, inputDir);
 			}
 		};
-		TexturePacker.Packer oldPacker = ReflectionUtil.get(packer, "packer");
+		TexturePacker.Packer defaultPacker = bundle.isParallelPacking() && !settings.grid
+				? new ParallelMaxRectsPacker(settings)
+				: ReflectionUtil.get(packer, "packer");
+		TexturePacker.Packer oldPacker = bundle.isStableLayout() && !settings.grid
+				? new StableLayoutPacker(settings, previousLayout,
+						bundle.getRepackThreshold(), defaultPacker)
+				: defaultPacker;
 		packer.setPacker(new TexturePacker.Packer() {
 			@Override
 			public Array<TexturePacker.Page> pack(Array<TexturePacker.Rect> array) {
 				rects.addAll(array);
 				pages = oldPacker.pack(array);
+				layout = PackLayout.of(pages);
 				return pages;
 			}
 
@@ -64,6 +73,7 @@ public class MasterPackerFileProcessor extends TexturePackerFileProcessor {
 			                                      Array<TexturePacker.Rect> array) {
 				rects.addAll(array);
 				pages = oldPacker.pack(progressListener, array);
+				layout = PackLayout.of(pages);
 				return pages;
 			}
 		});
@@ -71,6 +81,9 @@ public class MasterPackerFileProcessor extends TexturePackerFileProcessor {
 			@Override
 			public void start(float portion) {
 				if(portion == 0.01f) {
+					if(layout != null)
+						layout.setPlacement(pages, settings);
+
 					for(TexturePacker.Page page : pages) {
 						for(TexturePacker.Rect rect : page.outputRects) {
 							TexturePacker.Rect matching = null;
@@ -106,4 +119,21 @@ public class MasterPackerFileProcessor extends TexturePackerFileProcessor {
 	public void setCurrentTextureType(TextureType currentTextureType) {
 		this.currentTextureType = currentTextureType;
 	}
+
+	/**
+	 * Sets the layout of the previous pack, used to keep regions in place when the bundle
+	 * has a stable layout
+	 *
+	 * @param previousLayout layout of the previous pack, or null if there is none
+	 */
+	public void setPreviousLayout(PackLayout previousLayout) {
+		this.previousLayout = previousLayout;
+	}
+
+	/**
+	 * @return layout computed by the last pack, or null if nothing was packed
+	 */
+	public PackLayout getLayout() {
+		return layout;
+	}
 }
@@ -0,0 +1,203 @@
+package com.winteralexander.gdx.masterpacker;
+
+import com.badlogic.gdx.tools.texturepacker.MaxRectsPacker.FreeRectChoiceHeuristic;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+
+/**
+ * A single bin of the maximal rectangles algorithm, tracking the free space left in a page
+ * of fixed size. Unlike libGDX's MaxRectsPacker, rectangles can also be placed at a fixed
+ * position, which allows seeding a page with a previous layout.
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class MaxRectsBin {
+	private final int width, height;
+	private final List<Rectangle> freeRects = new ArrayList<>();
+	private final List<Rectangle> usedRects = new ArrayList<>();
+	private long usedArea = 0L;
+
+	public MaxRectsBin(int width, int height) {
+		this.width = width;
+		this.height = height;
+		freeRects.add(new Rectangle(0, 0, width, height));
+	}
+
+	/**
+	 * Marks an area at a fixed position of the bin as used, if it is free
+	 *
+	 * @param x x position of the area
+	 * @param y y position of the area
+	 * @param rectWidth width of the area
+	 * @param rectHeight height of the area
+	 * @return true if the area was free and is now used, false if it was out of the bin or
+	 * overlapped used space
+	 */
+	public boolean occupy(int x, int y, int rectWidth, int rectHeight) {
+		Rectangle rect = new Rectangle(x, y, rectWidth, rectHeight);
+
+		if(x < 0 || y < 0 || x + rectWidth > width || y + rectHeight > height)
+			return false;
+
+		for(Rectangle used : usedRects)
+			if(used.intersects(rect))
+				return false;
+
+		place(rect);
+		return true;
+	}
+
+	/**
+	 * Finds a free position for a rectangle of specified size and marks it as used
+	 *
+	 * @param rectWidth width of the rectangle to insert
+	 * @param rectHeight height of the rectangle to insert
+	 * @param heuristic heuristic used to choose amongst free positions
+	 * @return position the rectangle was inserted at, or null if it does not fit
+	 */
+	public Rectangle insert(int rectWidth, int rectHeight, FreeRectChoiceHeuristic heuristic) {
+		ensureNotNull(heuristic, "heuristic");
+		Rectangle best = null;
+		long bestScore1 = Long.MAX_VALUE, bestScore2 = Long.MAX_VALUE;
+
+		for(Rectangle free : freeRects) {
+			if(free.width < rectWidth || free.height < rectHeight)
+				continue;
+
+			int leftoverX = free.width - rectWidth;
+			int leftoverY = free.height - rectHeight;
+			long score1, score2;
+
+			switch(heuristic) {
+				case BestShortSideFit:
+					score1 = Math.min(leftoverX, leftoverY);
+					score2 = Math.max(leftoverX, leftoverY);
+					break;
+				case BestLongSideFit:
+					score1 = Math.max(leftoverX, leftoverY);
+					score2 = Math.min(leftoverX, leftoverY);
+					break;
+				case BestAreaFit:
+					score1 = (long)free.width * free.height - (long)rectWidth * rectHeight;
+					score2 = Math.min(leftoverX, leftoverY);
+					break;
+				case BottomLeftRule:
+					score1 = free.y + rectHeight;
+					score2 = free.x;
+					break;
+				case ContactPointRule:
+					score1 = -contactPointScore(free.x, free.y, rectWidth, rectHeight);
+					score2 = 0;
+					break;
+				default:
+					throw new IllegalArgumentException("Unsupported heuristic: " + heuristic);
+			}
+
+			if(score1 < bestScore1 || score1 == bestScore1 && score2 < bestScore2) {
+				best = new Rectangle(free.x, free.y, rectWidth, rectHeight);
+				bestScore1 = score1;
+				bestScore2 = score2;
+			}
+		}
+
+		if(best != null)
+			place(best);
+		return best;
+	}
+
+	private void place(Rectangle rect) {
+		List<Rectangle> created = new ArrayList<>();
+
+		for(int i = freeRects.size(); i --> 0; ) {
+			Rectangle free = freeRects.get(i);
+			if(!free.intersects(rect))
+				continue;
+
+			freeRects.remove(i);
+
+			if(rect.x > free.x)
+				created.add(new Rectangle(free.x, free.y, rect.x - free.x, free.height));
+			if(rect.x + rect.width < free.x + free.width)
+				created.add(new Rectangle(rect.x + rect.width, free.y,
+						free.x + free.width - rect.x - rect.width, free.height));
+			if(rect.y > free.y)
+				created.add(new Rectangle(free.x, free.y, free.width, rect.y - free.y));
+			if(rect.y + rect.height < free.y + free.height)
+				created.add(new Rectangle(free.x, rect.y + rect.height,
+						free.width, free.y + free.height - rect.y - rect.height));
+		}
+
+		freeRects.addAll(created);
+		pruneFreeRects();
+
+		usedRects.add(rect);
+		usedArea += (long)rect.width * rect.height;
+	}
+
+	private void pruneFreeRects() {
+		for(int i = 0; i < freeRects.size(); i++)
+			for(int j = i + 1; j < freeRects.size(); j++) {
+				Rectangle a = freeRects.get(i);
+				Rectangle b = freeRects.get(j);
+
+				if(b.contains(a)) {
+					freeRects.remove(i);
+					i--;
+					break;
+				}
+
+				if(a.contains(b)) {
+					freeRects.remove(j);
+					j--;
+				}
+			}
+	}
+
+	private int contactPointScore(int x, int y, int rectWidth, int rectHeight) {
+		int score = 0;
+
+		if(x == 0 || x + rectWidth == width)
+			score += rectHeight;
+		if(y == 0 || y + rectHeight == height)
+			score += rectWidth;
+
+		for(Rectangle used : usedRects) {
+			if(used.x == x + rectWidth || used.x + used.width == x)
+				score += commonInterval(used.y, used.y + used.height, y, y + rectHeight);
+			if(used.y == y + rectHeight || used.y + used.height == y)
+				score += commonInterval(used.x, used.x + used.width, x, x + rectWidth);
+		}
+		return score;
+	}
+
+	private static int commonInterval(int start1, int end1, int start2, int end2) {
+		if(end1 < start2 || end2 < start1)
+			return 0;
+		return Math.min(end1, end2) - Math.max(start1, start2);
+	}
+
+	/**
+	 * @return ratio of the area of the bin used by rectangles
+	 */
+	public float getOccupancy() {
+		return (float)usedArea / ((long)width * height);
+	}
+
+	public long getUsedArea() {
+		return usedArea;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+}
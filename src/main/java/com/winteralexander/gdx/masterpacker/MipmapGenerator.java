@@ -0,0 +1,132 @@
+package com.winteralexander.gdx.masterpacker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+
+/**
+ * Computes the mipmap chain of a page while keeping its regions apart. Every pixel of a
+ * level belongs to a single region, or to the padding between regions, and is only averaged
+ * from pixels of the previous level belonging to the same one, so regions do not bleed into
+ * their neighbours as the page gets smaller.
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class MipmapGenerator {
+	/**
+	 * Region id of pixels outside of every region
+	 */
+	public static final int NO_REGION = -1;
+
+	/**
+	 * Generates every level of a page down to 1x1
+	 *
+	 * @param pixels pixels of the page in ARGB8888, row by row
+	 * @param regionIds id of the region of every pixel, or {@link #NO_REGION}
+	 * @param width width of the page
+	 * @param height height of the page
+	 * @return pixels of every level, starting with the page itself
+	 */
+	public static List<int[]> generate(int[] pixels, int[] regionIds, int width, int height) {
+		ensureNotNull(pixels, "pixels");
+		ensureNotNull(regionIds, "regionIds");
+
+		List<int[]> levels = new ArrayList<>();
+		levels.add(pixels);
+
+		while(width > 1 || height > 1) {
+			int nextWidth = Math.max(1, width / 2);
+			int nextHeight = Math.max(1, height / 2);
+			int[] nextPixels = new int[nextWidth * nextHeight];
+			int[] nextIds = new int[nextWidth * nextHeight];
+
+			int[] sourcePixels = pixels, sourceIds = regionIds;
+			int sourceWidth = width, sourceHeight = height;
+
+			IntStream.range(0, nextHeight).parallel().forEach(y -> {
+				int[] samples = new int[4];
+				int[] ids = new int[4];
+
+				for(int x = 0; x < nextWidth; x++) {
+					for(int i = 0; i < 4; i++) {
+						int sx = Math.min(x * 2 + i % 2, sourceWidth - 1);
+						int sy = Math.min(y * 2 + i / 2, sourceHeight - 1);
+						samples[i] = sourcePixels[sy * sourceWidth + sx];
+						ids[i] = sourceIds[sy * sourceWidth + sx];
+					}
+
+					int id = majorityId(ids);
+					nextIds[y * nextWidth + x] = id;
+					nextPixels[y * nextWidth + x] = average(samples, ids, id);
+				}
+			});
+
+			levels.add(nextPixels);
+			pixels = nextPixels;
+			regionIds = nextIds;
+			width = nextWidth;
+			height = nextHeight;
+		}
+		return levels;
+	}
+
+	/**
+	 * Picks the region most represented amongst samples, regions winning ties against
+	 * padding so that small regions don't vanish before the last levels
+	 */
+	private static int majorityId(int[] ids) {
+		int best = ids[0], bestCount = 0;
+		for(int i = 0; i < ids.length; i++) {
+			int count = 0;
+			for(int id : ids)
+				if(id == ids[i])
+					count++;
+
+			if(count > bestCount || count == bestCount && best == NO_REGION) {
+				best = ids[i];
+				bestCount = count;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Averages the samples of a region, weighting colors by alpha so transparent pixels
+	 * don't darken edges
+	 */
+	private static int average(int[] samples, int[] ids, int id) {
+		long alpha = 0L, red = 0L, green = 0L, blue = 0L;
+		long plainRed = 0L, plainGreen = 0L, plainBlue = 0L;
+		int count = 0;
+
+		for(int i = 0; i < samples.length; i++) {
+			if(ids[i] != id)
+				continue;
+
+			int a = samples[i] >>> 24;
+			int r = samples[i] >> 16 & 0xFF, g = samples[i] >> 8 & 0xFF, b = samples[i] & 0xFF;
+			alpha += a;
+			red += r * a;
+			green += g * a;
+			blue += b * a;
+			plainRed += r;
+			plainGreen += g;
+			plainBlue += b;
+			count++;
+		}
+
+		if(alpha == 0L)
+			return (int)((plainRed + count / 2) / count) << 16
+					| (int)((plainGreen + count / 2) / count) << 8
+					| (int)((plainBlue + count / 2) / count);
+
+		return (int)((alpha + count / 2) / count) << 24
+				| (int)((red + alpha / 2) / alpha) << 16
+				| (int)((green + alpha / 2) / alpha) << 8
+				| (int)((blue + alpha / 2) / alpha);
+	}
+}
@@ -0,0 +1,172 @@
+package com.winteralexander.gdx.masterpacker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Moves outputs staged in a temporary directory to their final location, leaving
+ * untouched the outputs whose content did not change so that their modification date
+ * does not trigger downstream rebuilds
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class OutputCommitter {
+	private final List<File> changedFiles = Collections.synchronizedList(new ArrayList<>());
+	private final List<File> removedFiles = Collections.synchronizedList(new ArrayList<>());
+
+	/**
+	 * Commits the atlas of specified name and all of its pages from the staging directory
+	 * to the output directory. Pages of a previous pack of this atlas which were not
+	 * produced anymore are deleted.
+	 *
+	 * @param stagingDir directory in which the atlas was packed
+	 * @param outDir final output directory of the atlas
+	 * @param atlasName name of the atlas, without extension
+	 * @throws IOException if a file could not be moved or deleted
+	 */
+	public void commitAtlas(File stagingDir, File outDir, String atlasName) throws IOException {
+		ensureNotNull(stagingDir, "stagingDir");
+		ensureNotNull(outDir, "outDir");
+		ensureNotNull(atlasName, "atlasName");
+
+		Pattern pattern = getAtlasOutputPattern(atlasName);
+		Set<String> produced = new HashSet<>();
+
+		File[] staged = stagingDir.listFiles();
+		if(staged != null)
+			for(File file : staged)
+				if(file.isFile() && pattern.matcher(file.getName()).matches()) {
+					produced.add(file.getName());
+					commit(file, new File(outDir, file.getName()));
+				}
+
+		deleteStale(outDir, pattern, produced);
+	}
+
+	/**
+	 * Deletes every output of the atlas of specified name from the output directory, used
+	 * when the bundle stops producing that atlas, such as a compressed format no longer
+	 * requested
+	 *
+	 * @param outDir output directory of the atlas
+	 * @param atlasName name of the atlas, without extension
+	 * @throws IOException if a file could not be deleted
+	 */
+	public void removeAtlas(File outDir, String atlasName) throws IOException {
+		ensureNotNull(outDir, "outDir");
+		ensureNotNull(atlasName, "atlasName");
+
+		deleteStale(outDir, getAtlasOutputPattern(atlasName), Collections.emptySet());
+	}
+
+	private void deleteStale(File outDir, Pattern pattern, Set<String> produced) throws IOException {
+		File[] existing = outDir.listFiles();
+		if(existing != null)
+			for(File file : existing)
+				if(file.isFile()
+						&& pattern.matcher(file.getName()).matches()
+						&& !produced.contains(file.getName())) {
+					if(!file.delete())
+						throw new IOException("Failed to delete stale output " + file);
+					removedFiles.add(file);
+				}
+	}
+
+	/**
+	 * Commits a single staged file to its destination. If the destination already has
+	 * the same content, the staged file is discarded and the destination is left alone.
+	 *
+	 * @param staged staged file to commit
+	 * @param destination final location of the file
+	 * @return true if the destination was changed, otherwise false
+	 * @throws IOException if the file could not be moved
+	 */
+	public boolean commit(File staged, File destination) throws IOException {
+		if(destination.isFile()
+				&& destination.length() == staged.length()
+				&& hash(destination).equals(hash(staged))) {
+			Files.delete(staged.toPath());
+			return false;
+		}
+
+		try {
+			Files.move(staged.toPath(), destination.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+		} catch(AtomicMoveNotSupportedException ex) {
+			Files.move(staged.toPath(), destination.toPath(), REPLACE_EXISTING);
+		}
+		changedFiles.add(destination);
+		return true;
+	}
+
+	/**
+	 * @return outputs that were written or replaced since the creation of this committer
+	 */
+	public List<File> getChangedFiles() {
+		return Collections.unmodifiableList(changedFiles);
+	}
+
+	/**
+	 * @return stale outputs that were deleted since the creation of this committer
+	 */
+	public List<File> getRemovedFiles() {
+		return Collections.unmodifiableList(removedFiles);
+	}
+
+	/**
+	 * Creates a pattern matching every file TexturePacker outputs for an atlas of specified
+	 * name, that is its text and binary pack files and its pages, in PNG (name.png,
+	 * name2.png, ...) or KTX (name.ktx, name_2.ktx, ...)
+	 *
+	 * @param atlasName name of the atlas
+	 * @return pattern matching file names of the outputs of that atlas
+	 */
+	public static Pattern getAtlasOutputPattern(String atlasName) {
+		return Pattern.compile(Pattern.quote(atlasName) +
+				"(\\d*\\.png|(_\\d+)?\\.ktx|\\.atlasb?)");
+	}
+
+	/**
+	 * Computes the SHA-256 of the content of a file
+	 *
+	 * @param file file to hash
+	 * @return hexadecimal representation of the hash
+	 * @throws IOException if the file could not be read
+	 */
+	public static String hash(File file) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch(NoSuchAlgorithmException ex) {
+			throw new IllegalStateException("SHA-256 is not supported on this platform", ex);
+		}
+
+		byte[] buffer = new byte[64 * 1024];
+		try(InputStream input = Files.newInputStream(file.toPath())) {
+			int read;
+			while((read = input.read(buffer)) != -1)
+				digest.update(buffer, 0, read);
+		}
+
+		StringBuilder sb = new StringBuilder();
+		for(byte b : digest.digest())
+			sb.append(String.format("%02x", b & 0xFF));
+		return sb.toString();
+	}
+}
@@ -0,0 +1,214 @@
+package com.winteralexander.gdx.masterpacker;
+
+import com.winteralexander.gdx.utils.io.Serializable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+
+/**
+ * Lists the outputs of the last pack of a bundle with their size and hash, so checking the
+ * outputs are still there only has to look at the files listed instead of deriving them
+ * from the pack targets again. Every page of the atlases is listed, not only the first. The
+ * manifest also keeps the {@link AssetBundle#getOutputFingerprint() output fingerprint} of
+ * the bundle, since outputs a new setting would produce aren't listed.
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class OutputManifest implements Serializable {
+	private static final int VERSION = 2;
+
+	private final List<Output> outputs = new ArrayList<>();
+	private String fingerprint = "";
+
+	/**
+	 * Lists the outputs of a bundle currently in the output directory
+	 *
+	 * @param bundle bundle which was packed
+	 * @param targets all pack targets
+	 * @param outputDir output directory of the master packer
+	 * @return manifest of the outputs of the bundle
+	 * @throws IOException if an output could not be hashed
+	 */
+	public static OutputManifest collect(AssetBundle bundle,
+	                                     List<PackTarget> targets,
+	                                     File outputDir) throws IOException {
+		ensureNotNull(bundle, "bundle");
+		ensureNotNull(targets, "targets");
+		ensureNotNull(outputDir, "outputDir");
+
+		OutputManifest manifest = new OutputManifest();
+		manifest.fingerprint = bundle.getOutputFingerprint();
+
+		for(AssetResolution resolution : bundle.getOutRes()) {
+			File resDir = new File(outputDir, resolution.getDirectory());
+			File outDir = new File(resDir, bundle.getOutPath());
+
+			for(PackTarget target : targets)
+				if(Objects.equals(target.getBundleId(), bundle.getBundleId())
+						&& target instanceof FilePackTarget) {
+					File destination = ((FilePackTarget)target).getDestinationFile(outDir);
+					if(destination.isFile())
+						manifest.add(outputDir, destination);
+				}
+
+			List<Pattern> patterns = new ArrayList<>();
+			for(TextureType textureType : TextureType.values) {
+				if(textureType != TextureType.FLAT && !bundle.isShaded())
+					continue;
+
+				String atlasName = MasterPacker.getAtlasName(bundle, outDir, textureType);
+				patterns.add(OutputCommitter.getAtlasOutputPattern(atlasName));
+				for(TextureCompression compression : PageCompressor.getFormats(bundle))
+					patterns.add(OutputCommitter.getAtlasOutputPattern(
+							PageCompressor.getCompressedName(atlasName, compression)));
+			}
+
+			File[] files = outDir.listFiles();
+			if(files == null)
+				continue;
+
+			for(File file : files)
+				for(Pattern pattern : patterns)
+					if(file.isFile() && pattern.matcher(file.getName()).matches()) {
+						manifest.add(outputDir, file);
+						break;
+					}
+		}
+		return manifest;
+	}
+
+	private void add(File outputDir, File file) throws IOException {
+		outputs.add(new Output(outputDir.toURI().relativize(file.toURI()).getPath(),
+				file.length(), OutputCommitter.hash(file)));
+	}
+
+	/**
+	 * @return output fingerprint of the bundle when it was packed
+	 */
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * Checks every output of the manifest is still in the output directory, in parallel
+	 *
+	 * @param outputDir output directory of the master packer
+	 * @param checkHashes true to also hash the outputs to detect the ones modified or
+	 * corrupted, otherwise only their size is compared
+	 * @return description of the first output found missing or modified, or null if they
+	 * are all intact
+	 */
+	public String verify(File outputDir, boolean checkHashes) {
+		ensureNotNull(outputDir, "outputDir");
+
+		return outputs.parallelStream()
+				.map(output -> output.verify(outputDir, checkHashes))
+				.filter(Objects::nonNull)
+				.findFirst()
+				.orElse(null);
+	}
+
+	/**
+	 * Reads a manifest previously written with {@link #writeFile(File)}
+	 *
+	 * @param file file to read the manifest from
+	 * @return manifest read, or null if the file is missing or unreadable
+	 */
+	public static OutputManifest readFile(File file) {
+		if(!file.isFile())
+			return null;
+
+		OutputManifest manifest = new OutputManifest();
+		try(InputStream input = new BufferedInputStream(new FileInputStream(file))) {
+			manifest.readFrom(input);
+		} catch(IOException ex) {
+			System.out.println("Ignoring unreadable output manifest " + file + ": " + ex.getMessage());
+			return null;
+		}
+		return manifest;
+	}
+
+	public void writeFile(File file) throws IOException {
+		try(OutputStream output = new BufferedOutputStream(new FileOutputStream(file))) {
+			writeTo(output);
+		}
+	}
+
+	@Override
+	public void readFrom(InputStream input) throws IOException {
+		DataInputStream data = new DataInputStream(input);
+
+		if(data.readInt() != VERSION)
+			throw new IOException("Unsupported output manifest version");
+
+		fingerprint = data.readUTF();
+		outputs.clear();
+		int count = data.readInt();
+		for(int i = 0; i < count; i++)
+			outputs.add(new Output(data.readUTF(), data.readLong(), data.readUTF()));
+	}
+
+	@Override
+	public void writeTo(OutputStream output) throws IOException {
+		DataOutputStream data = new DataOutputStream(output);
+
+		data.writeInt(VERSION);
+		data.writeUTF(fingerprint);
+		data.writeInt(outputs.size());
+		for(Output entry : outputs) {
+			data.writeUTF(entry.path);
+			data.writeLong(entry.size);
+			data.writeUTF(entry.hash);
+		}
+		data.flush();
+	}
+
+	private static class Output {
+		private final String path;
+		private final long size;
+		private final String hash;
+
+		public Output(String path, long size, String hash) {
+			this.path = path;
+			this.size = size;
+			this.hash = hash;
+		}
+
+		/**
+		 * @return description of the problem with this output, or null if it is intact
+		 */
+		public String verify(File outputDir, boolean checkHashes) {
+			File file = new File(outputDir, path);
+
+			if(!file.isFile())
+				return path + " is missing";
+
+			if(file.length() != size)
+				return path + " was modified";
+
+			try {
+				if(checkHashes && !OutputCommitter.hash(file).equals(hash))
+					return path + " was modified";
+			} catch(IOException ex) {
+				return path + " is unreadable";
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package com.winteralexander.gdx.masterpacker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+
+/**
+ * Writes the outputs of packed atlases on its own threads, so the packing of the next
+ * texture type, resolution or bundle doesn't wait on encoding, compression and disk writes.
+ * Its queue is bounded: submitting blocks while too many outputs are pending, so staged
+ * pages don't pile up faster than they are written.
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class OutputStage implements Closeable {
+	private final ExecutorService executor;
+	private final Semaphore slots;
+
+	/**
+	 * @param threads amount of outputs written at the same time
+	 * @param capacity amount of outputs which can be pending, written or waiting to be
+	 */
+	public OutputStage(int threads, int capacity) {
+		this.executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+			Thread thread = new Thread(runnable, "output-stage");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.slots = new Semaphore(Math.max(1, capacity));
+	}
+
+	/**
+	 * Submits an output to write, waiting for a slot in the queue if it is full
+	 *
+	 * @param job writes the output
+	 * @return future completing once the output is written, or exceptionally if it failed
+	 * @throws IOException if interrupted while waiting for a slot
+	 */
+	public CompletableFuture<Void> submit(OutputJob job) throws IOException {
+		ensureNotNull(job, "job");
+
+		try {
+			slots.acquire();
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting to write an output", ex);
+		}
+
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		try {
+			executor.execute(() -> {
+				try {
+					job.write();
+					future.complete(null);
+				} catch(Throwable ex) {
+					future.completeExceptionally(ex);
+				} finally {
+					slots.release();
+				}
+			});
+		} catch(RuntimeException ex) {
+			slots.release();
+			throw ex;
+		}
+		return future;
+	}
+
+	/**
+	 * Waits for a future and rethrows its failure
+	 *
+	 * @param future future to wait for
+	 * @return result of the future
+	 * @throws IOException if the future failed or the thread was interrupted
+	 */
+	public static <T> T await(CompletableFuture<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for outputs", ex);
+		} catch(ExecutionException ex) {
+			throw toIOException(ex.getCause());
+		}
+	}
+
+	/**
+	 * Waits for futures to complete, ignoring their failures. Used when giving up on a pack,
+	 * to not release what the outputs still being written use.
+	 *
+	 * @param futures futures to wait for
+	 */
+	public static void awaitQuietly(List<? extends CompletableFuture<?>> futures) {
+		for(CompletableFuture<?> future : futures) {
+			try {
+				future.get();
+			} catch(InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch(ExecutionException ex) {
+				// reported by whoever waits for the pack
+			}
+		}
+	}
+
+	/**
+	 * @param ex failure of an output, possibly wrapped by the futures
+	 * @return the failure as an IOException
+	 */
+	public static IOException toIOException(Throwable ex) {
+		while(ex instanceof CompletionException || ex instanceof UncheckedIOException)
+			if(ex.getCause() != null)
+				ex = ex.getCause();
+			else
+				break;
+
+		return ex instanceof IOException ? (IOException)ex : new IOException("Failed to write outputs", ex);
+	}
+
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+
+	/**
+	 * Writes an output
+	 */
+	@FunctionalInterface
+	public interface OutputJob {
+		void write() throws IOException;
+	}
+}
@@ -0,0 +1,213 @@
+package com.winteralexander.gdx.masterpacker;
+
+import com.badlogic.gdx.tools.texturepacker.TexturePacker;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.winteralexander.gdx.utils.io.Serializable;
+
+import java.io.*;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+
+/**
+ * Position of every region packed in the pages of an atlas, as computed by the packer.
+ * Stored in the cache directory to seed the next pack of the same atlas.
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class PackLayout implements Serializable {
+	private static final int VERSION = 2;
+
+	private final Array<Page> pages = new Array<>();
+	private final ObjectMap<String, Region> regions = new ObjectMap<>();
+
+	public PackLayout() {}
+
+	/**
+	 * Creates the layout of pages returned by a {@link TexturePacker.Packer}. Positions
+	 * and sizes are in packer space, padding included.
+	 *
+	 * @param packedPages pages to create the layout of
+	 * @return layout of specified pages
+	 */
+	public static PackLayout of(Array<TexturePacker.Page> packedPages) {
+		ensureNotNull(packedPages, "packedPages");
+		PackLayout layout = new PackLayout();
+
+		for(int i = 0; i < packedPages.size; i++) {
+			TexturePacker.Page packedPage = packedPages.get(i);
+			layout.pages.add(new Page(packedPage.width, packedPage.height));
+
+			for(TexturePacker.Rect rect : packedPage.outputRects) {
+				Region region = new Region();
+				region.name = rect.name;
+				region.page = i;
+				region.x = rect.x;
+				region.y = rect.y;
+				region.width = rect.width;
+				region.height = rect.height;
+				region.offsetX = rect.offsetX;
+				region.offsetY = rect.offsetY;
+				region.originalWidth = rect.originalWidth;
+				region.originalHeight = rect.originalHeight;
+				layout.regions.put(region.name, region);
+			}
+		}
+		return layout;
+	}
+
+	/**
+	 * Records where the regions of this layout were drawn in the page images. Must be called
+	 * once the pages have been written by the {@link TexturePacker}, as it is what positions
+	 * them in their image.
+	 *
+	 * @param writtenPages pages this layout was created from, after being written
+	 * @param settings settings the pages were written with
+	 */
+	public void setPlacement(Array<TexturePacker.Page> writtenPages,
+	                         TexturePacker.Settings settings) {
+		for(int i = 0; i < writtenPages.size && i < pages.size; i++) {
+			TexturePacker.Page writtenPage = writtenPages.get(i);
+			pages.get(i).imageName = writtenPage.imageName;
+
+			for(TexturePacker.Rect rect : writtenPage.outputRects) {
+				Region region = regions.get(rect.name);
+				if(region == null)
+					continue;
+
+				region.left = writtenPage.x + rect.x;
+				region.top = writtenPage.y + writtenPage.height - rect.y
+						- (rect.height - settings.paddingY);
+			}
+		}
+	}
+
+	/**
+	 * Reads a layout previously written with {@link #writeFile(File)}
+	 *
+	 * @param file file to read the layout from
+	 * @return layout read, or null if the file is missing or unreadable
+	 */
+	public static PackLayout readFile(File file) {
+		if(!file.isFile())
+			return null;
+
+		PackLayout layout = new PackLayout();
+		try(InputStream input = new BufferedInputStream(new FileInputStream(file))) {
+			layout.readFrom(input);
+		} catch(IOException ex) {
+			System.out.println("Ignoring unreadable layout " + file + ": " + ex.getMessage());
+			return null;
+		}
+		return layout;
+	}
+
+	public void writeFile(File file) throws IOException {
+		try(OutputStream output = new BufferedOutputStream(new FileOutputStream(file))) {
+			writeTo(output);
+		}
+	}
+
+	@Override
+	public void readFrom(InputStream input) throws IOException {
+		DataInputStream data = new DataInputStream(input);
+
+		if(data.readInt() != VERSION)
+			throw new IOException("Unsupported layout version");
+
+		pages.clear();
+		regions.clear();
+
+		int pageCount = data.readInt();
+		for(int i = 0; i < pageCount; i++) {
+			Page page = new Page(data.readInt(), data.readInt());
+			page.imageName = data.readBoolean() ? data.readUTF() : null;
+			pages.add(page);
+		}
+
+		int regionCount = data.readInt();
+		for(int i = 0; i < regionCount; i++) {
+			Region region = new Region();
+			region.name = data.readUTF();
+			region.page = data.readInt();
+			region.x = data.readInt();
+			region.y = data.readInt();
+			region.width = data.readInt();
+			region.height = data.readInt();
+			region.left = data.readInt();
+			region.top = data.readInt();
+			region.offsetX = data.readInt();
+			region.offsetY = data.readInt();
+			region.originalWidth = data.readInt();
+			region.originalHeight = data.readInt();
+			regions.put(region.name, region);
+		}
+	}
+
+	@Override
+	public void writeTo(OutputStream output) throws IOException {
+		DataOutputStream data = new DataOutputStream(output);
+
+		data.writeInt(VERSION);
+		data.writeInt(pages.size);
+		for(Page page : pages) {
+			data.writeInt(page.width);
+			data.writeInt(page.height);
+			data.writeBoolean(page.imageName != null);
+			if(page.imageName != null)
+				data.writeUTF(page.imageName);
+		}
+
+		data.writeInt(regions.size);
+		for(Region region : regions.values()) {
+			data.writeUTF(region.name);
+			data.writeInt(region.page);
+			data.writeInt(region.x);
+			data.writeInt(region.y);
+			data.writeInt(region.width);
+			data.writeInt(region.height);
+			data.writeInt(region.left);
+			data.writeInt(region.top);
+			data.writeInt(region.offsetX);
+			data.writeInt(region.offsetY);
+			data.writeInt(region.originalWidth);
+			data.writeInt(region.originalHeight);
+		}
+		data.flush();
+	}
+
+	public Array<Page> getPages() {
+		return pages;
+	}
+
+	public ObjectMap<String, Region> getRegions() {
+		return regions;
+	}
+
+	/**
+	 * Page of a layout, sized to the area used by its regions
+	 */
+	public static class Page {
+		public int width, height;
+		public String imageName;
+
+		public Page(int width, int height) {
+			this.width = width;
+			this.height = height;
+		}
+	}
+
+	/**
+	 * Position of a region in a page of the layout. x, y, width and height are in packer
+	 * space with padding included, left and top are the position of the region's image in
+	 * the page image.
+	 */
+	public static class Region {
+		public String name;
+		public int page, x, y, width, height;
+		public int left, top;
+		public int offsetX, offsetY, originalWidth, originalHeight;
+	}
+}
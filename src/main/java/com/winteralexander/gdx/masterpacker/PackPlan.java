@@ -0,0 +1,130 @@
+package com.winteralexander.gdx.masterpacker;
+
+import com.badlogic.gdx.utils.JsonWriter;
+import com.badlogic.gdx.utils.JsonWriter.OutputType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+
+/**
+ * Bundles a run of the master packer would pack, with the reason each of them is stale and
+ * the cost of its last full pack. Built from change detection alone, so it can be computed
+ * quickly to decide whether packing is needed at all.
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class PackPlan {
+	private final List<StaleBundle> staleBundles = new ArrayList<>();
+
+	/**
+	 * Adds a stale bundle to the plan
+	 *
+	 * @param bundleId ID of the bundle
+	 * @param reason why the bundle must be packed
+	 * @param targetCount amount of pack targets of the bundle
+	 * @param lastPack cache entry of the last pack of the bundle, or null if there is none
+	 */
+	public void addBundle(String bundleId, String reason, int targetCount, BundleCacheEntry lastPack) {
+		ensureNotNull(bundleId, "bundleId");
+		ensureNotNull(reason, "reason");
+
+		staleBundles.add(new StaleBundle(bundleId, reason, targetCount,
+				lastPack == null ? -1L : lastPack.duration,
+				lastPack == null ? -1L : lastPack.inputPixels));
+	}
+
+	/**
+	 * @return true if no bundle needs to be packed
+	 */
+	public boolean isEmpty() {
+		return staleBundles.isEmpty();
+	}
+
+	/**
+	 * @return sum of the durations of the last full packs of the stale bundles, in
+	 * milliseconds, not counting the bundles of unknown cost
+	 */
+	public long getEstimatedDuration() {
+		long duration = 0L;
+		for(StaleBundle bundle : staleBundles)
+			if(bundle.duration >= 0L)
+				duration += bundle.duration;
+		return duration;
+	}
+
+	/**
+	 * @return amount of stale bundles never fully packed, whose cost is unknown
+	 */
+	public int getUnknownCostCount() {
+		int count = 0;
+		for(StaleBundle bundle : staleBundles)
+			if(bundle.duration < 0L)
+				count++;
+		return count;
+	}
+
+	/**
+	 * Prints every stale bundle with its reason, then the estimated work
+	 */
+	public void printSummary() {
+		for(StaleBundle bundle : staleBundles)
+			System.out.println("Bundle " + bundle.bundleId + " is stale: " + bundle.reason);
+
+		System.out.println(staleBundles.size() + " stale bundle(s), estimated " +
+				String.format(Locale.ROOT, "%.1f", getEstimatedDuration() / 1000f) + " s of packing" +
+				(getUnknownCostCount() > 0 ? " plus " + getUnknownCostCount() +
+						" bundle(s) of unknown cost" : ""));
+	}
+
+	/**
+	 * Writes the plan as JSON
+	 *
+	 * @param file file to write the plan to
+	 * @throws IOException if the file could not be written
+	 */
+	public void write(File file) throws IOException {
+		try(JsonWriter writer = new JsonWriter(Files.newBufferedWriter(file.toPath()))) {
+			writer.setOutputType(OutputType.json);
+			writer.object();
+			writer.set("stale", !isEmpty());
+			writer.set("estimatedDuration", getEstimatedDuration());
+			writer.set("unknownCostCount", getUnknownCostCount());
+			writer.array("bundles");
+
+			for(StaleBundle bundle : staleBundles) {
+				writer.object();
+				writer.set("id", bundle.bundleId);
+				writer.set("reason", bundle.reason);
+				writer.set("targetCount", bundle.targetCount);
+				writer.set("lastDuration", bundle.duration);
+				writer.set("lastInputPixels", bundle.inputPixels);
+				writer.pop();
+			}
+
+			writer.pop();
+			writer.pop();
+		}
+	}
+
+	private static class StaleBundle {
+		private final String bundleId, reason;
+		private final int targetCount;
+		private final long duration, inputPixels;
+
+		public StaleBundle(String bundleId, String reason, int targetCount, long duration, long inputPixels) {
+			this.bundleId = bundleId;
+			this.reason = reason;
+			this.targetCount = targetCount;
+			this.duration = duration;
+			this.inputPixels = inputPixels;
+		}
+	}
+}
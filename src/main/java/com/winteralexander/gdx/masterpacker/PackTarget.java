@@ -17,6 +17,18 @@ public interface PackTarget {
 	 */
 	String getBundleId();
 
+	/**
+	 * Computes the names of the regions this pack target creates, so that
+	 * {@link #matches} only compares names instead of scanning the inputs for every region
+	 * packed. Called at the start of every pack of the bundle, the inputs having possibly
+	 * changed since the last one.
+	 *
+	 * @param bundle bundle for this pack target
+	 * @param baseDir input directory in which the sources are
+	 * @throws IOException if the inputs of the pack target could not be read
+	 */
+	default void prepare(AssetBundle bundle, File baseDir) throws IOException {}
+
 	/**
 	 * Process this pack target in the packing of a bundle
 	 *
@@ -66,6 +78,14 @@ public interface PackTarget {
 
 	int getExtendBottom();
 
+	/**
+	 * @return maximum amount of vertices of the mesh computed around the visible pixels of
+	 * regions created by this pack target, or 0 if they are drawn as rectangles
+	 */
+	default int getPolygonVertices() {
+		return 0;
+	}
+
 	/**
 	 * Retrieves the last modification of this pack target's input in the provided directory
 	 *
@@ -41,6 +41,9 @@ public class PackingList {
 						boolean stripWhitespace = getParamValue(parts, "--strip") != null;
 						boolean noDownscale = getParamValue(parts, "--nodownscale") != null;
 						boolean keepStructure = getParamValue(parts, "--keep-structure") != null;
+						boolean unpack = getParamValue(parts, "--unpack") != null;
+						LinkMode linkMode = tryParseLinkMode(getParamValue(parts, "--link"),
+								LinkMode.NONE);
 						int extendLeft = tryParseInt(getParamValue(parts, "--extend-left"), -1);
 						int extendRight = tryParseInt(getParamValue(parts, "--extend-right"), -1);
 						int extendTop = tryParseInt(getParamValue(parts, "--extend-top"), -1);
@@ -52,6 +55,9 @@ public class PackingList {
 						extendRight = ObjectUtil.firstNonNegative(extendRight, extendX, extend, 0);
 						extendTop = ObjectUtil.firstNonNegative(extendTop, extendY, extend, 0);
 						extendBottom = ObjectUtil.firstNonNegative(extendBottom, extendY, extend, 0);
+						int polygonVertices = getParamValue(parts, "--polygon") != null
+								? Math.max(3, tryParseInt(getParamValue(parts, "--polygon-vertices"), 8))
+								: 0;
 
 						if(paramlessParts[0].equalsIgnoreCase("texture"))
 							return new TexturePackTarget(paramlessParts[1],
@@ -63,7 +69,8 @@ public class PackingList {
 									extendLeft,
 									extendRight,
 									extendTop,
-									extendBottom);
+									extendBottom,
+									polygonVertices);
 						else if(paramlessParts[0].equalsIgnoreCase("atlas"))
 							return new AtlasPackTarget(paramlessParts[1],
 									TextureType.valueOf(paramlessParts[2].toUpperCase(Locale.ROOT)),
@@ -73,7 +80,8 @@ public class PackingList {
 									extendLeft,
 									extendRight,
 									extendTop,
-									extendBottom);
+									extendBottom,
+									unpack);
 						else if(paramlessParts[0].equalsIgnoreCase("directory"))
 							return new DirectoryPackTarget(recursionMode,
 									paramlessParts[1],
@@ -84,11 +92,13 @@ public class PackingList {
 									extendLeft,
 									extendRight,
 									extendTop,
-									extendBottom);
+									extendBottom,
+									polygonVertices);
 						else if(paramlessParts[0].equalsIgnoreCase("file"))
 							return new FilePackTarget(paramlessParts[1],
 									paramlessParts[2],
-									keepStructure);
+									keepStructure,
+									linkMode);
 					} catch(IllegalArgumentException | IndexOutOfBoundsException ex) {
 						System.err.println("Invalid line in packing list file: " + line);
 						ex.printStackTrace();
@@ -108,4 +118,14 @@ public class PackingList {
 			return defaultValue;
 		}
 	}
+
+	public static LinkMode tryParseLinkMode(String input, LinkMode defaultValue) {
+		if(input == null)
+			return defaultValue;
+		try {
+			return LinkMode.valueOf(input.toUpperCase(Locale.ROOT));
+		} catch(IllegalArgumentException ex) {
+			return defaultValue;
+		}
+	}
 }
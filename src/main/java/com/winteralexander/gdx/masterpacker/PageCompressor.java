@@ -0,0 +1,256 @@
+package com.winteralexander.gdx.masterpacker;
+
+import com.winteralexander.gdx.utils.StringUtil;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+
+/**
+ * Encodes the pages of a packed atlas to a GPU texture format in KTX files, optionally with
+ * their mipmap chain, and writes a copy of the atlas referencing them
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class PageCompressor {
+	/**
+	 * Encodes every page of an atlas. The encoded atlas is named after the atlas with the
+	 * suffix of the format, as are its pages.
+	 *
+	 * @param atlasDir directory of the atlas, in which encoded files are written
+	 * @param atlasName name of the atlas, without extension
+	 * @param compression format to encode the pages with
+	 * @param mipmaps true to store the mipmap chain of the pages
+	 * @throws IOException if the atlas or its pages could not be read, or the encoded
+	 * files could not be written
+	 */
+	public static void compressAtlas(File atlasDir,
+	                                 String atlasName,
+	                                 TextureCompression compression,
+	                                 boolean mipmaps) throws IOException {
+		ensureNotNull(atlasDir, "atlasDir");
+		ensureNotNull(atlasName, "atlasName");
+		ensureNotNull(compression, "compression");
+
+		File atlas = new File(atlasDir, atlasName + ".atlas");
+		if(!atlas.exists())
+			return;
+
+		String compressedName = getCompressedName(atlasName, compression);
+		Pattern pagePattern = Pattern.compile(Pattern.quote(atlasName) + "\\d*\\.png");
+		List<String> atlasContent = Files.readAllLines(atlas.toPath());
+		List<String> compressedContent = new ArrayList<>(atlasContent);
+
+		for(int i = 0; i < atlasContent.size(); i++) {
+			String line = atlasContent.get(i);
+			File page = new File(atlasDir, line);
+
+			if(!pagePattern.matcher(line).matches() || !page.isFile())
+				continue;
+
+			String pageName = getCompressedPageName(atlasName, line, compression);
+			compressPage(page, mipmaps ? atlasContent : null, new File(atlasDir, pageName),
+					compression);
+			compressedContent.set(i, pageName);
+		}
+
+		try(FileWriter writer = new FileWriter(new File(atlasDir, compressedName + ".atlas"))) {
+			writer.write(StringUtil.join(compressedContent, "\n"));
+		}
+	}
+
+	/**
+	 * Encodes a page image to a KTX file
+	 *
+	 * @param page PNG image of the page
+	 * @param atlasContent lines of the atlas of the page, to generate mipmaps within its
+	 * regions, or null to only store the page itself
+	 * @param destination KTX file to write
+	 * @param compression format to encode the page with
+	 * @throws IOException if the page could not be read or the KTX written
+	 */
+	public static void compressPage(File page,
+	                                List<String> atlasContent,
+	                                File destination,
+	                                TextureCompression compression) throws IOException {
+		BufferedImage image = ImageIO.read(page);
+		int width = image.getWidth(), height = image.getHeight();
+		int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
+		List<int[]> levels = atlasContent != null
+				? MipmapGenerator.generate(pixels,
+						getRegionIds(atlasContent, page.getName(), width, height), width, height)
+				: Collections.singletonList(pixels);
+
+		List<byte[]> data = new ArrayList<>();
+		for(int level = 0; level < levels.size(); level++) {
+			int levelWidth = Math.max(1, width >> level);
+			int levelHeight = Math.max(1, height >> level);
+			data.add(compression.isCompressed()
+					? compress(levels.get(level), levelWidth, levelHeight, compression.getEncoder())
+					: toRGBA(levels.get(level)));
+		}
+
+		if(compression.isCompressed())
+			KtxWriter.write(destination, 0, 0, compression.getGlInternalFormat(),
+					width, height, data);
+		else
+			KtxWriter.write(destination, KtxWriter.GL_UNSIGNED_BYTE, KtxWriter.GL_RGBA,
+					compression.getGlInternalFormat(), width, height, data);
+	}
+
+	/**
+	 * Maps every pixel of a page to the index of the region covering it in the atlas
+	 *
+	 * @param atlasContent lines of the atlas
+	 * @param pageName file name of the page
+	 * @param width width of the page
+	 * @param height height of the page
+	 * @return region index of every pixel, row by row, {@link MipmapGenerator#NO_REGION}
+	 * for padding
+	 */
+	private static int[] getRegionIds(List<String> atlasContent,
+	                                  String pageName,
+	                                  int width,
+	                                  int height) {
+		int[] ids = new int[width * height];
+		Arrays.fill(ids, MipmapGenerator.NO_REGION);
+
+		boolean inPage = false, rotated = false;
+		int regionIndex = 0, x = 0, y = 0;
+
+		for(String line : atlasContent) {
+			if(line.isEmpty()) {
+				inPage = false;
+				continue;
+			}
+
+			if(!line.startsWith(" ")) {
+				if(line.equals(pageName))
+					inPage = true;
+				rotated = false;
+				continue;
+			}
+
+			if(!inPage)
+				continue;
+
+			String[] values = line.substring(line.indexOf(':') + 1).trim().split(",");
+			if(line.startsWith("  rotate:"))
+				rotated = !values[0].trim().equals("false");
+			else if(line.startsWith("  xy:")) {
+				x = Integer.parseInt(values[0].trim());
+				y = Integer.parseInt(values[1].trim());
+			} else if(line.startsWith("  size:")) {
+				int regionWidth = Integer.parseInt(values[0].trim());
+				int regionHeight = Integer.parseInt(values[1].trim());
+				if(rotated) {
+					int tmp = regionWidth;
+					regionWidth = regionHeight;
+					regionHeight = tmp;
+				}
+
+				for(int py = Math.max(0, y); py < Math.min(height, y + regionHeight); py++)
+					for(int px = Math.max(0, x); px < Math.min(width, x + regionWidth); px++)
+						ids[py * width + px] = regionIndex;
+				regionIndex++;
+			}
+		}
+		return ids;
+	}
+
+	private static byte[] toRGBA(int[] pixels) {
+		byte[] rgba = new byte[pixels.length * 4];
+		for(int i = 0; i < pixels.length; i++) {
+			rgba[i * 4] = (byte)(pixels[i] >> 16);
+			rgba[i * 4 + 1] = (byte)(pixels[i] >> 8);
+			rgba[i * 4 + 2] = (byte)pixels[i];
+			rgba[i * 4 + 3] = (byte)(pixels[i] >>> 24);
+		}
+		return rgba;
+	}
+
+	/**
+	 * @param bundle bundle being packed
+	 * @return formats in which the pages of the bundle are encoded to KTX files
+	 */
+	public static TextureCompression[] getFormats(AssetBundle bundle) {
+		if(bundle.isMipmaps() && bundle.getCompressions().length == 0)
+			return new TextureCompression[] { TextureCompression.RGBA8 };
+		return bundle.getCompressions();
+	}
+
+	/**
+	 * Encodes an image block by block, rows of blocks being encoded in parallel. Blocks
+	 * overlapping the edge of the image are filled by repeating its last row and column.
+	 *
+	 * @param pixels pixels of the image in ARGB8888, row by row
+	 * @param width width of the image
+	 * @param height height of the image
+	 * @param encoder encoder of the compressed format
+	 * @return encoded image
+	 */
+	public static byte[] compress(int[] pixels, int width, int height, BlockEncoder encoder) {
+		ensureNotNull(pixels, "pixels");
+		ensureNotNull(encoder, "encoder");
+
+		int size = BlockEncoder.BLOCK_SIZE;
+		int blocksX = (width + size - 1) / size;
+		int blocksY = (height + size - 1) / size;
+		int blockBytes = encoder.getBlockBytes();
+		byte[] out = new byte[blocksX * blocksY * blockBytes];
+
+		IntStream.range(0, blocksY).parallel().forEach(blockY -> {
+			int[] block = new int[size * size];
+
+			for(int blockX = 0; blockX < blocksX; blockX++) {
+				for(int y = 0; y < size; y++) {
+					int row = Math.min(blockY * size + y, height - 1) * width;
+					for(int x = 0; x < size; x++)
+						block[y * size + x] = pixels[row + Math.min(blockX * size + x, width - 1)];
+				}
+				encoder.encode(block, out, (blockY * blocksX + blockX) * blockBytes);
+			}
+		});
+		return out;
+	}
+
+	/**
+	 * @param atlasName name of the atlas
+	 * @param compression compression of the atlas
+	 * @return name of the compressed version of the atlas
+	 */
+	public static String getCompressedName(String atlasName, TextureCompression compression) {
+		return atlasName + "_" + compression.getSuffix();
+	}
+
+	/**
+	 * @param atlasName name of the atlas
+	 * @param pageName file name of a PNG page of the atlas
+	 * @param compression compression of the atlas
+	 * @return file name of the compressed version of the page, its index separated from the
+	 * suffix of the compression, which may end with a digit
+	 */
+	public static String getCompressedPageName(String atlasName,
+	                                           String pageName,
+	                                           TextureCompression compression) {
+		String index = pageName.substring(atlasName.length(),
+				pageName.length() - ".png".length());
+		return getCompressedName(atlasName, compression)
+				+ (index.isEmpty() ? "" : "_" + index)
+				+ ".ktx";
+	}
+}
@@ -0,0 +1,51 @@
+package com.winteralexander.gdx.masterpacker;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.winteralexander.gdx.utils.EnumConstantCache;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+
+/**
+ * Precision the pages of a bundle are quantized to
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public enum PageFormat {
+	RGBA8888(Pixmap.Format.RGBA8888, 4),
+	RGBA4444(Pixmap.Format.RGBA4444, 2),
+	RGB565(Pixmap.Format.RGB565, 2),
+
+	/**
+	 * Palette of at most 256 colors. Only reduces the size of the PNG, as it is loaded as
+	 * RGBA8888 by libGDX.
+	 */
+	INDEXED(Pixmap.Format.RGBA8888, 4),
+	;
+
+	public static final PageFormat[] values = EnumConstantCache.store(values());
+
+	private final Pixmap.Format pixmapFormat;
+	private final int bytesPerPixel;
+
+	PageFormat(Pixmap.Format pixmapFormat, int bytesPerPixel) {
+		ensureNotNull(pixmapFormat, "pixmapFormat");
+		this.pixmapFormat = pixmapFormat;
+		this.bytesPerPixel = bytesPerPixel;
+	}
+
+	/**
+	 * @return format written in the header of the atlas, in which the pages are loaded
+	 */
+	public Pixmap.Format getPixmapFormat() {
+		return pixmapFormat;
+	}
+
+	/**
+	 * @return size of a pixel of the pages once loaded in video memory
+	 */
+	public int getBytesPerPixel() {
+		return bytesPerPixel;
+	}
+}
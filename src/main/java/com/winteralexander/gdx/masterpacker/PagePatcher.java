@@ -0,0 +1,273 @@
+package com.winteralexander.gdx.masterpacker;
+
+import com.badlogic.gdx.tools.texturepacker.ColorBleedEffect;
+import com.badlogic.gdx.tools.texturepacker.TexturePacker;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ObjectSet;
+import com.winteralexander.gdx.utils.io.FileUtil;
+
+import javax.imageio.ImageIO;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static com.winteralexander.gdx.utils.io.FileUtil.ensureDirectory;
+
+/**
+ * Updates the pages of a bundle in place when the only changes since its last pack are
+ * sprites which kept the same size. The changed sprites are processed again and drawn over
+ * their previous image in the pages, using the layout stored by the previous pack. The
+ * atlas is left untouched.
+ * <p>
+ * Only the areas of the changed sprites are quantized again, over the page already
+ * quantized, so pixels of the other sprites are kept as they are. Indexed pages keep their
+ * palette and are repacked if it can't represent the changed sprites.
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class PagePatcher {
+	/**
+	 * Attempts to patch the pages of a bundle instead of repacking it. Nothing is written
+	 * unless every changed sprite can be patched at every resolution of the bundle.
+	 *
+	 * @param bundle bundle to patch
+	 * @param targets all pack targets
+	 * @param inputDir input directory of the master packer
+	 * @param outputDir output directory of the master packer
+	 * @param cacheDir cache directory of the master packer, in which layouts are stored
+	 * @param cachePrefix prefix of the cache files of the bundle list
+	 * @param lastPack time of the last pack of the bundle
+	 * @param committer committer to write the patched pages with
+	 * @param optimizer optimizer of the patched pages
+	 * @return true if the bundle was patched, false if it has to be repacked
+	 * @throws IOException if a sprite or page could not be processed
+	 */
+	public static boolean patch(AssetBundle bundle,
+	                            List<PackTarget> targets,
+	                            File inputDir,
+	                            File outputDir,
+	                            File cacheDir,
+	                            String cachePrefix,
+	                            long lastPack,
+	                            OutputCommitter committer,
+	                            PngOptimizer optimizer) throws IOException {
+		ObjectMap<String, PatchablePackTarget> changedTargets = new ObjectMap<>();
+		ObjectMap<String, File> changedSources = new ObjectMap<>();
+		ObjectSet<String> regionNames = new ObjectSet<>();
+
+		for(PackTarget target : targets) {
+			if(!Objects.equals(target.getBundleId(), bundle.getBundleId()))
+				continue;
+
+			// regions that can't be traced back to single source images can't be patched
+			if(!(target instanceof PatchablePackTarget))
+				return false;
+
+			PatchablePackTarget patchable = (PatchablePackTarget)target;
+			ObjectMap<String, File> sources = patchable.getRegionSources(bundle,
+					TextureType.FLAT, inputDir);
+
+			boolean sourceChanged = false;
+			for(ObjectMap.Entry<String, File> source : sources) {
+				if(!regionNames.add(source.key))
+					return false;
+
+				if(source.value.lastModified() > lastPack) {
+					// the mesh stored in the atlas would no longer match the sprite
+					if(target.getPolygonVertices() > 0)
+						return false;
+
+					changedTargets.put(source.key, patchable);
+					changedSources.put(source.key, source.value);
+					sourceChanged = true;
+				}
+			}
+
+			// files were added, removed or changed in a way that doesn't map to a region
+			if(!sourceChanged && target.lastModified(inputDir) > lastPack)
+				return false;
+		}
+
+		if(changedSources.size == 0)
+			return false;
+
+		ObjectMap<File, Array<Patch>> patches = new ObjectMap<>();
+		ObjectMap<File, TexturePacker.Settings> pageSettings = new ObjectMap<>();
+		ObjectMap<File, String> pageAtlases = new ObjectMap<>();
+
+		for(AssetResolution resolution : bundle.getOutRes()) {
+			File resDir = new File(outputDir, resolution.getDirectory());
+			File outDir = new File(resDir, bundle.getOutPath());
+
+			PackLayout layout = PackLayout.readFile(MasterPacker.getLayoutFile(cacheDir,
+					cachePrefix, bundle, resolution, TextureType.FLAT));
+
+			if(layout == null || layout.getRegions().size != regionNames.size)
+				return false;
+
+			for(String name : regionNames)
+				if(!layout.getRegions().containsKey(name))
+					return false;
+
+			String atlasName = MasterPacker.getAtlasName(bundle, outDir, TextureType.FLAT);
+			if(!new File(outDir, atlasName + ".atlas").exists())
+				return false;
+
+			TexturePacker.Settings settings = MasterPacker.createSettings(bundle, resolution);
+			File tmpFlat = new File(outDir, "tmp_f");
+			ensureDirectory(tmpFlat);
+
+			try {
+				for(ObjectMap.Entry<String, File> source : changedSources) {
+					File processed = new File(tmpFlat, source.key + ".png");
+					changedTargets.get(source.key).processRegion(bundle, resolution,
+							source.value, processed);
+
+					MasterPackerImageProcessor processor = new MasterPackerImageProcessor(settings,
+							targets, bundle, TextureType.FLAT, inputDir);
+					TexturePacker.Rect rect = processor.addImage(ImageIO.read(processed),
+							source.key);
+					PackLayout.Region region = layout.getRegions().get(source.key);
+
+					if(rect == null
+							|| rect.width + settings.paddingX != region.width
+							|| rect.height + settings.paddingY != region.height
+							|| rect.offsetX != region.offsetX
+							|| rect.offsetY != region.offsetY
+							|| rect.originalWidth != region.originalWidth
+							|| rect.originalHeight != region.originalHeight) {
+						System.out.println("Size of " + source.key + " changed, thus bundle " +
+								bundle.getBundleId() + " will be repacked.");
+						return false;
+					}
+
+					PackLayout.Page page = layout.getPages().get(region.page);
+					if(page.imageName == null || !new File(outDir, page.imageName).isFile())
+						return false;
+
+					File pageFile = new File(outDir, page.imageName);
+					if(!patches.containsKey(pageFile))
+						patches.put(pageFile, new Array<>());
+					patches.get(pageFile).add(new Patch(region.left, region.top,
+							rect.getImage(processor)));
+					pageSettings.put(pageFile, settings);
+					pageAtlases.put(pageFile, atlasName);
+				}
+			} finally {
+				FileUtil.deleteRecursively(tmpFlat);
+			}
+		}
+
+		// every page is patched in memory first, so none is written if one can't be
+		ObjectMap<File, BufferedImage> patchedPages = new ObjectMap<>();
+		for(ObjectMap.Entry<File, Array<Patch>> entry : patches) {
+			BufferedImage page = patchPage(entry.key, entry.value, pageSettings.get(entry.key),
+					bundle);
+			if(page == null) {
+				System.out.println("Palette of " + entry.key.getName() + " can't represent " +
+						"the changed sprites, thus bundle " + bundle.getBundleId() +
+						" will be repacked.");
+				return false;
+			}
+			patchedPages.put(entry.key, page);
+		}
+
+		for(ObjectMap.Entry<File, BufferedImage> entry : patchedPages)
+			writePage(entry.key, entry.value, pageAtlases.get(entry.key), bundle, committer,
+					optimizer);
+
+		return true;
+	}
+
+	/**
+	 * @return patched page quantized to the format of the bundle, or null if the palette of
+	 * the page can't represent the patches
+	 */
+	private static BufferedImage patchPage(File pageFile,
+	                                       Array<Patch> patches,
+	                                       TexturePacker.Settings settings,
+	                                       AssetBundle bundle) throws IOException {
+		BufferedImage source = ImageIO.read(pageFile);
+		int width = source.getWidth();
+		int height = source.getHeight();
+
+		int[] pixels = source.getRGB(0, 0, width, height, null, 0, width);
+
+		// bled colors of transparent pixels are computed again from scratch, like a full pack
+		for(int i = 0; i < pixels.length; i++)
+			if(pixels[i] >>> 24 == 0)
+				pixels[i] = 0;
+
+		BufferedImage page = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		page.setRGB(0, 0, width, height, pixels, 0, width);
+
+		List<Rectangle> areas = new ArrayList<>();
+		for(Patch patch : patches) {
+			int patchWidth = patch.image.getWidth();
+			int patchHeight = patch.image.getHeight();
+			page.setRGB(patch.left, patch.top, patchWidth, patchHeight,
+					patch.image.getRGB(0, 0, patchWidth, patchHeight, null, 0, patchWidth),
+					0, patchWidth);
+			areas.add(new Rectangle(patch.left, patch.top, patchWidth, patchHeight));
+		}
+
+		if(settings.bleed && !settings.premultiplyAlpha)
+			page = new ColorBleedEffect().processImage(page, settings.bleedIterations);
+
+		// the rest of the page keeps its quantized pixels, error isn't spread out of patches
+		return PageQuantizer.quantizeAreas(page, source, areas, bundle.getFormat());
+	}
+
+	private static void writePage(File pageFile,
+	                              BufferedImage quantized,
+	                              String atlasName,
+	                              AssetBundle bundle,
+	                              OutputCommitter committer,
+	                              PngOptimizer optimizer) throws IOException {
+		File stagingDir = new File(pageFile.getParentFile(), "tmp_o");
+		ensureDirectory(stagingDir);
+
+		try {
+			File staged = new File(stagingDir, pageFile.getName());
+			ImageIO.write(quantized, "png", staged);
+
+			File atlas = new File(pageFile.getParentFile(), atlasName + ".atlas");
+			List<String> atlasContent = bundle.isMipmaps()
+					? Files.readAllLines(atlas.toPath())
+					: null;
+
+			for(TextureCompression compression : PageCompressor.getFormats(bundle)) {
+				String compressedName = PageCompressor.getCompressedPageName(atlasName,
+						pageFile.getName(), compression);
+				File compressed = new File(stagingDir, compressedName);
+				PageCompressor.compressPage(staged, atlasContent, compressed, compression);
+				committer.commit(compressed, new File(pageFile.getParentFile(), compressedName));
+			}
+
+			if(bundle.isOptimizePng())
+				optimizer.optimize(staged, pageFile);
+			committer.commit(staged, pageFile);
+		} finally {
+			FileUtil.deleteRecursively(stagingDir);
+		}
+	}
+
+	private static class Patch {
+		private final int left, top;
+		private final BufferedImage image;
+
+		public Patch(int left, int top, BufferedImage image) {
+			this.left = left;
+			this.top = top;
+			this.image = image;
+		}
+	}
+}
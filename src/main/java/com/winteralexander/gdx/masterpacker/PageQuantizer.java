@@ -0,0 +1,552 @@
+package com.winteralexander.gdx.masterpacker;
+
+import javax.imageio.ImageIO;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+
+/**
+ * Reduces the precision of packed pages with Floyd-Steinberg error diffusion. Pages are
+ * split in tiles dithered in parallel, error not crossing tile boundaries. Fully
+ * transparent pixels neither receive error nor become visible, but keep an approximation
+ * of their bled color.
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class PageQuantizer {
+	private static final int TILE_SIZE = 64;
+	private static final int PALETTE_SIZE = 256;
+
+	/**
+	 * Quantizes every page of an atlas in place
+	 *
+	 * @param atlasDir directory of the atlas
+	 * @param atlasName name of the atlas, without extension
+	 * @param format format to quantize the pages to
+	 * @throws IOException if a page could not be read or written
+	 */
+	public static void quantizeAtlas(File atlasDir,
+	                                 String atlasName,
+	                                 PageFormat format) throws IOException {
+		ensureNotNull(atlasDir, "atlasDir");
+		ensureNotNull(atlasName, "atlasName");
+		ensureNotNull(format, "format");
+
+		if(format == PageFormat.RGBA8888)
+			return;
+
+		Pattern pagePattern = Pattern.compile(Pattern.quote(atlasName) + "\\d*\\.png");
+		File[] files = atlasDir.listFiles();
+		if(files == null)
+			return;
+
+		for(File file : files)
+			if(file.isFile() && pagePattern.matcher(file.getName()).matches())
+				ImageIO.write(quantize(ImageIO.read(file), format), "png", file);
+	}
+
+	/**
+	 * Quantizes an image
+	 *
+	 * @param image image to quantize
+	 * @param format format to quantize to
+	 * @return quantized image, indexed for {@link PageFormat#INDEXED}
+	 */
+	public static BufferedImage quantize(BufferedImage image, PageFormat format) {
+		ensureNotNull(image, "image");
+		ensureNotNull(format, "format");
+
+		int width = image.getWidth(), height = image.getHeight();
+		int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
+		switch(format) {
+			case RGBA8888:
+				return image;
+
+			case RGBA4444:
+				dither(pixels, width, height, PageQuantizer::toRGBA4444);
+				return toImage(pixels, width, height, BufferedImage.TYPE_INT_ARGB);
+
+			case RGB565:
+				dither(pixels, width, height, PageQuantizer::toRGB565);
+				return toImage(pixels, width, height, BufferedImage.TYPE_INT_RGB);
+
+			case INDEXED:
+				int[] palette = createPalette(pixels);
+				int[] indices = new int[pixels.length];
+				Map<Integer, Integer> paletteIndices = new HashMap<>();
+				for(int i = 0; i < palette.length; i++)
+					paletteIndices.put(palette[i], i);
+
+				dither(pixels, width, height, new NearestColor(palette));
+				for(int i = 0; i < pixels.length; i++)
+					indices[i] = paletteIndices.get(pixels[i]);
+
+				return toIndexedImage(indices, palette, width, height);
+
+			default:
+				throw new IllegalArgumentException("Unsupported format: " + format);
+		}
+	}
+
+	/**
+	 * Quantizes areas of an image over a previous version of it already quantized, keeping
+	 * the pixels of the previous version outside of the areas. Error is only diffused within
+	 * each area and indexed images keep the palette of the previous version, so quantizing an
+	 * area doesn't change any pixel outside of it.
+	 *
+	 * @param image image to take the pixels of the areas from
+	 * @param previous previous version of the image, quantized to the format
+	 * @param areas areas of the image to quantize
+	 * @param format format to quantize to
+	 * @return quantized image, or null if the areas have colors the palette of the previous
+	 * version can't represent
+	 */
+	public static BufferedImage quantizeAreas(BufferedImage image,
+	                                          BufferedImage previous,
+	                                          List<Rectangle> areas,
+	                                          PageFormat format) {
+		ensureNotNull(image, "image");
+		ensureNotNull(previous, "previous");
+		ensureNotNull(areas, "areas");
+		ensureNotNull(format, "format");
+
+		int width = previous.getWidth(), height = previous.getHeight();
+		if(image.getWidth() != width || image.getHeight() != height)
+			throw new IllegalArgumentException("Image and previous version differ in size");
+
+		int[] pixels = previous.getRGB(0, 0, width, height, null, 0, width);
+
+		ColorQuantizer quantizer;
+		int[] palette = null;
+		switch(format) {
+			case RGBA8888:
+				quantizer = null;
+				break;
+			case RGBA4444:
+				quantizer = PageQuantizer::toRGBA4444;
+				break;
+			case RGB565:
+				quantizer = PageQuantizer::toRGB565;
+				break;
+			case INDEXED:
+				Set<Integer> colors = new LinkedHashSet<>();
+				for(int pixel : pixels)
+					if(colors.add(pixel) && colors.size() > PALETTE_SIZE)
+						return null;
+
+				palette = sortPalette(colors.stream().mapToInt(Integer::intValue).toArray());
+				quantizer = new NearestColor(palette);
+				break;
+			default:
+				throw new IllegalArgumentException("Unsupported format: " + format);
+		}
+
+		for(Rectangle area : areas) {
+			int[] areaPixels = image.getRGB(area.x, area.y, area.width, area.height,
+					null, 0, area.width);
+			if(quantizer != null)
+				dither(areaPixels, area.width, area.height, quantizer);
+
+			for(int y = 0; y < area.height; y++)
+				System.arraycopy(areaPixels, y * area.width,
+						pixels, (area.y + y) * width + area.x, area.width);
+		}
+
+		switch(format) {
+			case RGB565:
+				return toImage(pixels, width, height, BufferedImage.TYPE_INT_RGB);
+
+			case INDEXED:
+				Map<Integer, Integer> paletteIndices = new HashMap<>();
+				for(int i = 0; i < palette.length; i++)
+					paletteIndices.put(palette[i], i);
+
+				// transparent pixels of the areas keep their color, which may not be in it
+				int[] indices = new int[pixels.length];
+				for(int i = 0; i < pixels.length; i++) {
+					Integer index = paletteIndices.get(pixels[i]);
+					if(index == null)
+						return null;
+					indices[i] = index;
+				}
+				return toIndexedImage(indices, palette, width, height);
+
+			default:
+				return toImage(pixels, width, height, BufferedImage.TYPE_INT_ARGB);
+		}
+	}
+
+	private static void dither(int[] pixels, int width, int height, ColorQuantizer quantizer) {
+		int tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+		int tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+
+		IntStream.range(0, tilesX * tilesY).parallel().forEach(tile -> {
+			int startX = tile % tilesX * TILE_SIZE, startY = tile / tilesX * TILE_SIZE;
+			int tileWidth = Math.min(TILE_SIZE, width - startX);
+			int tileHeight = Math.min(TILE_SIZE, height - startY);
+			float[] error = new float[tileWidth * tileHeight * 4];
+			float[] color = new float[4];
+
+			for(int y = 0; y < tileHeight; y++)
+				for(int x = 0; x < tileWidth; x++) {
+					int index = (startY + y) * width + startX + x;
+					int pixel = pixels[index];
+					boolean transparent = pixel >>> 24 == 0;
+
+					for(int c = 0; c < 4; c++)
+						color[c] = channel(pixel, c)
+								+ (transparent ? 0f : error[(y * tileWidth + x) * 4 + c]);
+
+					int quantized = quantizer.quantize(color);
+
+					// keeps invisible pixels invisible, their color is still quantized
+					if(transparent)
+						quantized &= 0x00FFFFFF;
+					pixels[index] = quantized;
+
+					if(transparent)
+						continue;
+
+					for(int c = 0; c < 4; c++) {
+						float diff = color[c] - channel(quantized, c);
+						spread(error, pixels, width, startX, startY, tileWidth, tileHeight,
+								x + 1, y, c, diff * 7f / 16f);
+						spread(error, pixels, width, startX, startY, tileWidth, tileHeight,
+								x - 1, y + 1, c, diff * 3f / 16f);
+						spread(error, pixels, width, startX, startY, tileWidth, tileHeight,
+								x, y + 1, c, diff * 5f / 16f);
+						spread(error, pixels, width, startX, startY, tileWidth, tileHeight,
+								x + 1, y + 1, c, diff / 16f);
+					}
+				}
+		});
+	}
+
+	private static void spread(float[] error,
+	                           int[] pixels,
+	                           int width,
+	                           int startX,
+	                           int startY,
+	                           int tileWidth,
+	                           int tileHeight,
+	                           int x,
+	                           int y,
+	                           int c,
+	                           float amount) {
+		if(x < 0 || y < 0 || x >= tileWidth || y >= tileHeight)
+			return;
+
+		if(pixels[(startY + y) * width + startX + x] >>> 24 == 0)
+			return;
+
+		error[(y * tileWidth + x) * 4 + c] += amount;
+	}
+
+	private static int toRGBA4444(float[] color) {
+		int argb = 0;
+		for(int c = 0; c < 4; c++)
+			argb |= Math.round(clamp(color[c]) * 15f / 255f) * 17 << shift(c);
+		return argb;
+	}
+
+	private static int toRGB565(float[] color) {
+		int red = Math.round(clamp(color[0]) * 31f / 255f);
+		int green = Math.round(clamp(color[1]) * 63f / 255f);
+		int blue = Math.round(clamp(color[2]) * 31f / 255f);
+
+		return 0xFF000000
+				| (red << 3 | red >> 2) << 16
+				| (green << 2 | green >> 4) << 8
+				| (blue << 3 | blue >> 2);
+	}
+
+	/**
+	 * Creates a palette for the colors of an image by median cut. Images with few enough
+	 * colors get them exactly.
+	 *
+	 * @param pixels pixels of the image
+	 * @return palette of at most 256 colors
+	 */
+	private static int[] createPalette(int[] pixels) {
+		Map<Integer, Integer> histogram = new HashMap<>();
+		for(int pixel : pixels)
+			histogram.merge(pixel, 1, Integer::sum);
+
+		// transparent colors come first, so they can get their own boxes
+		int[][] colors = new int[histogram.size()][];
+		int transparentCount = 0;
+		for(Map.Entry<Integer, Integer> entry : histogram.entrySet())
+			if(entry.getKey() >>> 24 == 0)
+				colors[transparentCount++] = new int[] { entry.getKey(), entry.getValue() };
+
+		int count = transparentCount;
+		for(Map.Entry<Integer, Integer> entry : histogram.entrySet())
+			if(entry.getKey() >>> 24 != 0)
+				colors[count++] = new int[] { entry.getKey(), entry.getValue() };
+
+		if(colors.length <= PALETTE_SIZE) {
+			int[] palette = new int[colors.length];
+			for(int i = 0; i < colors.length; i++)
+				palette[i] = colors[i][0];
+			return sortPalette(palette);
+		}
+
+		// boxes are ranges of the color array, split at the median of their widest channel
+		List<int[]> boxes = new ArrayList<>();
+		if(transparentCount > 0 && transparentCount < colors.length) {
+			boxes.add(createBox(colors, 0, transparentCount));
+			boxes.add(createBox(colors, transparentCount, colors.length));
+		} else
+			boxes.add(createBox(colors, 0, colors.length));
+
+		while(boxes.size() < PALETTE_SIZE) {
+			int bestBox = -1;
+			for(int i = 0; i < boxes.size(); i++)
+				if(boxes.get(i)[3] > 0 && (bestBox == -1
+						|| getScore(boxes.get(i)) > getScore(boxes.get(bestBox))))
+					bestBox = i;
+
+			if(bestBox == -1)
+				break;
+
+			int[] box = boxes.get(bestBox);
+			int channel = box[2];
+			Arrays.sort(colors, box[0], box[1],
+					Comparator.comparingInt(color -> channel(color[0], channel)));
+
+			long total = box[4];
+			int split = box[0] + 1;
+			long accumulated = colors[box[0]][1];
+			while(split < box[1] - 1 && accumulated * 2 < total)
+				accumulated += colors[split++][1];
+
+			boxes.set(bestBox, createBox(colors, box[0], split));
+			boxes.add(createBox(colors, split, box[1]));
+		}
+
+		int[] palette = new int[boxes.size()];
+		for(int i = 0; i < boxes.size(); i++) {
+			int[] box = boxes.get(i);
+			long[] sums = new long[4];
+			long weight = 0L;
+
+			for(int j = box[0]; j < box[1]; j++) {
+				for(int c = 0; c < 4; c++)
+					sums[c] += (long)channel(colors[j][0], c) * colors[j][1];
+				weight += colors[j][1];
+			}
+
+			for(int c = 0; c < 4; c++)
+				palette[i] |= (int)((sums[c] + weight / 2) / weight) << shift(c);
+		}
+		return sortPalette(Arrays.stream(palette).distinct().toArray());
+	}
+
+	/**
+	 * Sorts colors as unsigned values, which puts transparent colors first
+	 */
+	private static int[] sortPalette(int[] palette) {
+		return Arrays.stream(palette)
+				.boxed()
+				.sorted(Integer::compareUnsigned)
+				.mapToInt(Integer::intValue)
+				.toArray();
+	}
+
+	/**
+	 * Creates a box of colors, finding its widest channel
+	 *
+	 * @return start, end, widest channel, range of that channel and pixel count
+	 */
+	private static int[] createBox(int[][] colors, int start, int end) {
+		int widest = 0, widestRange = 0, weight = 0;
+		for(int j = start; j < end; j++)
+			weight += colors[j][1];
+
+		for(int c = 0; c < 4; c++) {
+			int min = 255, max = 0;
+			for(int j = start; j < end; j++) {
+				int value = channel(colors[j][0], c);
+				min = Math.min(min, value);
+				max = Math.max(max, value);
+			}
+
+			if(max - min > widestRange) {
+				widestRange = max - min;
+				widest = c;
+			}
+		}
+		return new int[] { start, end, widest, end - start < 2 ? 0 : widestRange, weight };
+	}
+
+	/**
+	 * @return priority of a box to be split, its range weighted by its pixel count
+	 */
+	private static long getScore(int[] box) {
+		return (long)box[4] * box[3];
+	}
+
+	private static BufferedImage toImage(int[] pixels, int width, int height, int type) {
+		BufferedImage image = new BufferedImage(width, height, type);
+		image.setRGB(0, 0, width, height, pixels, 0, width);
+		return image;
+	}
+
+	private static BufferedImage toIndexedImage(int[] indices,
+	                                            int[] palette,
+	                                            int width,
+	                                            int height) {
+		byte[] red = new byte[palette.length], green = new byte[palette.length];
+		byte[] blue = new byte[palette.length], alpha = new byte[palette.length];
+
+		for(int i = 0; i < palette.length; i++) {
+			red[i] = (byte)(palette[i] >> 16);
+			green[i] = (byte)(palette[i] >> 8);
+			blue[i] = (byte)palette[i];
+			alpha[i] = (byte)(palette[i] >>> 24);
+		}
+
+		IndexColorModel model = new IndexColorModel(8, palette.length, red, green, blue, alpha);
+		BufferedImage image = new BufferedImage(width, height,
+				BufferedImage.TYPE_BYTE_INDEXED, model);
+		WritableRaster raster = image.getRaster();
+		raster.setSamples(0, 0, width, height, 0, indices);
+		return image;
+	}
+
+	/**
+	 * @return value of a channel of a pixel, in RGBA order
+	 */
+	private static int channel(int pixel, int c) {
+		return pixel >>> shift(c) & 0xFF;
+	}
+
+	private static int shift(int c) {
+		return c == 3 ? 24 : 16 - 8 * c;
+	}
+
+	private static float clamp(float value) {
+		return Math.max(0f, Math.min(255f, value));
+	}
+
+	private interface ColorQuantizer {
+		/**
+		 * @param color color in RGBA order, channels from 0 to 255 and possibly beyond
+		 * @return closest representable color, in ARGB8888
+		 */
+		int quantize(float[] color);
+	}
+
+	/**
+	 * Finds the closest color of a palette. Candidates are visited by increasing difference
+	 * of green, stopping once that difference alone exceeds the best distance found.
+	 */
+	private static class NearestColor implements ColorQuantizer {
+		private final int[] palette;
+		private final int[] byGreen;
+		private final int transparentCount;
+
+		public NearestColor(int[] palette) {
+			this.palette = palette;
+			this.byGreen = Arrays.stream(palette)
+					.boxed()
+					.sorted(Comparator.comparingInt(color -> channel(color, 1)))
+					.mapToInt(Integer::intValue)
+					.toArray();
+
+			int count = 0;
+			while(count < palette.length && palette[count] >>> 24 == 0)
+				count++;
+			this.transparentCount = count;
+		}
+
+		@Override
+		public int quantize(float[] color) {
+			// the palette is sorted, transparent colors coming first
+			if(color[3] <= 0f && transparentCount > 0) {
+				int best = palette[0];
+				float bestDistance = Float.MAX_VALUE;
+				for(int i = 0; i < transparentCount; i++) {
+					float distance = distance(color, palette[i]);
+					if(distance < bestDistance) {
+						bestDistance = distance;
+						best = palette[i];
+					}
+				}
+				return best;
+			}
+
+			float green = clamp(color[1]);
+			int low = 0, high = byGreen.length;
+			while(low < high) {
+				int middle = (low + high) >>> 1;
+				if(channel(byGreen[middle], 1) < green)
+					low = middle + 1;
+				else
+					high = middle;
+			}
+
+			int best = byGreen[Math.min(low, byGreen.length - 1)];
+			float bestDistance = distance(color, best);
+
+			for(int up = low, down = low - 1; up < byGreen.length || down >= 0; up++, down--) {
+				boolean searching = false;
+
+				if(up < byGreen.length) {
+					float diff = channel(byGreen[up], 1) - green;
+					if(diff * diff < bestDistance) {
+						searching = true;
+						float distance = distance(color, byGreen[up]);
+						if(distance < bestDistance) {
+							bestDistance = distance;
+							best = byGreen[up];
+						}
+					}
+				}
+
+				if(down >= 0) {
+					float diff = green - channel(byGreen[down], 1);
+					if(diff * diff < bestDistance) {
+						searching = true;
+						float distance = distance(color, byGreen[down]);
+						if(distance < bestDistance) {
+							bestDistance = distance;
+							best = byGreen[down];
+						}
+					}
+				}
+
+				if(!searching)
+					break;
+			}
+			return best;
+		}
+
+		private static float distance(float[] color, int candidate) {
+			float distance = 0f;
+			for(int c = 0; c < 4; c++) {
+				float diff = clamp(color[c]) - channel(candidate, c);
+				distance += diff * diff;
+			}
+			return distance;
+		}
+	}
+}
@@ -0,0 +1,395 @@
+package com.winteralexander.gdx.masterpacker;
+
+import com.badlogic.gdx.tools.texturepacker.MaxRectsPacker;
+import com.badlogic.gdx.tools.texturepacker.MaxRectsPacker.FreeRectChoiceHeuristic;
+import com.badlogic.gdx.tools.texturepacker.TexturePacker;
+import com.badlogic.gdx.tools.texturepacker.TexturePacker.Page;
+import com.badlogic.gdx.tools.texturepacker.TexturePacker.Rect;
+import com.badlogic.gdx.utils.Array;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+
+/**
+ * {@link TexturePacker.Packer} using the maximal rectangles algorithm, which evaluates
+ * every combination of free rectangle heuristic and sort order in parallel on a fork-join
+ * pool. Each combination binary searches the smallest page fitting the rectangles, the same
+ * way {@link MaxRectsPacker} does. Candidates are compared with a total order, so the chosen
+ * layout does not depend on the order in which candidates complete.
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class ParallelMaxRectsPacker implements TexturePacker.Packer {
+	@SuppressWarnings("unchecked")
+	private static final Comparator<Rect>[] SORT_ORDERS = new Comparator[] {
+			Comparator.<Rect>comparingInt(r -> -r.width * r.height),
+			Comparator.<Rect>comparingInt(r -> -Math.max(r.width, r.height)),
+			Comparator.<Rect>comparingInt(r -> -r.width),
+			Comparator.<Rect>comparingInt(r -> -r.height),
+			Comparator.<Rect>comparingInt(r -> -(r.width + r.height)),
+	};
+
+	private final TexturePacker.Settings settings;
+	private final ForkJoinPool pool;
+
+	public ParallelMaxRectsPacker(TexturePacker.Settings settings) {
+		this(settings, ForkJoinPool.commonPool());
+	}
+
+	public ParallelMaxRectsPacker(TexturePacker.Settings settings, ForkJoinPool pool) {
+		ensureNotNull(settings, "settings");
+		ensureNotNull(pool, "pool");
+		this.settings = settings;
+		this.pool = pool;
+	}
+
+	@Override
+	public Array<Page> pack(Array<Rect> inputRects) {
+		return pack(null, inputRects);
+	}
+
+	@Override
+	public Array<Page> pack(TexturePacker.ProgressListener progress, Array<Rect> inputRects) {
+		if(settings.rotation)
+			return new MaxRectsPacker(settings).pack(progress, inputRects);
+
+		for(Rect rect : inputRects) {
+			rect.width += settings.paddingX;
+			rect.height += settings.paddingY;
+		}
+
+		int maxWidth = settings.maxWidth, maxHeight = settings.maxHeight;
+		if(settings.edgePadding) {
+			if(settings.duplicatePadding) {
+				maxWidth -= settings.paddingX;
+				maxHeight -= settings.paddingY;
+			} else {
+				maxWidth -= settings.paddingX * 2;
+				maxHeight -= settings.paddingY * 2;
+			}
+		}
+
+		Array<Page> pages = new Array<>();
+		Array<Rect> remaining = new Array<>(inputRects);
+
+		while(remaining.size > 0) {
+			Page page = packPage(remaining, maxWidth, maxHeight);
+
+			if(page.outputRects.size == 0)
+				throw new IllegalStateException("Image does not fit within max page size " +
+						settings.maxWidth + "x" + settings.maxHeight + ": " + remaining.first().name);
+
+			pages.add(page);
+			remaining = page.remainingRects;
+		}
+		return pages;
+	}
+
+	private Page packPage(Array<Rect> rects, int maxWidth, int maxHeight) {
+		int minWidth = settings.minWidth, minHeight = settings.minHeight;
+		for(Rect rect : rects) {
+			minWidth = Math.max(minWidth, rect.width);
+			minHeight = Math.max(minHeight, rect.height);
+		}
+		minWidth = Math.min(minWidth, maxWidth);
+		minHeight = Math.min(minHeight, maxHeight);
+
+		if(settings.square) {
+			minWidth = minHeight = Math.max(minWidth, minHeight);
+			maxWidth = maxHeight = Math.min(maxWidth, maxHeight);
+		}
+
+		// fast packing keeps a single sort order and only tries every heuristic
+		Rect[][] orders = new Rect[settings.fast ? 1 : SORT_ORDERS.length][];
+		for(int i = 0; i < orders.length; i++) {
+			orders[i] = rects.toArray(Rect.class);
+			Arrays.sort(orders[i], SORT_ORDERS[i].thenComparing(r -> r.name));
+		}
+
+		List<Candidate> candidates = new ArrayList<>();
+		for(Rect[] order : orders)
+			for(FreeRectChoiceHeuristic heuristic : FreeRectChoiceHeuristic.values())
+				candidates.add(new Candidate(candidates.size(), order, heuristic,
+						minWidth, minHeight, maxWidth, maxHeight));
+
+		Candidate best = pool.invoke(new EvaluateTask(candidates, 0, candidates.size()));
+
+		Page page = new Page();
+		page.outputRects = new Array<>();
+		page.remainingRects = new Array<>();
+
+		for(int i = 0; i < best.rects.length; i++) {
+			Rect rect = best.rects[i];
+			if(best.positions[i] == null) {
+				page.remainingRects.add(rect);
+				continue;
+			}
+			rect.x = best.positions[i].x;
+			rect.y = best.positions[i].y;
+			page.outputRects.add(rect);
+		}
+
+		page.width = best.usedWidth;
+		page.height = best.usedHeight;
+		page.occupancy = best.getPageArea() == 0L ? 0f
+				: (float)best.usedArea / best.getPageArea();
+		return page;
+	}
+
+	/**
+	 * A combination of sort order and heuristic to pack the rectangles with, which searches
+	 * the smallest page they fit in
+	 */
+	private class Candidate {
+		private final int index;
+		private final Rect[] rects;
+		private final FreeRectChoiceHeuristic heuristic;
+		private final int minWidth, minHeight, maxWidth, maxHeight;
+
+		private Rectangle[] positions;
+		private int placedCount;
+		private long usedArea;
+		private int usedWidth, usedHeight;
+
+		public Candidate(int index,
+		                 Rect[] rects,
+		                 FreeRectChoiceHeuristic heuristic,
+		                 int minWidth,
+		                 int minHeight,
+		                 int maxWidth,
+		                 int maxHeight) {
+			this.index = index;
+			this.rects = rects;
+			this.heuristic = heuristic;
+			this.minWidth = minWidth;
+			this.minHeight = minHeight;
+			this.maxWidth = maxWidth;
+			this.maxHeight = maxHeight;
+		}
+
+		/**
+		 * Binary searches the height of the page and, for every height, its width, keeping
+		 * the smallest page fitting every rectangle. Packs as many rectangles as possible in
+		 * a page of maximum size if none fits them all.
+		 */
+		public void evaluate() {
+			SizeSearch widthSearch = new SizeSearch(minWidth, maxWidth);
+			SizeSearch heightSearch = new SizeSearch(minHeight, maxHeight);
+
+			int width = widthSearch.reset();
+			int height = settings.square ? width : heightSearch.reset();
+
+			while(true) {
+				boolean anyWidthFits = false;
+				while(width != -1) {
+					boolean fits = packAtSize(width, height, true);
+					anyWidthFits |= fits;
+					width = widthSearch.next(!fits);
+					if(settings.square)
+						height = width;
+				}
+
+				if(settings.square)
+					break;
+
+				height = heightSearch.next(!anyWidthFits);
+				if(height == -1)
+					break;
+				width = widthSearch.reset();
+			}
+
+			if(positions == null)
+				packAtSize(maxWidth, maxHeight, false);
+		}
+
+		/**
+		 * Packs the rectangles in a page of the given size, keeping the result if it is the
+		 * best so far
+		 *
+		 * @param width width of the page
+		 * @param height height of the page
+		 * @param fully true to discard the result if not every rectangle fits
+		 * @return true if every rectangle fit
+		 */
+		private boolean packAtSize(int width, int height, boolean fully) {
+			MaxRectsBin bin = new MaxRectsBin(Math.min(width, maxWidth),
+					Math.min(height, maxHeight));
+			Rectangle[] positions = new Rectangle[rects.length];
+			int placedCount = 0, usedWidth = 0, usedHeight = 0;
+
+			for(int i = 0; i < rects.length; i++) {
+				positions[i] = bin.insert(rects[i].width, rects[i].height, heuristic);
+				if(positions[i] == null) {
+					if(fully)
+						return false;
+					continue;
+				}
+				placedCount++;
+				usedWidth = Math.max(usedWidth, positions[i].x + rects[i].width);
+				usedHeight = Math.max(usedHeight, positions[i].y + rects[i].height);
+			}
+
+			if(settings.square)
+				usedWidth = usedHeight = Math.max(usedWidth, usedHeight);
+
+			if(this.positions == null
+					|| (long)usedWidth * usedHeight < getPageArea()) {
+				this.positions = positions;
+				this.placedCount = placedCount;
+				this.usedArea = bin.getUsedArea();
+				this.usedWidth = usedWidth;
+				this.usedHeight = usedHeight;
+			}
+			return placedCount == rects.length;
+		}
+
+		private long getPageArea() {
+			return (long)usedWidth * usedHeight;
+		}
+
+		/**
+		 * Frees the positions computed by this candidate once it lost against another
+		 */
+		public void discard() {
+			positions = null;
+		}
+
+		/**
+		 * Checks if this candidate is better than another. A candidate fitting every
+		 * rectangle beats one that doesn't, then the smallest page wins amongst candidates
+		 * fitting everything and the most packed area wins amongst the others. Ties go to the
+		 * candidate created first.
+		 *
+		 * @param other candidate to compare to
+		 * @return true if this candidate should be picked over the other
+		 */
+		public boolean isBetterThan(Candidate other) {
+			boolean fits = placedCount == rects.length;
+			boolean otherFits = other.placedCount == other.rects.length;
+
+			if(fits != otherFits)
+				return fits;
+
+			if(fits) {
+				if(getPageArea() != other.getPageArea())
+					return getPageArea() < other.getPageArea();
+			} else if(usedArea != other.usedArea)
+				return usedArea > other.usedArea;
+
+			return index < other.index;
+		}
+	}
+
+	/**
+	 * Binary search over the sizes of a page side, rounded like the {@link MaxRectsPacker}
+	 * rounds them to powers of two or multiples of four. Stops once the range left is
+	 * narrower than the fuzziness of the settings.
+	 */
+	private class SizeSearch {
+		private final int min, max, fuzziness;
+		private int low, high, current;
+
+		public SizeSearch(int min, int max) {
+			if(settings.pot) {
+				this.min = 32 - Integer.numberOfLeadingZeros(Math.max(1, min) - 1);
+				this.max = 32 - Integer.numberOfLeadingZeros(Math.max(1, max) - 1);
+			} else if(settings.multipleOfFour) {
+				this.min = (min + 3) / 4 * 4;
+				this.max = (max + 3) / 4 * 4;
+			} else {
+				this.min = min;
+				this.max = max;
+			}
+			this.fuzziness = settings.pot ? 0 : settings.fast ? 25 : 15;
+		}
+
+		public int reset() {
+			low = min;
+			high = max;
+			current = (low + high) >>> 1;
+			return getSize();
+		}
+
+		/**
+		 * @param larger true if the last size was too small, false if a smaller size should be
+		 * tried
+		 * @return next size to try, or -1 if the search is over
+		 */
+		public int next(boolean larger) {
+			if(low >= high)
+				return -1;
+
+			if(larger)
+				low = current + 1;
+			else
+				high = current - 1;
+			current = (low + high) >>> 1;
+
+			if(Math.abs(low - high) < fuzziness)
+				return -1;
+			return getSize();
+		}
+
+		private int getSize() {
+			if(settings.pot)
+				return 1 << current;
+			if(settings.multipleOfFour)
+				return (current + 3) / 4 * 4;
+			return current;
+		}
+	}
+
+	private static class EvaluateTask extends RecursiveTask<Candidate> {
+		private static final int THRESHOLD = 1;
+
+		private final List<Candidate> candidates;
+		private final int start, end;
+
+		public EvaluateTask(List<Candidate> candidates, int start, int end) {
+			this.candidates = candidates;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected Candidate compute() {
+			if(end - start <= THRESHOLD) {
+				Candidate best = null;
+				for(int i = start; i < end; i++) {
+					Candidate candidate = candidates.get(i);
+					candidate.evaluate();
+					if(best == null || candidate.isBetterThan(best)) {
+						if(best != null)
+							best.discard();
+						best = candidate;
+					} else
+						candidate.discard();
+				}
+				return best;
+			}
+
+			int middle = (start + end) >>> 1;
+			EvaluateTask left = new EvaluateTask(candidates, start, middle);
+			EvaluateTask right = new EvaluateTask(candidates, middle, end);
+			left.fork();
+			Candidate rightBest = right.compute();
+			Candidate leftBest = left.join();
+
+			if(rightBest.isBetterThan(leftBest)) {
+				leftBest.discard();
+				return rightBest;
+			}
+			rightBest.discard();
+			return leftBest;
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package com.winteralexander.gdx.masterpacker;
+
+import com.badlogic.gdx.utils.ObjectMap;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A {@link PackTarget} whose regions each come from a single source image, which allows
+ * the {@link PagePatcher} to process a changed region again and draw it over its previous
+ * image in the pages. Bundles with pack targets not implementing this are fully repacked.
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public interface PatchablePackTarget extends PackTarget {
+	/**
+	 * Lists the source image of every region this pack target creates for a type of texture
+	 *
+	 * @param bundle bundle for this pack target
+	 * @param textureType type of texture to list the regions of
+	 * @param baseDir input directory in which the sources are
+	 * @return map of region names to their source image
+	 */
+	ObjectMap<String, File> getRegionSources(AssetBundle bundle,
+	                                         TextureType textureType,
+	                                         File baseDir);
+
+	/**
+	 * Processes a single source image of this pack target the same way
+	 * {@link #process(AssetBundle, AssetResolution, File, File, File, File)} would before
+	 * it gets packed
+	 *
+	 * @param bundle bundle to pack
+	 * @param resolution resolution being packed at the moment
+	 * @param source source image, as listed by {@link #getRegionSources}
+	 * @param dest file to write the processed image to
+	 * @throws IOException if the image could not be processed
+	 */
+	void processRegion(AssetBundle bundle,
+	                   AssetResolution resolution,
+	                   File source,
+	                   File dest) throws IOException;
+}
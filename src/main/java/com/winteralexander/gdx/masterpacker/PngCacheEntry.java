@@ -0,0 +1,53 @@
+package com.winteralexander.gdx.masterpacker;
+
+import com.winteralexander.gdx.utils.io.Serializable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Stores a page optimized by the {@link PngOptimizer} in the PNG cache, that is the hash of
+ * the page before optimization and the hash of the PNG written for it
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class PngCacheEntry implements Serializable {
+	public String sourceHash = "";
+	public String outputHash = "";
+
+	/**
+	 * Time in milliseconds at which the page was optimized, the latest entry wins when
+	 * processes sharing the cache optimized the same destination
+	 */
+	public long time = -1L;
+
+	public PngCacheEntry() {}
+
+	public PngCacheEntry(String sourceHash, String outputHash, long time) {
+		this.sourceHash = sourceHash;
+		this.outputHash = outputHash;
+		this.time = time;
+	}
+
+	@Override
+	public void readFrom(InputStream input) throws IOException {
+		DataInputStream data = new DataInputStream(input);
+		sourceHash = data.readUTF();
+		outputHash = data.readUTF();
+		time = data.readLong();
+	}
+
+	@Override
+	public void writeTo(OutputStream output) throws IOException {
+		DataOutputStream data = new DataOutputStream(output);
+		data.writeUTF(sourceHash);
+		data.writeUTF(outputHash);
+		data.writeLong(time);
+		data.flush();
+	}
+}
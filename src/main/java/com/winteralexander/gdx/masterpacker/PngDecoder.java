@@ -0,0 +1,384 @@
+package com.winteralexander.gdx.masterpacker;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+
+/**
+ * Reads non-interlaced PNG images row by row, of any color type and bit depth. Rows are
+ * inflated and unfiltered as they are read, so only two rows are held in memory, whatever
+ * the height of the image.
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class PngDecoder implements Closeable {
+	private static final byte[] SIGNATURE = { (byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+	private final DataInputStream input;
+	private final int width, height, bitDepth, colorType;
+	private final boolean interlaced;
+	private final int bytesPerPixel;
+
+	private int[] palette = null;
+
+	/**
+	 * Gray or RGB samples of the transparent color at the bit depth of the image, -1 if none
+	 */
+	private long transparentSample = -1L;
+
+	private final Inflater inflater = new Inflater();
+	private final DataInputStream idat;
+
+	private byte[] previous, current;
+	private int rowsRead = 0;
+
+	/**
+	 * Starts reading a PNG image, reading its chunks up to its pixels
+	 *
+	 * @param input stream to read the image from, not closed by the decoder
+	 * @throws IOException if the stream is not a valid PNG image
+	 */
+	public PngDecoder(InputStream input) throws IOException {
+		ensureNotNull(input, "input");
+		this.input = new DataInputStream(input);
+
+		byte[] signature = new byte[SIGNATURE.length];
+		this.input.readFully(signature);
+		for(int i = 0; i < SIGNATURE.length; i++)
+			if(signature[i] != SIGNATURE[i])
+				throw new IOException("Not a PNG image");
+
+		if(this.input.readInt() != 13 || !"IHDR".equals(readChunkType()))
+			throw new IOException("PNG image doesn't start with its header");
+
+		width = this.input.readInt();
+		height = this.input.readInt();
+		bitDepth = this.input.readUnsignedByte();
+		colorType = this.input.readUnsignedByte();
+		int compression = this.input.readUnsignedByte();
+		int filterMethod = this.input.readUnsignedByte();
+		interlaced = this.input.readUnsignedByte() != 0;
+		this.input.readInt(); // crc
+
+		if(width <= 0 || height <= 0)
+			throw new IOException("Invalid PNG image size " + width + "x" + height);
+		if(compression != 0 || filterMethod != 0)
+			throw new IOException("Unsupported PNG compression or filter method");
+
+		int channels;
+		switch(colorType) {
+			case PngEncoder.COLOR_GRAY:
+			case PngEncoder.COLOR_PALETTE:
+				channels = 1;
+				break;
+			case PngEncoder.COLOR_GRAY_ALPHA:
+				channels = 2;
+				break;
+			case PngEncoder.COLOR_RGB:
+				channels = 3;
+				break;
+			case PngEncoder.COLOR_RGBA:
+				channels = 4;
+				break;
+			default:
+				throw new IOException("Unsupported PNG color type: " + colorType);
+		}
+
+		if(bitDepth != 1 && bitDepth != 2 && bitDepth != 4 && bitDepth != 8 && bitDepth != 16)
+			throw new IOException("Unsupported PNG bit depth: " + bitDepth);
+
+		bytesPerPixel = Math.max(1, channels * bitDepth / 8);
+		int rowBytes = (int)(((long)width * channels * bitDepth + 7L) / 8L);
+		previous = new byte[rowBytes];
+		current = new byte[rowBytes];
+
+		int idatLength = readChunksUntilPixels();
+		idat = new DataInputStream(new InflaterInputStream(new IdatInputStream(idatLength),
+				inflater, 64 * 1024));
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return true if the pixels of the image are stored in passes, in which case they can't
+	 * be read row by row
+	 */
+	public boolean isInterlaced() {
+		return interlaced;
+	}
+
+	/**
+	 * @return true if the image has an alpha channel or a transparent color
+	 */
+	public boolean hasAlpha() {
+		if(colorType == PngEncoder.COLOR_GRAY_ALPHA || colorType == PngEncoder.COLOR_RGBA)
+			return true;
+
+		if(colorType == PngEncoder.COLOR_PALETTE) {
+			for(int color : palette)
+				if(color >>> 24 != 0xFF)
+					return true;
+			return false;
+		}
+
+		return transparentSample != -1L;
+	}
+
+	/**
+	 * Reads the next row of the image
+	 *
+	 * @param pixels buffer to write the row to in ARGB8888
+	 * @param offset position of the first pixel of the row in the buffer
+	 * @throws IOException if the row could not be read
+	 */
+	public void readRow(int[] pixels, int offset) throws IOException {
+		if(interlaced)
+			throw new IllegalStateException("Interlaced images can't be read row by row");
+		if(rowsRead >= height)
+			throw new IllegalStateException("All rows were already read");
+
+		int filter = idat.readUnsignedByte();
+		idat.readFully(current);
+		unfilter(filter);
+
+		for(int x = 0; x < width; x++)
+			pixels[offset + x] = getPixel(x);
+
+		byte[] tmp = previous;
+		previous = current;
+		current = tmp;
+		rowsRead++;
+	}
+
+	/**
+	 * Releases the inflater of the decoder, without closing its stream
+	 */
+	@Override
+	public void close() {
+		inflater.end();
+	}
+
+	private int readChunksUntilPixels() throws IOException {
+		while(true) {
+			int length = input.readInt();
+			String type = readChunkType();
+
+			switch(type) {
+				case "IDAT":
+					if(colorType == PngEncoder.COLOR_PALETTE && palette == null)
+						throw new IOException("PNG image has no palette");
+					return length;
+				case "PLTE":
+					palette = new int[length / 3];
+					for(int i = 0; i < palette.length; i++)
+						palette[i] = 0xFF000000
+								| input.readUnsignedByte() << 16
+								| input.readUnsignedByte() << 8
+								| input.readUnsignedByte();
+					skipFully(length - palette.length * 3);
+					break;
+				case "tRNS":
+					if(colorType == PngEncoder.COLOR_PALETTE) {
+						if(palette == null)
+							throw new IOException("PNG transparency precedes its palette");
+						int count = Math.min(length, palette.length);
+						for(int i = 0; i < count; i++)
+							palette[i] = palette[i] & 0xFFFFFF | input.readUnsignedByte() << 24;
+						skipFully(length - count);
+					} else if(colorType == PngEncoder.COLOR_GRAY && length == 2) {
+						transparentSample = input.readUnsignedShort();
+					} else if(colorType == PngEncoder.COLOR_RGB && length == 6) {
+						transparentSample = (long)input.readUnsignedShort() << 32
+								| (long)input.readUnsignedShort() << 16
+								| input.readUnsignedShort();
+					} else
+						skipFully(length);
+					break;
+				case "IEND":
+					throw new IOException("PNG image has no pixels");
+				default:
+					skipFully(length);
+					break;
+			}
+			input.readInt(); // crc
+		}
+	}
+
+	private String readChunkType() throws IOException {
+		byte[] type = new byte[4];
+		input.readFully(type);
+		return new String(type, StandardCharsets.US_ASCII);
+	}
+
+	private void skipFully(int length) throws IOException {
+		int skipped = 0;
+		while(skipped < length) {
+			int count = input.skipBytes(length - skipped);
+			if(count <= 0) {
+				input.readByte(); // throws at the end of the stream
+				count = 1;
+			}
+			skipped += count;
+		}
+	}
+
+	private void unfilter(int type) throws IOException {
+		for(int i = 0; i < current.length; i++) {
+			int raw = current[i] & 0xFF;
+			int left = i >= bytesPerPixel ? current[i - bytesPerPixel] & 0xFF : 0;
+			int up = rowsRead > 0 ? previous[i] & 0xFF : 0;
+			int upLeft = rowsRead > 0 && i >= bytesPerPixel
+					? previous[i - bytesPerPixel] & 0xFF : 0;
+
+			switch(type) {
+				case PngEncoder.FILTER_NONE:
+					break;
+				case PngEncoder.FILTER_SUB:
+					current[i] = (byte)(raw + left);
+					break;
+				case PngEncoder.FILTER_UP:
+					current[i] = (byte)(raw + up);
+					break;
+				case PngEncoder.FILTER_AVERAGE:
+					current[i] = (byte)(raw + (left + up) / 2);
+					break;
+				case PngEncoder.FILTER_PAETH:
+					current[i] = (byte)(raw + paeth(left, up, upLeft));
+					break;
+				default:
+					throw new IOException("Invalid PNG row filter: " + type);
+			}
+		}
+	}
+
+	private static int paeth(int left, int up, int upLeft) {
+		int estimate = left + up - upLeft;
+		int distLeft = Math.abs(estimate - left);
+		int distUp = Math.abs(estimate - up);
+		int distUpLeft = Math.abs(estimate - upLeft);
+
+		if(distLeft <= distUp && distLeft <= distUpLeft)
+			return left;
+		return distUp <= distUpLeft ? up : upLeft;
+	}
+
+	private int getPixel(int x) {
+		switch(colorType) {
+			case PngEncoder.COLOR_GRAY: {
+				int sample = getSample(x);
+				int gray = to8Bits(sample);
+				int alpha = sample == transparentSample ? 0 : 0xFF;
+				return alpha << 24 | gray << 16 | gray << 8 | gray;
+			}
+			case PngEncoder.COLOR_PALETTE: {
+				int index = getSample(x);
+				return index < palette.length ? palette[index] : 0xFF000000;
+			}
+			case PngEncoder.COLOR_GRAY_ALPHA: {
+				int gray = to8Bits(getSample(x * 2));
+				int alpha = to8Bits(getSample(x * 2 + 1));
+				return alpha << 24 | gray << 16 | gray << 8 | gray;
+			}
+			case PngEncoder.COLOR_RGB: {
+				int red = getSample(x * 3), green = getSample(x * 3 + 1), blue = getSample(x * 3 + 2);
+				long rgb = (long)red << 32 | (long)green << 16 | blue;
+				int alpha = rgb == transparentSample ? 0 : 0xFF;
+				return alpha << 24 | to8Bits(red) << 16 | to8Bits(green) << 8 | to8Bits(blue);
+			}
+			default: {
+				int red = to8Bits(getSample(x * 4));
+				int green = to8Bits(getSample(x * 4 + 1));
+				int blue = to8Bits(getSample(x * 4 + 2));
+				int alpha = to8Bits(getSample(x * 4 + 3));
+				return alpha << 24 | red << 16 | green << 8 | blue;
+			}
+		}
+	}
+
+	/**
+	 * @param index index of the sample in the current row, counting every channel
+	 * @return value of the sample at the bit depth of the image
+	 */
+	private int getSample(int index) {
+		switch(bitDepth) {
+			case 8:
+				return current[index] & 0xFF;
+			case 16:
+				return (current[index * 2] & 0xFF) << 8 | current[index * 2 + 1] & 0xFF;
+			default:
+				int bit = index * bitDepth;
+				int shift = 8 - bitDepth - bit % 8;
+				return (current[bit / 8] & 0xFF) >> shift & (1 << bitDepth) - 1;
+		}
+	}
+
+	private int to8Bits(int sample) {
+		switch(bitDepth) {
+			case 8:
+				return sample;
+			case 16:
+				return sample >> 8;
+			default:
+				return sample * 255 / ((1 << bitDepth) - 1);
+		}
+	}
+
+	/**
+	 * Reads the data of consecutive IDAT chunks as a single stream
+	 */
+	private class IdatInputStream extends InputStream {
+		private int remaining;
+		private boolean ended = false;
+
+		private IdatInputStream(int length) {
+			this.remaining = length;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] single = new byte[1];
+			return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			if(length == 0)
+				return 0;
+
+			while(remaining == 0) {
+				if(ended)
+					return -1;
+
+				input.readInt(); // crc
+				int next = input.readInt();
+				if(!"IDAT".equals(readChunkType())) {
+					// rows are all inflated before reaching the chunks after the pixels
+					ended = true;
+					return -1;
+				}
+				remaining = next;
+			}
+
+			int count = input.read(buffer, offset, Math.min(length, remaining));
+			if(count == -1)
+				throw new EOFException("PNG image ended in its pixels");
+			remaining -= count;
+			return count;
+		}
+	}
+}
@@ -0,0 +1,326 @@
+package com.winteralexander.gdx.masterpacker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+
+/**
+ * Writes 8 bits PNG images row by row, with a choice of color type, row filter and deflate
+ * strategy. Rows are filtered and compressed as they are written, so only two rows are held
+ * in memory.
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class PngEncoder {
+	public static final int COLOR_GRAY = 0;
+	public static final int COLOR_RGB = 2;
+	public static final int COLOR_PALETTE = 3;
+	public static final int COLOR_GRAY_ALPHA = 4;
+	public static final int COLOR_RGBA = 6;
+
+	public static final int FILTER_NONE = 0;
+	public static final int FILTER_SUB = 1;
+	public static final int FILTER_UP = 2;
+	public static final int FILTER_AVERAGE = 3;
+	public static final int FILTER_PAETH = 4;
+
+	/**
+	 * Picks for every row the filter minimizing the sum of its absolute filtered values
+	 */
+	public static final int FILTER_ADAPTIVE = -1;
+
+	private static final byte[] SIGNATURE = { (byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+	private static final int CHUNK_SIZE = 256 * 1024;
+
+	private final DataOutputStream output;
+	private final int width, height, colorType, filter;
+	private final int bytesPerPixel;
+	private final Map<Integer, Integer> paletteIndices = new HashMap<>();
+
+	private final Deflater deflater;
+	private final DeflaterOutputStream idat;
+
+	private byte[] previous, current;
+	private final byte[][] filtered = new byte[5][];
+	private int rowsWritten = 0;
+
+	/**
+	 * Starts a PNG image, writing its header
+	 *
+	 * @param output stream to write the image to, not closed by the encoder
+	 * @param width width of the image
+	 * @param height height of the image
+	 * @param colorType color type of the image, one of the COLOR constants
+	 * @param palette colors of the palette in ARGB8888 for {@link #COLOR_PALETTE}, ignored
+	 * otherwise
+	 * @param filter filter applied to rows, one of the FILTER constants
+	 * @param deflateLevel compression level of the {@link Deflater}
+	 * @param deflateStrategy strategy of the {@link Deflater}
+	 * @throws IOException if the header could not be written
+	 */
+	public PngEncoder(OutputStream output,
+	                  int width,
+	                  int height,
+	                  int colorType,
+	                  int[] palette,
+	                  int filter,
+	                  int deflateLevel,
+	                  int deflateStrategy) throws IOException {
+		ensureNotNull(output, "output");
+		this.output = new DataOutputStream(output);
+		this.width = width;
+		this.height = height;
+		this.colorType = colorType;
+		this.filter = filter;
+
+		switch(colorType) {
+			case COLOR_GRAY:
+			case COLOR_PALETTE:
+				bytesPerPixel = 1;
+				break;
+			case COLOR_GRAY_ALPHA:
+				bytesPerPixel = 2;
+				break;
+			case COLOR_RGB:
+				bytesPerPixel = 3;
+				break;
+			case COLOR_RGBA:
+				bytesPerPixel = 4;
+				break;
+			default:
+				throw new IllegalArgumentException("Unsupported color type: " + colorType);
+		}
+
+		previous = new byte[width * bytesPerPixel];
+		current = new byte[width * bytesPerPixel];
+
+		this.output.write(SIGNATURE);
+
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(header);
+		data.writeInt(width);
+		data.writeInt(height);
+		data.writeByte(8); // bit depth
+		data.writeByte(colorType);
+		data.writeByte(0); // deflate
+		data.writeByte(0); // adaptive filtering
+		data.writeByte(0); // no interlace
+		writeChunk("IHDR", header.toByteArray(), header.size());
+
+		if(colorType == COLOR_PALETTE) {
+			ensureNotNull(palette, "palette");
+			if(palette.length == 0 || palette.length > 256)
+				throw new IllegalArgumentException("Palette must have 1 to 256 colors");
+
+			byte[] plte = new byte[palette.length * 3];
+			int transparent = 0;
+			for(int i = 0; i < palette.length; i++) {
+				plte[i * 3] = (byte)(palette[i] >> 16);
+				plte[i * 3 + 1] = (byte)(palette[i] >> 8);
+				plte[i * 3 + 2] = (byte)palette[i];
+				paletteIndices.put(palette[i], i);
+				if(palette[i] >>> 24 != 0xFF)
+					transparent = i + 1;
+			}
+			writeChunk("PLTE", plte, plte.length);
+
+			// alpha of entries past the last translucent one defaults to opaque
+			if(transparent > 0) {
+				byte[] trns = new byte[transparent];
+				for(int i = 0; i < transparent; i++)
+					trns[i] = (byte)(palette[i] >>> 24);
+				writeChunk("tRNS", trns, trns.length);
+			}
+		}
+
+		deflater = new Deflater(deflateLevel);
+		deflater.setStrategy(deflateStrategy);
+		idat = new DeflaterOutputStream(new IdatOutputStream(), deflater, 64 * 1024);
+	}
+
+	/**
+	 * Writes the next row of the image
+	 *
+	 * @param pixels buffer holding the row in ARGB8888
+	 * @param offset position of the first pixel of the row in the buffer
+	 * @throws IOException if the row could not be written
+	 */
+	public void writeRow(int[] pixels, int offset) throws IOException {
+		if(rowsWritten >= height)
+			throw new IllegalStateException("All rows were already written");
+
+		for(int x = 0; x < width; x++) {
+			int pixel = pixels[offset + x];
+			int i = x * bytesPerPixel;
+
+			switch(colorType) {
+				case COLOR_GRAY:
+					current[i] = (byte)pixel;
+					break;
+				case COLOR_GRAY_ALPHA:
+					current[i] = (byte)pixel;
+					current[i + 1] = (byte)(pixel >>> 24);
+					break;
+				case COLOR_RGB:
+				case COLOR_RGBA:
+					current[i] = (byte)(pixel >> 16);
+					current[i + 1] = (byte)(pixel >> 8);
+					current[i + 2] = (byte)pixel;
+					if(colorType == COLOR_RGBA)
+						current[i + 3] = (byte)(pixel >>> 24);
+					break;
+				case COLOR_PALETTE:
+					Integer index = paletteIndices.get(pixel);
+					if(index == null)
+						throw new IllegalArgumentException("Color not in palette: "
+								+ Integer.toHexString(pixel));
+					current[i] = (byte)(int)index;
+					break;
+			}
+		}
+
+		int rowFilter = filter;
+		if(filter == FILTER_ADAPTIVE) {
+			long bestSum = Long.MAX_VALUE;
+			for(int candidate = FILTER_NONE; candidate <= FILTER_PAETH; candidate++) {
+				long sum = 0L;
+				for(byte value : filter(candidate))
+					sum += Math.abs((int)value);
+
+				if(sum < bestSum) {
+					bestSum = sum;
+					rowFilter = candidate;
+				}
+			}
+		}
+
+		idat.write(rowFilter);
+		idat.write(filter(rowFilter));
+
+		byte[] tmp = previous;
+		previous = current;
+		current = tmp;
+		rowsWritten++;
+	}
+
+	/**
+	 * Completes the image. Every row must have been written.
+	 *
+	 * @throws IOException if the end of the image could not be written
+	 */
+	public void finish() throws IOException {
+		if(rowsWritten != height)
+			throw new IllegalStateException("Only " + rowsWritten + " of " + height +
+					" rows were written");
+
+		idat.finish();
+		deflater.end();
+		idat.flush();
+		writeChunk("IEND", new byte[0], 0);
+		output.flush();
+	}
+
+	private byte[] filter(int type) {
+		if(filtered[type] == null)
+			filtered[type] = new byte[current.length];
+		byte[] out = filtered[type];
+
+		for(int i = 0; i < current.length; i++) {
+			int raw = current[i] & 0xFF;
+			int left = i >= bytesPerPixel ? current[i - bytesPerPixel] & 0xFF : 0;
+			int up = rowsWritten > 0 ? previous[i] & 0xFF : 0;
+			int upLeft = rowsWritten > 0 && i >= bytesPerPixel
+					? previous[i - bytesPerPixel] & 0xFF : 0;
+
+			switch(type) {
+				case FILTER_NONE:
+					out[i] = (byte)raw;
+					break;
+				case FILTER_SUB:
+					out[i] = (byte)(raw - left);
+					break;
+				case FILTER_UP:
+					out[i] = (byte)(raw - up);
+					break;
+				case FILTER_AVERAGE:
+					out[i] = (byte)(raw - (left + up) / 2);
+					break;
+				case FILTER_PAETH:
+					out[i] = (byte)(raw - paeth(left, up, upLeft));
+					break;
+				default:
+					throw new IllegalArgumentException("Unsupported filter: " + type);
+			}
+		}
+		return out;
+	}
+
+	private static int paeth(int left, int up, int upLeft) {
+		int estimate = left + up - upLeft;
+		int distanceLeft = Math.abs(estimate - left);
+		int distanceUp = Math.abs(estimate - up);
+		int distanceUpLeft = Math.abs(estimate - upLeft);
+
+		if(distanceLeft <= distanceUp && distanceLeft <= distanceUpLeft)
+			return left;
+		return distanceUp <= distanceUpLeft ? up : upLeft;
+	}
+
+	private void writeChunk(String type, byte[] data, int length) throws IOException {
+		byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+		CRC32 crc = new CRC32();
+		crc.update(typeBytes);
+		crc.update(data, 0, length);
+
+		output.writeInt(length);
+		output.write(typeBytes);
+		output.write(data, 0, length);
+		output.writeInt((int)crc.getValue());
+	}
+
+	/**
+	 * Splits compressed data in IDAT chunks
+	 */
+	private class IdatOutputStream extends OutputStream {
+		private final byte[] buffer = new byte[CHUNK_SIZE];
+		private int size = 0;
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte)b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while(len > 0) {
+				int count = Math.min(len, buffer.length - size);
+				System.arraycopy(b, off, buffer, size, count);
+				size += count;
+				off += count;
+				len -= count;
+
+				if(size == buffer.length)
+					flush();
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if(size > 0) {
+				writeChunk("IDAT", buffer, size);
+				size = 0;
+			}
+		}
+	}
+}
@@ -0,0 +1,239 @@
+package com.winteralexander.gdx.masterpacker;
+
+import com.badlogic.gdx.utils.ObjectMap;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Losslessly recompresses PNG pages, trying color type reductions, row filters and deflate
+ * strategies within a time budget per page and keeping the smallest result. Pages are
+ * optimized in parallel on a thread pool.
+ * <p>
+ * The hashes of every page before and after optimization are remembered with its
+ * destination, so a page whose content did not change since it was last optimized reuses
+ * its previous output, as long as the destination still holds that output.
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class PngOptimizer implements Closeable {
+	private final long timeBudget;
+	private final ExecutorService executor;
+	private final ObjectMap<String, PngCacheEntry> optimizedPages = new ObjectMap<>();
+
+	/**
+	 * @param timeBudget time in milliseconds after which no new attempt is started on a
+	 * page, at least one attempt is always made
+	 * @param threads amount of pages optimized at the same time
+	 */
+	public PngOptimizer(long timeBudget, int threads) {
+		this.timeBudget = timeBudget;
+		this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "png-optimizer");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Optimizes the pages of an atlas staged for commit, in parallel
+	 *
+	 * @param stagingDir directory in which the atlas was packed
+	 * @param outDir final output directory of the atlas
+	 * @param atlasName name of the atlas
+	 * @throws IOException if a page could not be optimized
+	 */
+	public void optimizeAtlas(File stagingDir, File outDir, String atlasName) throws IOException {
+		ensureNotNull(stagingDir, "stagingDir");
+		ensureNotNull(outDir, "outDir");
+		ensureNotNull(atlasName, "atlasName");
+
+		Pattern pagePattern = Pattern.compile(Pattern.quote(atlasName) + "\\d*\\.png");
+		File[] files = stagingDir.listFiles();
+		if(files == null)
+			return;
+
+		List<Future<?>> futures = new ArrayList<>();
+		for(File file : files)
+			if(file.isFile() && pagePattern.matcher(file.getName()).matches())
+				futures.add(executor.submit(() -> {
+					optimize(file, new File(outDir, file.getName()));
+					return null;
+				}));
+
+		for(Future<?> future : futures) {
+			try {
+				future.get();
+			} catch(InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while optimizing pages", ex);
+			} catch(ExecutionException ex) {
+				throw new IOException("Failed to optimize a page of " + atlasName, ex.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Optimizes a PNG in place. If it has the same content as the last PNG optimized for the
+	 * same destination and that destination still holds the output of that optimization, it
+	 * is replaced by a copy of the destination instead.
+	 *
+	 * @param staged PNG to optimize
+	 * @param destination file the PNG will be committed to
+	 * @throws IOException if the PNG could not be read or written
+	 */
+	public void optimize(File staged, File destination) throws IOException {
+		String sourceHash = OutputCommitter.hash(staged);
+		String key = destination.getAbsolutePath();
+
+		PngCacheEntry last;
+		synchronized(optimizedPages) {
+			last = optimizedPages.get(key);
+		}
+
+		// the destination may have been written since by another process or a run without
+		// optimization, it is only reused if it is still the output remembered
+		if(last != null && sourceHash.equals(last.sourceHash) && destination.isFile()
+				&& last.outputHash.equals(OutputCommitter.hash(destination))) {
+			Files.copy(destination.toPath(), staged.toPath(), REPLACE_EXISTING);
+			return;
+		}
+
+		BufferedImage image = ImageIO.read(staged);
+		int width = image.getWidth(), height = image.getHeight();
+		int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
+		byte[] best = null;
+		long deadline = System.currentTimeMillis() + timeBudget;
+
+		for(Attempt attempt : getAttempts(pixels)) {
+			if(best != null && System.currentTimeMillis() > deadline)
+				break;
+
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			PngEncoder encoder = new PngEncoder(output, width, height, attempt.colorType,
+					attempt.palette, attempt.filter, Deflater.BEST_COMPRESSION, attempt.strategy);
+			for(int y = 0; y < height; y++)
+				encoder.writeRow(pixels, y * width);
+			encoder.finish();
+
+			if(best == null || output.size() < best.length)
+				best = output.toByteArray();
+		}
+
+		if(best != null && best.length < staged.length())
+			Files.write(staged.toPath(), best);
+
+		PngCacheEntry entry = new PngCacheEntry(sourceHash, OutputCommitter.hash(staged),
+				System.currentTimeMillis());
+		synchronized(optimizedPages) {
+			optimizedPages.put(key, entry);
+		}
+	}
+
+	/**
+	 * Lists the encodings to try for an image, most promising first
+	 */
+	private static List<Attempt> getAttempts(int[] pixels) {
+		boolean opaque = true, gray = true;
+		Set<Integer> colors = new LinkedHashSet<>();
+
+		for(int pixel : pixels) {
+			opaque &= pixel >>> 24 == 0xFF;
+			gray &= (pixel >> 16 & 0xFF) == (pixel & 0xFF) && (pixel >> 8 & 0xFF) == (pixel & 0xFF);
+			if(colors.size() <= 256)
+				colors.add(pixel);
+		}
+
+		int colorType = gray
+				? opaque ? PngEncoder.COLOR_GRAY : PngEncoder.COLOR_GRAY_ALPHA
+				: opaque ? PngEncoder.COLOR_RGB : PngEncoder.COLOR_RGBA;
+
+		List<Attempt> attempts = new ArrayList<>();
+
+		if(colors.size() <= 256) {
+			// translucent entries first keeps the tRNS chunk short
+			int[] palette = colors.stream()
+					.sorted((a, b) -> Integer.compare(a >>> 24 == 0xFF ? 1 : 0, b >>> 24 == 0xFF ? 1 : 0))
+					.mapToInt(Integer::intValue)
+					.toArray();
+			attempts.add(new Attempt(PngEncoder.COLOR_PALETTE, palette,
+					PngEncoder.FILTER_NONE, Deflater.DEFAULT_STRATEGY));
+			attempts.add(new Attempt(PngEncoder.COLOR_PALETTE, palette,
+					PngEncoder.FILTER_ADAPTIVE, Deflater.DEFAULT_STRATEGY));
+		}
+
+		for(int strategy : new int[] { Deflater.DEFAULT_STRATEGY, Deflater.FILTERED })
+			attempts.add(new Attempt(colorType, null, PngEncoder.FILTER_ADAPTIVE, strategy));
+
+		for(int filter : new int[] { PngEncoder.FILTER_PAETH, PngEncoder.FILTER_UP,
+				PngEncoder.FILTER_SUB, PngEncoder.FILTER_AVERAGE, PngEncoder.FILTER_NONE })
+			for(int strategy : new int[] { Deflater.DEFAULT_STRATEGY, Deflater.FILTERED })
+				attempts.add(new Attempt(colorType, null, filter, strategy));
+
+		return attempts;
+	}
+
+	/**
+	 * Reads the hashes of pages optimized by previous runs
+	 *
+	 * @param file file to read from, ignored if it doesn't exist
+	 */
+	public void readCache(File file) {
+		synchronized(optimizedPages) {
+			CacheFile.read(file, String.class, PngCacheEntry.class, optimizedPages);
+		}
+	}
+
+	/**
+	 * Writes the hashes of optimized pages for the next runs, merged with those written by
+	 * other processes sharing the cache
+	 *
+	 * @param file file to write to
+	 * @throws IOException if the file could not be written
+	 */
+	public void writeCache(File file) throws IOException {
+		synchronized(optimizedPages) {
+			CacheFile.write(file, String.class, PngCacheEntry.class, optimizedPages,
+					(mine, theirs) -> mine.time >= theirs.time ? mine : theirs);
+		}
+	}
+
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+
+	private static class Attempt {
+		private final int colorType;
+		private final int[] palette;
+		private final int filter, strategy;
+
+		public Attempt(int colorType, int[] palette, int filter, int strategy) {
+			this.colorType = colorType;
+			this.palette = palette;
+			this.filter = filter;
+			this.strategy = strategy;
+		}
+	}
+}
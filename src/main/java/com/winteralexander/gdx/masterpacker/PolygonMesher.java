@@ -0,0 +1,440 @@
+package com.winteralexander.gdx.masterpacker;
+
+import com.badlogic.gdx.graphics.g2d.PolygonRegion;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.AtlasRegion;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+
+/**
+ * Computes a mesh around the visible pixels of regions so they can be drawn as polygons
+ * instead of quads, cutting the transparent area rasterized at runtime.
+ * <p>
+ * The mesh is the convex hull of the pixels with non-zero alpha, simplified to a vertex
+ * budget by replacing edges with the intersection of their neighbours until it fits, so
+ * the mesh keeps covering every visible pixel. It is stored in the atlas under the region
+ * as one {@code vertices: x, y} line per vertex followed by one {@code triangles: a, b, c}
+ * line per triangle. Vertices are in pixels relative to the bottom left corner of the
+ * packed region, before rotation, as expected by {@link PolygonRegion}. Regions without
+ * any visible pixel get no mesh. {@link #toPolygonRegion(AtlasRegion)} rebuilds the polygon
+ * of a region once the atlas is loaded.
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class PolygonMesher {
+	/**
+	 * Adds a mesh to the regions of an atlas, computing them in parallel
+	 *
+	 * @param atlasDir directory of the atlas and its pages
+	 * @param atlasContent lines of the atlas, modified in place
+	 * @param vertexBudgets maximum amount of vertices of the mesh of a region by name, 0 or
+	 * less for regions which don't have a mesh
+	 * @throws IOException if a page could not be read
+	 */
+	public static void addMeshes(File atlasDir,
+	                             List<String> atlasContent,
+	                             ToIntFunction<String> vertexBudgets) throws IOException {
+		ensureNotNull(atlasDir, "atlasDir");
+		ensureNotNull(atlasContent, "atlasContent");
+		ensureNotNull(vertexBudgets, "vertexBudgets");
+
+		List<MeshedRegion> regions = new ArrayList<>();
+		MeshedRegion current = null;
+		String page = null;
+		boolean pageStart = true;
+
+		for(int i = 0; i < atlasContent.size(); i++) {
+			String line = atlasContent.get(i);
+
+			if(line.isEmpty()) {
+				pageStart = true;
+				continue;
+			}
+
+			if(!line.startsWith(" ")) {
+				if(pageStart) {
+					page = line;
+					pageStart = false;
+					current = null;
+					continue;
+				}
+
+				int budget = line.contains(":") ? 0 : vertexBudgets.applyAsInt(line);
+				current = budget > 0 ? new MeshedRegion(line, page, budget) : null;
+				if(current != null)
+					regions.add(current);
+				continue;
+			}
+
+			if(current == null)
+				continue;
+
+			current.end = i + 1;
+			String[] values = line.substring(line.indexOf(':') + 1).trim().split(",");
+			if(line.startsWith("  rotate:"))
+				current.rotated = !values[0].trim().equals("false");
+			else if(line.startsWith("  xy:")) {
+				current.x = Integer.parseInt(values[0].trim());
+				current.y = Integer.parseInt(values[1].trim());
+			} else if(line.startsWith("  size:")) {
+				current.width = Integer.parseInt(values[0].trim());
+				current.height = Integer.parseInt(values[1].trim());
+			} else if(line.startsWith("  bounds:")) {
+				// atlases not written in the legacy format hold position and size together
+				current.x = Integer.parseInt(values[0].trim());
+				current.y = Integer.parseInt(values[1].trim());
+				current.width = Integer.parseInt(values[2].trim());
+				current.height = Integer.parseInt(values[3].trim());
+			}
+		}
+
+		if(regions.isEmpty())
+			return;
+
+		Map<String, BufferedImage> pages = new HashMap<>();
+		for(MeshedRegion region : regions)
+			if(!pages.containsKey(region.page)) {
+				File pageFile = new File(atlasDir, region.page);
+				BufferedImage image = ImageIO.read(pageFile);
+				if(image == null)
+					throw new IOException("Could not read page " + pageFile);
+				pages.put(region.page, image);
+			}
+
+		try {
+			regions.parallelStream().forEach(region -> region.mesh(pages.get(region.page)));
+		} catch(UncheckedIOException ex) {
+			throw ex.getCause();
+		}
+
+		// inserted from the end so the line positions of previous regions stay valid
+		for(int i = regions.size(); i --> 0; ) {
+			MeshedRegion region = regions.get(i);
+			if(region.vertices != null)
+				atlasContent.addAll(region.end, region.toLines());
+		}
+	}
+
+	/**
+	 * Builds the polygon of a region of a loaded atlas from the mesh stored in its fields
+	 *
+	 * @param region region of the atlas
+	 * @return polygon of the region, or null if the region has no mesh
+	 */
+	public static PolygonRegion toPolygonRegion(AtlasRegion region) {
+		ensureNotNull(region, "region");
+		return toPolygonRegion(region, region.names, region.values);
+	}
+
+	/**
+	 * Builds the polygon of a region from the mesh stored in the fields of its atlas data,
+	 * as read by {@link TextureAtlasData} or {@link BinaryAtlasLoader}
+	 *
+	 * @param region texture of the region
+	 * @param data data of the region in its atlas
+	 * @return polygon of the region, or null if the region has no mesh
+	 */
+	public static PolygonRegion toPolygonRegion(TextureRegion region, TextureAtlasData.Region data) {
+		ensureNotNull(region, "region");
+		ensureNotNull(data, "data");
+		return toPolygonRegion(region, data.names, data.values);
+	}
+
+	private static PolygonRegion toPolygonRegion(TextureRegion region,
+	                                             String[] names,
+	                                             int[][] values) {
+		if(names == null)
+			return null;
+
+		// the mesh is stored as repeated fields, only the first of which findValue returns
+		int vertexCount = 0, triangleCount = 0;
+		for(String name : names)
+			if("vertices".equals(name))
+				vertexCount++;
+			else if("triangles".equals(name))
+				triangleCount++;
+
+		if(vertexCount < 3 || triangleCount == 0)
+			return null;
+
+		float[] vertices = new float[vertexCount * 2];
+		short[] triangles = new short[triangleCount * 3];
+		int vertex = 0, triangle = 0;
+
+		for(int i = 0; i < names.length; i++)
+			if("vertices".equals(names[i])) {
+				vertices[vertex++] = values[i][0];
+				vertices[vertex++] = values[i][1];
+			} else if("triangles".equals(names[i])) {
+				for(int j = 0; j < 3; j++)
+					triangles[triangle++] = (short)values[i][j];
+			}
+
+		return new PolygonRegion(region, vertices, triangles);
+	}
+
+	/**
+	 * Computes the convex hull of the visible pixels of an image
+	 *
+	 * @param alpha alpha of the pixels, row by row from the top
+	 * @param width width of the image
+	 * @param height height of the image
+	 * @return vertices of the hull in counter-clockwise order as x, y pairs with y going up,
+	 * or null if no pixel is visible
+	 */
+	public static float[] computeHull(int[] alpha, int width, int height) {
+		List<float[]> corners = new ArrayList<>();
+
+		for(int y = 0; y < height; y++) {
+			int left = -1, right = -1;
+			for(int x = 0; x < width; x++)
+				if(alpha[y * width + x] != 0) {
+					if(left == -1)
+						left = x;
+					right = x;
+				}
+
+			if(left == -1)
+				continue;
+
+			// corners of the outermost pixels, bottom up
+			corners.add(new float[] { left, height - y - 1 });
+			corners.add(new float[] { left, height - y });
+			corners.add(new float[] { right + 1, height - y - 1 });
+			corners.add(new float[] { right + 1, height - y });
+		}
+
+		if(corners.isEmpty())
+			return null;
+
+		corners.sort((a, b) -> a[0] != b[0] ? Float.compare(a[0], b[0]) : Float.compare(a[1], b[1]));
+
+		// monotone chain, dropping collinear points
+		float[][] hull = new float[corners.size() * 2][];
+		int size = 0;
+		for(float[] point : corners) {
+			while(size >= 2 && cross(hull[size - 2], hull[size - 1], point) <= 0)
+				size--;
+			hull[size++] = point;
+		}
+		for(int i = corners.size() - 2, lower = size + 1; i >= 0; i--) {
+			float[] point = corners.get(i);
+			while(size >= lower && cross(hull[size - 2], hull[size - 1], point) <= 0)
+				size--;
+			hull[size++] = point;
+		}
+		size--; // last point is the first one
+
+		float[] vertices = new float[size * 2];
+		for(int i = 0; i < size; i++) {
+			vertices[i * 2] = hull[i][0];
+			vertices[i * 2 + 1] = hull[i][1];
+		}
+		return vertices;
+	}
+
+	/**
+	 * Reduces the amount of vertices of a convex polygon without uncovering any of its area.
+	 * The edge whose removal adds the least area is replaced by the intersection of its
+	 * neighbouring edges until the budget is met. Intersections outside of the bounds are
+	 * never used.
+	 *
+	 * @param vertices vertices of the polygon in counter-clockwise order
+	 * @param budget maximum amount of vertices, at least 3
+	 * @param width width of the bounds
+	 * @param height height of the bounds
+	 * @return simplified polygon, or the bounds if the polygon can't be simplified enough
+	 */
+	public static float[] simplify(float[] vertices, int budget, int width, int height) {
+		if(budget < 3)
+			throw new IllegalArgumentException("Vertex budget must be at least 3");
+
+		List<float[]> points = new ArrayList<>();
+		for(int i = 0; i < vertices.length; i += 2)
+			points.add(new float[] { vertices[i], vertices[i + 1] });
+
+		while(points.size() > budget) {
+			int n = points.size(), best = -1;
+			float bestArea = Float.MAX_VALUE;
+			float[] bestPoint = null;
+
+			for(int i = 0; i < n; i++) {
+				float[] before = points.get((i + n - 1) % n);
+				float[] start = points.get(i);
+				float[] end = points.get((i + 1) % n);
+				float[] after = points.get((i + 2) % n);
+
+				float[] intersection = intersect(before, start, end, after);
+				if(intersection == null
+						|| intersection[0] < 0f || intersection[0] > width
+						|| intersection[1] < 0f || intersection[1] > height)
+					continue;
+
+				float area = Math.abs(cross(start, intersection, end)) / 2f;
+				if(area < bestArea) {
+					bestArea = area;
+					best = i;
+					bestPoint = intersection;
+				}
+			}
+
+			if(best == -1)
+				return new float[] { 0, 0, width, 0, width, height, 0, height };
+
+			points.set(best, bestPoint);
+			points.remove((best + 1) % n);
+		}
+
+		float[] simplified = new float[points.size() * 2];
+		for(int i = 0; i < points.size(); i++) {
+			simplified[i * 2] = points.get(i)[0];
+			simplified[i * 2 + 1] = points.get(i)[1];
+		}
+		return simplified;
+	}
+
+	/**
+	 * Triangulates a convex polygon as a fan around its first vertex
+	 *
+	 * @param vertexCount amount of vertices of the polygon
+	 * @return indices of the vertices of the triangles
+	 */
+	public static short[] triangulate(int vertexCount) {
+		short[] triangles = new short[(vertexCount - 2) * 3];
+		for(int i = 0; i < vertexCount - 2; i++) {
+			triangles[i * 3] = 0;
+			triangles[i * 3 + 1] = (short)(i + 1);
+			triangles[i * 3 + 2] = (short)(i + 2);
+		}
+		return triangles;
+	}
+
+	/**
+	 * Intersects the line going through the first edge with the line going through the
+	 * second one, past the end of the first edge and before the start of the second one
+	 *
+	 * @return intersection, or null if the edges diverge
+	 */
+	private static float[] intersect(float[] a, float[] b, float[] c, float[] d) {
+		float abX = b[0] - a[0], abY = b[1] - a[1];
+		float cdX = d[0] - c[0], cdY = d[1] - c[1];
+		float denominator = abX * cdY - abY * cdX;
+
+		if(denominator == 0f)
+			return null;
+
+		float t = ((c[0] - a[0]) * cdY - (c[1] - a[1]) * cdX) / denominator;
+		float s = ((c[0] - a[0]) * abY - (c[1] - a[1]) * abX) / denominator;
+
+		if(t < 1f || s > 0f)
+			return null;
+
+		return new float[] { a[0] + abX * t, a[1] + abY * t };
+	}
+
+	private static float cross(float[] o, float[] a, float[] b) {
+		return (a[0] - o[0]) * (b[1] - o[1]) - (a[1] - o[1]) * (b[0] - o[0]);
+	}
+
+	private static class MeshedRegion {
+		private final String name, page;
+		private final int budget;
+		private boolean rotated = false;
+		private int x, y, width, height, end;
+
+		private int[] vertices;
+		private short[] triangles;
+
+		public MeshedRegion(String name, String page, int budget) {
+			this.name = name;
+			this.page = page;
+			this.budget = budget;
+		}
+
+		private void mesh(BufferedImage image) {
+			if(width <= 0 || height <= 0)
+				throw new UncheckedIOException(new IOException("Region " + name +
+						" has no size in the atlas, it can't get a mesh"));
+
+			// rotated regions are stored turned counter-clockwise, their width going down
+			int packedWidth = rotated ? height : width;
+			int packedHeight = rotated ? width : height;
+			if(x < 0 || y < 0 || x + packedWidth > image.getWidth()
+					|| y + packedHeight > image.getHeight())
+				throw new UncheckedIOException(new IOException("Region at " + x + ", " + y +
+						" is outside of page " + page));
+
+			int[] pixels = image.getRGB(x, y, packedWidth, packedHeight, null, 0, packedWidth);
+			int[] alpha = new int[width * height];
+			for(int py = 0; py < height; py++)
+				for(int px = 0; px < width; px++) {
+					int pixel = rotated
+							? pixels[(width - 1 - px) * packedWidth + py]
+							: pixels[py * width + px];
+					alpha[py * width + px] = pixel >>> 24;
+				}
+
+			float[] hull = computeHull(alpha, width, height);
+			if(hull == null)
+				return;
+
+			float[] simplified = simplify(hull, budget, width, height);
+			float centerX = 0f, centerY = 0f;
+			for(int i = 0; i < simplified.length; i += 2) {
+				centerX += simplified[i];
+				centerY += simplified[i + 1];
+			}
+			centerX /= simplified.length / 2f;
+			centerY /= simplified.length / 2f;
+
+			// rounded away from the center so the mesh still covers the hull
+			int[] rounded = new int[simplified.length];
+			int count = 0;
+			for(int i = 0; i < simplified.length; i += 2) {
+				float vx = simplified[i], vy = simplified[i + 1];
+				int rx = (int)(vx < centerX ? Math.floor(vx) : Math.ceil(vx));
+				int ry = (int)(vy < centerY ? Math.floor(vy) : Math.ceil(vy));
+				rx = Math.max(0, Math.min(width, rx));
+				ry = Math.max(0, Math.min(height, ry));
+
+				if(count > 0 && rounded[count - 2] == rx && rounded[count - 1] == ry)
+					continue;
+				rounded[count++] = rx;
+				rounded[count++] = ry;
+			}
+
+			if(count > 2 && rounded[0] == rounded[count - 2] && rounded[1] == rounded[count - 1])
+				count -= 2;
+
+			if(count < 6)
+				return;
+
+			vertices = new int[count];
+			System.arraycopy(rounded, 0, vertices, 0, count);
+			triangles = triangulate(count / 2);
+		}
+
+		private List<String> toLines() {
+			List<String> lines = new ArrayList<>();
+			for(int i = 0; i < vertices.length; i += 2)
+				lines.add("  vertices: " + vertices[i] + ", " + vertices[i + 1]);
+			for(int i = 0; i < triangles.length; i += 3)
+				lines.add("  triangles: " + triangles[i] + ", " + triangles[i + 1] + ", " +
+						triangles[i + 2]);
+			return lines;
+		}
+	}
+}
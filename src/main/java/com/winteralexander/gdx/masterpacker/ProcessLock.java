@@ -0,0 +1,127 @@
+package com.winteralexander.gdx.masterpacker;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Exclusive lock on a lock file, shared by every process and thread using the same file.
+ * Used to coordinate several packers working with the same cache directory. Threads of the
+ * same process are serialized separately since file locks are held by the whole process. A
+ * lock isn't reentrant and can be released by another thread than the one which acquired it.
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class ProcessLock implements Closeable {
+	private static final Map<String, Semaphore> threadLocks = new ConcurrentHashMap<>();
+
+	private final Semaphore threadLock;
+	private final FileChannel channel;
+	private final FileLock lock;
+	private boolean closed = false;
+
+	private ProcessLock(Semaphore threadLock, FileChannel channel, FileLock lock) {
+		this.threadLock = threadLock;
+		this.channel = channel;
+		this.lock = lock;
+	}
+
+	/**
+	 * Acquires the lock of a file, waiting for the process or thread holding it to release it
+	 *
+	 * @param file lock file, created if it doesn't exist
+	 * @return lock acquired, to close to release it
+	 * @throws IOException if the lock file could not be opened or locked
+	 */
+	public static ProcessLock acquire(File file) throws IOException {
+		ensureNotNull(file, "file");
+		file.getAbsoluteFile().getParentFile().mkdirs();
+
+		Semaphore threadLock = threadLocks.computeIfAbsent(file.getCanonicalPath(),
+				path -> new Semaphore(1));
+		try {
+			threadLock.acquire();
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for " + file, ex);
+		}
+
+		FileChannel channel = null;
+		try {
+			channel = FileChannel.open(file.toPath(), CREATE, WRITE);
+			FileLock lock = channel.tryLock();
+
+			if(lock == null) {
+				System.out.println("Waiting for another process to release " + file);
+				lock = channel.lock();
+			}
+			return new ProcessLock(threadLock, channel, lock);
+		} catch(IOException | RuntimeException ex) {
+			if(channel != null)
+				channel.close();
+			threadLock.release();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Acquires the lock of a file if no other process or thread holds it
+	 *
+	 * @param file lock file, created if it doesn't exist
+	 * @return lock acquired, to close to release it, or null if it is held elsewhere
+	 * @throws IOException if the lock file could not be opened
+	 */
+	public static ProcessLock tryAcquire(File file) throws IOException {
+		ensureNotNull(file, "file");
+		file.getAbsoluteFile().getParentFile().mkdirs();
+
+		Semaphore threadLock = threadLocks.computeIfAbsent(file.getCanonicalPath(),
+				path -> new Semaphore(1));
+		if(!threadLock.tryAcquire())
+			return null;
+
+		FileChannel channel = null;
+		try {
+			channel = FileChannel.open(file.toPath(), CREATE, WRITE);
+			FileLock lock = channel.tryLock();
+
+			if(lock == null) {
+				channel.close();
+				threadLock.release();
+				return null;
+			}
+			return new ProcessLock(threadLock, channel, lock);
+		} catch(IOException | RuntimeException ex) {
+			if(channel != null)
+				channel.close();
+			threadLock.release();
+			throw ex;
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		// released once only, releasing the semaphore again would let two threads in
+		if(closed)
+			return;
+		closed = true;
+
+		try {
+			lock.release();
+			channel.close();
+		} finally {
+			threadLock.release();
+		}
+	}
+}
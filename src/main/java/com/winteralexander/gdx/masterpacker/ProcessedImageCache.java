@@ -0,0 +1,115 @@
+package com.winteralexander.gdx.masterpacker;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide cache of source images already processed for packing, so a source packed in
+ * several bundles or resolutions with the same parameters is only extended and downscaled
+ * once. Processed images are kept encoded, as written to the input directory of the packer,
+ * which still decodes them for every atlas they are packed in. They are keyed by the
+ * identity of their source file and the parameters they were processed with, and evicted in
+ * least recently used order once their total size exceeds the budget.
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class ProcessedImageCache {
+	public static final long DEFAULT_MAX_BYTES = 256L * 1024L * 1024L;
+
+	private static final ProcessedImageCache instance = new ProcessedImageCache(DEFAULT_MAX_BYTES);
+
+	private final LinkedHashMap<String, byte[]> images = new LinkedHashMap<>(16, 0.75f, true);
+	private long maxBytes;
+	private long bytes = 0L;
+	private long hits = 0L, misses = 0L, evictions = 0L;
+
+	public ProcessedImageCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @return cache shared by the whole process
+	 */
+	public static ProcessedImageCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Creates the key of a processed image
+	 *
+	 * @param source source image
+	 * @param parameters every parameter affecting the processing of the image
+	 * @return key identifying the source file in its current state with these parameters
+	 */
+	public static String getKey(File source, Object... parameters) {
+		StringBuilder key = new StringBuilder(source.getAbsolutePath())
+				.append('|').append(source.lastModified())
+				.append('|').append(source.length());
+		for(Object parameter : parameters)
+			key.append('|').append(parameter);
+		return key.toString();
+	}
+
+	/**
+	 * @param key key of the image
+	 * @return processed image, or null if it isn't cached
+	 */
+	public synchronized byte[] get(String key) {
+		byte[] image = images.get(key);
+		if(image == null)
+			misses++;
+		else
+			hits++;
+		return image;
+	}
+
+	/**
+	 * Caches a processed image, evicting the least recently used ones to stay under budget.
+	 * Images larger than the budget are not cached.
+	 *
+	 * @param key key of the image
+	 * @param image processed image
+	 */
+	public synchronized void put(String key, byte[] image) {
+		if(image.length > maxBytes)
+			return;
+
+		byte[] previous = images.put(key, image);
+		if(previous != null)
+			bytes -= previous.length;
+		bytes += image.length;
+		evict();
+	}
+
+	private void evict() {
+		Iterator<Map.Entry<String, byte[]>> iterator = images.entrySet().iterator();
+		while(bytes > maxBytes && iterator.hasNext()) {
+			bytes -= iterator.next().getValue().length;
+			iterator.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * @param maxBytes maximum total size of the cached images, 0 to disable the cache
+	 */
+	public synchronized void setMaxBytes(long maxBytes) {
+		this.maxBytes = maxBytes;
+		evict();
+	}
+
+	/**
+	 * @return hits, misses, evictions and size of the cache
+	 */
+	public synchronized String getStatistics() {
+		long lookups = hits + misses;
+		return hits + " hit(s), " + misses + " miss(es) (" +
+				(lookups == 0L ? 0L : hits * 100L / lookups) + "% hit rate), " +
+				evictions + " eviction(s), " + images.size() + " image(s) using " +
+				bytes / 1024L + " KB of " + maxBytes / 1024L + " KB";
+	}
+}
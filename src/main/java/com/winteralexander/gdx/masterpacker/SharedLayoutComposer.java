@@ -0,0 +1,136 @@
+package com.winteralexander.gdx.masterpacker;
+
+import com.badlogic.gdx.tools.texturepacker.ColorBleedEffect;
+import com.badlogic.gdx.tools.texturepacker.TexturePacker;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ObjectSet;
+import com.winteralexander.gdx.utils.StringUtil;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.List;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+
+/**
+ * Composes the pages of the preshaded and normal atlases of a bundle using the layout of its
+ * flat atlas, so that a region has the same coordinates in all three atlases and only the
+ * flat textures need to be packed
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class SharedLayoutComposer {
+	/**
+	 * Composes an atlas from the images of a texture layer, placing every image where the
+	 * flat image of the same name was packed. The pack file of the flat atlas is copied with
+	 * its page names replaced.
+	 *
+	 * @param flatLayout layout of the flat atlas, with its placement
+	 * @param settings settings the flat atlas was packed with
+	 * @param atlasDir directory in which the flat atlas was written and the layer atlas will be
+	 * @param flatName name of the flat atlas
+	 * @param layerDir directory holding the images of the layer, named after their region
+	 * @param layerName name of the atlas to compose
+	 * @throws IOException if the images can't be read, don't match their flat counterpart or
+	 * the atlas can't be written
+	 */
+	public static void compose(PackLayout flatLayout,
+	                           TexturePacker.Settings settings,
+	                           File atlasDir,
+	                           String flatName,
+	                           File layerDir,
+	                           String layerName) throws IOException {
+		ensureNotNull(flatLayout, "flatLayout");
+		ensureNotNull(settings, "settings");
+
+		File flatAtlas = new File(atlasDir, flatName + ".atlas");
+		if(!flatAtlas.exists())
+			return;
+
+		ObjectMap<String, String> pageNames = new ObjectMap<>();
+		ObjectSet<String> composed = new ObjectSet<>();
+
+		for(int i = 0; i < flatLayout.getPages().size; i++) {
+			PackLayout.Page page = flatLayout.getPages().get(i);
+			if(page.imageName == null || !page.imageName.startsWith(flatName))
+				throw new IOException("Flat layout of " + flatName + " has no placement");
+
+			String layerPageName = layerName + page.imageName.substring(flatName.length());
+			pageNames.put(page.imageName, layerPageName);
+
+			int[] size = readImageSize(new File(atlasDir, page.imageName));
+			BufferedImage canvas = new BufferedImage(size[0], size[1],
+					BufferedImage.TYPE_INT_ARGB);
+
+			for(PackLayout.Region region : flatLayout.getRegions().values()) {
+				if(region.page != i)
+					continue;
+
+				File file = new File(layerDir, region.name + ".png");
+				if(!file.exists())
+					continue;
+
+				BufferedImage image = ImageIO.read(file);
+				int width = region.width - settings.paddingX;
+				int height = region.height - settings.paddingY;
+
+				if(image.getWidth() != width || image.getHeight() != height)
+					throw new IOException(layerName + " texture " + region.name + " is " +
+							image.getWidth() + "x" + image.getHeight() + " but its flat " +
+							"texture is " + width + "x" + height);
+
+				canvas.setRGB(region.left, region.top, width, height,
+						image.getRGB(0, 0, width, height, null, 0, width), 0, width);
+				composed.add(region.name);
+			}
+
+			if(settings.bleed && !settings.premultiplyAlpha)
+				canvas = new ColorBleedEffect().processImage(canvas, settings.bleedIterations);
+
+			ImageIO.write(canvas, "png", new File(atlasDir, layerPageName));
+		}
+
+		File[] layerFiles = layerDir.listFiles();
+		if(layerFiles != null)
+			for(File file : layerFiles) {
+				String name = file.getName().replaceAll("\\.png$", "");
+				if(!composed.contains(name))
+					System.out.println(layerName + " texture " + name + " has no flat " +
+							"texture and is left out of the shared layout");
+			}
+
+		List<String> atlasContent = Files.readAllLines(flatAtlas.toPath());
+		for(int i = 0; i < atlasContent.size(); i++)
+			if(pageNames.containsKey(atlasContent.get(i)))
+				atlasContent.set(i, pageNames.get(atlasContent.get(i)));
+
+		try(FileWriter writer = new FileWriter(new File(atlasDir, layerName + ".atlas"))) {
+			writer.write(StringUtil.join(atlasContent, "\n"));
+		}
+	}
+
+	static int[] readImageSize(File file) throws IOException {
+		try(ImageInputStream input = ImageIO.createImageInputStream(file)) {
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+			if(!readers.hasNext())
+				throw new IOException("Unsupported image " + file);
+
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(input);
+				return new int[] { reader.getWidth(0), reader.getHeight(0) };
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+}
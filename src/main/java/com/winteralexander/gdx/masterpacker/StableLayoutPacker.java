@@ -0,0 +1,176 @@
+package com.winteralexander.gdx.masterpacker;
+
+import com.badlogic.gdx.tools.texturepacker.MaxRectsPacker.FreeRectChoiceHeuristic;
+import com.badlogic.gdx.tools.texturepacker.TexturePacker;
+import com.badlogic.gdx.tools.texturepacker.TexturePacker.Page;
+import com.badlogic.gdx.tools.texturepacker.TexturePacker.Rect;
+import com.badlogic.gdx.utils.Array;
+
+import java.awt.*;
+import java.util.Comparator;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+
+/**
+ * {@link TexturePacker.Packer} that keeps unchanged regions where the previous pack placed
+ * them. Only new or resized regions are placed, in the free space of the previous pages
+ * first and in new pages packed by the fallback packer otherwise. Previous pages keep their
+ * index, even when they end up empty, so the pages after them are not renamed. A full repack
+ * is done by the fallback packer when the pages, new ones included, would end up less
+ * occupied than a threshold.
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class StableLayoutPacker implements TexturePacker.Packer {
+	private final TexturePacker.Settings settings;
+	private final PackLayout previousLayout;
+	private final float repackThreshold;
+	private final TexturePacker.Packer fallback;
+
+	public StableLayoutPacker(TexturePacker.Settings settings,
+	                          PackLayout previousLayout,
+	                          float repackThreshold,
+	                          TexturePacker.Packer fallback) {
+		ensureNotNull(settings, "settings");
+		ensureNotNull(fallback, "fallback");
+		this.settings = settings;
+		this.previousLayout = previousLayout;
+		this.repackThreshold = repackThreshold;
+		this.fallback = fallback;
+	}
+
+	@Override
+	public Array<Page> pack(Array<Rect> inputRects) {
+		return pack(null, inputRects);
+	}
+
+	@Override
+	public Array<Page> pack(TexturePacker.ProgressListener progress, Array<Rect> inputRects) {
+		if(previousLayout == null || previousLayout.getPages().size == 0)
+			return fallback.pack(progress, inputRects);
+
+		Array<PackLayout.Page> previousPages = previousLayout.getPages();
+		MaxRectsBin[] bins = new MaxRectsBin[previousPages.size];
+		Array<Array<Rect>> placed = new Array<>();
+
+		for(int i = 0; i < previousPages.size; i++) {
+			bins[i] = new MaxRectsBin(previousPages.get(i).width, previousPages.get(i).height);
+			placed.add(new Array<>());
+		}
+
+		Array<Rect> pending = new Array<>();
+		int kept = 0;
+
+		for(Rect rect : inputRects) {
+			PackLayout.Region region = previousLayout.getRegions().get(rect.name);
+
+			if(region == null
+					|| region.page >= bins.length
+					|| region.width != rect.width + settings.paddingX
+					|| region.height != rect.height + settings.paddingY
+					|| !bins[region.page].occupy(region.x, region.y, region.width, region.height)) {
+				pending.add(rect);
+				continue;
+			}
+
+			rect.x = region.x;
+			rect.y = region.y;
+			placed.get(region.page).add(rect);
+			kept++;
+		}
+
+		pending.sort(Comparator.<Rect>comparingInt(r -> -r.width * r.height)
+				.thenComparing(r -> r.name));
+
+		Array<Rect> remaining = new Array<>();
+		for(Rect rect : pending) {
+			int paddedWidth = rect.width + settings.paddingX;
+			int paddedHeight = rect.height + settings.paddingY;
+			Rectangle position = null;
+			int page;
+
+			for(page = 0; page < bins.length; page++) {
+				position = bins[page].insert(paddedWidth, paddedHeight,
+						FreeRectChoiceHeuristic.BestShortSideFit);
+				if(position != null)
+					break;
+			}
+
+			if(position == null) {
+				remaining.add(rect);
+				continue;
+			}
+
+			rect.x = position.x;
+			rect.y = position.y;
+			placed.get(page).add(rect);
+		}
+
+		// previous pages left empty at the end are dropped, the others keep their index
+		int pageCount = bins.length;
+		while(pageCount > 0 && placed.get(pageCount - 1).size == 0)
+			pageCount--;
+
+		// the fallback pads the rectangles it packs, which a full repack must undo
+		int[] remainingSizes = new int[remaining.size * 2];
+		for(int i = 0; i < remaining.size; i++) {
+			remainingSizes[i * 2] = remaining.get(i).width;
+			remainingSizes[i * 2 + 1] = remaining.get(i).height;
+		}
+
+		Array<Page> newPages = remaining.size > 0
+				? fallback.pack(progress, remaining)
+				: new Array<>();
+
+		long usedArea = 0L, totalArea = 0L;
+		for(int i = 0; i < pageCount; i++) {
+			usedArea += bins[i].getUsedArea();
+			totalArea += (long)bins[i].getWidth() * bins[i].getHeight();
+		}
+		for(Page page : newPages) {
+			for(Rect rect : page.outputRects)
+				usedArea += (long)rect.width * rect.height;
+			totalArea += (long)page.width * page.height;
+		}
+
+		if(totalArea == 0L || (float)usedArea / totalArea < repackThreshold) {
+			System.out.println("Layout occupancy fell below " + repackThreshold +
+					", doing a full repack");
+			for(int i = 0; i < remaining.size; i++) {
+				remaining.get(i).width = remainingSizes[i * 2];
+				remaining.get(i).height = remainingSizes[i * 2 + 1];
+			}
+			for(Rect rect : inputRects) {
+				rect.x = rect.y = 0;
+				rect.rotated = false;
+			}
+			return fallback.pack(progress, inputRects);
+		}
+
+		for(Array<Rect> rects : placed)
+			for(Rect rect : rects) {
+				rect.width += settings.paddingX;
+				rect.height += settings.paddingY;
+			}
+
+		Array<Page> pages = new Array<>();
+		for(int i = 0; i < pageCount; i++) {
+			Page page = new Page();
+			page.outputRects = placed.get(i);
+			page.remainingRects = new Array<>();
+
+			// an empty page is kept as small as possible, only to not shift the next ones
+			boolean empty = placed.get(i).size == 0;
+			page.width = empty ? settings.minWidth : bins[i].getWidth();
+			page.height = empty ? settings.minHeight : bins[i].getHeight();
+			page.occupancy = empty ? 0f : bins[i].getOccupancy();
+			pages.add(page);
+		}
+		pages.addAll(newPages);
+
+		System.out.println("Kept " + kept + " of " + inputRects.size + " regions in place");
+		return pages;
+	}
+}
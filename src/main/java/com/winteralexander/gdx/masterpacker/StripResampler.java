@@ -0,0 +1,204 @@
+package com.winteralexander.gdx.masterpacker;
+
+import java.io.IOException;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+
+/**
+ * Resizes images streamed row by row with a separable bicubic filter. Source rows are
+ * resampled horizontally as they are decoded and kept only while the filter of an output
+ * row still covers them, so the rows held in memory form a strip as tall as the filter,
+ * sliding down the image. Memory is proportional to the width of the image and not to its
+ * height.
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class StripResampler {
+	/**
+	 * Sampling radius of the bicubic filter, in pixels of the smallest of the source and
+	 * destination images
+	 */
+	private static final float RADIUS = 2f;
+
+	/**
+	 * Sharpness of the bicubic filter, same as {@link Downscalator#createResizedCopy}
+	 */
+	private static final float A = -0.5f;
+
+	private final int sourceWidth, sourceHeight, destWidth, destHeight;
+	private final boolean premultiplied;
+
+	/**
+	 * @param sourceWidth width of the source image
+	 * @param sourceHeight height of the source image
+	 * @param destWidth width of the resized image
+	 * @param destHeight height of the resized image
+	 * @param premultiplied true to weight colors by their alpha while resampling, so the
+	 * colors of transparent pixels don't bleed into the visible ones
+	 */
+	public StripResampler(int sourceWidth,
+	                      int sourceHeight,
+	                      int destWidth,
+	                      int destHeight,
+	                      boolean premultiplied) {
+		if(sourceWidth <= 0 || sourceHeight <= 0 || destWidth <= 0 || destHeight <= 0)
+			throw new IllegalArgumentException("Image sizes must be positive");
+
+		this.sourceWidth = sourceWidth;
+		this.sourceHeight = sourceHeight;
+		this.destWidth = destWidth;
+		this.destHeight = destHeight;
+		this.premultiplied = premultiplied;
+	}
+
+	/**
+	 * Resizes an image, reading all its rows from the decoder and writing all the resized
+	 * rows to the encoder
+	 *
+	 * @param decoder decoder of the source image
+	 * @param encoder encoder of the resized image
+	 * @throws IOException if the image could not be read or written
+	 */
+	public void resize(PngDecoder decoder, PngEncoder encoder) throws IOException {
+		ensureNotNull(decoder, "decoder");
+		ensureNotNull(encoder, "encoder");
+
+		Contributions columns = new Contributions(sourceWidth, destWidth);
+		Contributions rows = new Contributions(sourceHeight, destHeight);
+
+		int stripHeight = 0;
+		for(int y = 0; y < destHeight; y++)
+			stripHeight = Math.max(stripHeight, rows.count[y]);
+
+		// horizontally resampled source rows, indexed by their source row modulo the height
+		float[][] strip = new float[stripHeight][destWidth * 4];
+		int[] sourceRow = new int[sourceWidth];
+		int[] destRow = new int[destWidth];
+		int rowsRead = 0;
+
+		for(int y = 0; y < destHeight; y++) {
+			int first = rows.first[y], count = rows.count[y];
+
+			while(rowsRead < first + count) {
+				decoder.readRow(sourceRow, 0);
+				resampleRow(sourceRow, strip[rowsRead % stripHeight], columns);
+				rowsRead++;
+			}
+
+			int weightIndex = rows.offset[y];
+			for(int x = 0; x < destWidth; x++) {
+				float alpha = 0f, red = 0f, green = 0f, blue = 0f;
+				for(int i = 0; i < count; i++) {
+					float weight = rows.weights[weightIndex + i];
+					float[] row = strip[(first + i) % stripHeight];
+					alpha += row[x * 4] * weight;
+					red += row[x * 4 + 1] * weight;
+					green += row[x * 4 + 2] * weight;
+					blue += row[x * 4 + 3] * weight;
+				}
+				destRow[x] = toPixel(alpha, red, green, blue);
+			}
+
+			encoder.writeRow(destRow, 0);
+		}
+	}
+
+	private void resampleRow(int[] source, float[] dest, Contributions columns) {
+		for(int x = 0; x < destWidth; x++) {
+			float alpha = 0f, red = 0f, green = 0f, blue = 0f;
+			int first = columns.first[x], weightIndex = columns.offset[x];
+
+			for(int i = 0; i < columns.count[x]; i++) {
+				int pixel = source[first + i];
+				float weight = columns.weights[weightIndex + i];
+				float pixelAlpha = pixel >>> 24;
+				float colorWeight = premultiplied ? weight * pixelAlpha / 255f : weight;
+
+				alpha += pixelAlpha * weight;
+				red += (pixel >> 16 & 0xFF) * colorWeight;
+				green += (pixel >> 8 & 0xFF) * colorWeight;
+				blue += (pixel & 0xFF) * colorWeight;
+			}
+
+			dest[x * 4] = alpha;
+			dest[x * 4 + 1] = red;
+			dest[x * 4 + 2] = green;
+			dest[x * 4 + 3] = blue;
+		}
+	}
+
+	private int toPixel(float alpha, float red, float green, float blue) {
+		int a = clamp(alpha);
+		if(premultiplied) {
+			if(a == 0)
+				return 0;
+
+			float scale = 255f / alpha;
+			red *= scale;
+			green *= scale;
+			blue *= scale;
+		}
+		return a << 24 | clamp(red) << 16 | clamp(green) << 8 | clamp(blue);
+	}
+
+	private static int clamp(float value) {
+		return Math.max(0, Math.min(255, Math.round(value)));
+	}
+
+	private static float bicubic(float value) {
+		value = Math.abs(value);
+		if(value < 1f)
+			return ((A + 2f) * value - (A + 3f)) * value * value + 1f;
+		if(value < 2f)
+			return ((A * value - 5f * A) * value + 8f * A) * value - 4f * A;
+		return 0f;
+	}
+
+	/**
+	 * Source pixels and weights contributing to every pixel of a resized dimension
+	 */
+	private static class Contributions {
+		private final int[] first, count, offset;
+		private final float[] weights;
+
+		private Contributions(int sourceSize, int destSize) {
+			float scale = (float)destSize / sourceSize;
+			float filterScale = Math.min(1f, scale);
+			float support = RADIUS / filterScale;
+			int maxCount = (int)Math.ceil(support * 2f) + 2;
+
+			first = new int[destSize];
+			count = new int[destSize];
+			offset = new int[destSize];
+			float[] all = new float[destSize * maxCount];
+			int size = 0;
+
+			for(int i = 0; i < destSize; i++) {
+				float center = (i + 0.5f) / scale - 0.5f;
+				int start = Math.max(0, (int)Math.floor(center - support));
+				int end = Math.min(sourceSize - 1, (int)Math.ceil(center + support));
+
+				float total = 0f;
+				int n = 0;
+				for(int j = start; j <= end && n < maxCount; j++, n++) {
+					float weight = bicubic((j - center) * filterScale);
+					all[size + n] = weight;
+					total += weight;
+				}
+
+				if(total != 0f)
+					for(int k = 0; k < n; k++)
+						all[size + k] /= total;
+
+				first[i] = start;
+				count[i] = n;
+				offset[i] = size;
+				size += n;
+			}
+
+			weights = all;
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package com.winteralexander.gdx.masterpacker;
+
+import com.winteralexander.gdx.utils.EnumConstantCache;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+
+/**
+ * Texture format the pages of an atlas can be encoded to in KTX files, in addition to their
+ * PNG
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public enum TextureCompression {
+	/**
+	 * GL_COMPRESSED_RGBA8_ETC2_EAC, 8 bits per pixel
+	 */
+	ETC2("etc2", 0x9278, new Etc2BlockEncoder()),
+
+	/**
+	 * GL_COMPRESSED_RGBA_ASTC_4x4_KHR, 8 bits per pixel
+	 */
+	ASTC("astc", 0x93B0, new AstcBlockEncoder()),
+
+	/**
+	 * GL_RGBA8, uncompressed, used to store mipmaps when no compression is requested
+	 */
+	RGBA8("rgba8", 0x8058, null),
+	;
+
+	public static final TextureCompression[] values = EnumConstantCache.store(values());
+
+	private final String suffix;
+	private final int glInternalFormat;
+	private final BlockEncoder encoder;
+
+	TextureCompression(String suffix, int glInternalFormat, BlockEncoder encoder) {
+		ensureNotNull(suffix, "suffix");
+		this.suffix = suffix;
+		this.glInternalFormat = glInternalFormat;
+		this.encoder = encoder;
+	}
+
+	/**
+	 * @return suffix appended to the name of an atlas to name its compressed version
+	 */
+	public String getSuffix() {
+		return suffix;
+	}
+
+	public int getGlInternalFormat() {
+		return glInternalFormat;
+	}
+
+	/**
+	 * @return encoder of the blocks of this format, or null if it is uncompressed
+	 */
+	public BlockEncoder getEncoder() {
+		return encoder;
+	}
+
+	public boolean isCompressed() {
+		return encoder != null;
+	}
+}
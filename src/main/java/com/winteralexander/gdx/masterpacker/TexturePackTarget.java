@@ -1,12 +1,13 @@
 package com.winteralexander.gdx.masterpacker;
 
+import com.badlogic.gdx.utils.ObjectMap;
+
 import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.util.regex.Pattern;
 
 import static com.winteralexander.gdx.masterpacker.Downscalator.downscaleInPlace;
 import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
@@ -19,13 +20,19 @@ import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
  *
  * @author Alexander Winter
  */
-public class TexturePackTarget implements PackTarget {
+public class TexturePackTarget implements PatchablePackTarget {
 	private final String path;
 	private final TextureType textureType;
 	private final String bundleId;
 	private final float scale;
 	private final boolean stripWhitespace, noDownscale;
 	private final int extendLeft, extendRight, extendTop, extendBottom;
+	private final int polygonVertices;
+
+	/**
+	 * Name of the region of the texture, computed by {@link #prepare}
+	 */
+	private volatile String regionName = null;
 
 	public TexturePackTarget(String path,
 	                         TextureType textureType,
@@ -36,7 +43,8 @@ public class TexturePackTarget implements PackTarget {
 							 int extendLeft,
 							 int extendRight,
 							 int extendTop,
-							 int extendBottom) {
+							 int extendBottom,
+							 int polygonVertices) {
 		ensureNotNull(path, "path");
 		ensureNotNull(textureType, "textureType");
 		this.path = path;
@@ -49,6 +57,7 @@ public class TexturePackTarget implements PackTarget {
 		this.extendRight = extendRight;
 		this.extendTop = extendTop;
 		this.extendBottom = extendBottom;
+		this.polygonVertices = polygonVertices;
 	}
 
 	@Override
@@ -56,6 +65,11 @@ public class TexturePackTarget implements PackTarget {
 		return bundleId;
 	}
 
+	@Override
+	public void prepare(AssetBundle bundle, File baseDir) {
+		regionName = computeRegionName(bundle);
+	}
+
 	@Override
 	public void process(AssetBundle bundle,
 	                    AssetResolution resolution,
@@ -63,22 +77,6 @@ public class TexturePackTarget implements PackTarget {
 	                    File flatDir,
 	                    File normalDir,
 	                    File preshadedDir) throws IOException {
-		String relPath = path;
-		int curBest = 0;
-
-		for(String basePath : bundle.getBasePaths())
-			if(path.startsWith(basePath) && basePath.length() > curBest) {
-				relPath = path.replaceFirst(Pattern.quote(basePath), "");
-				curBest = basePath.length();
-			}
-
-		while(relPath.startsWith("/"))
-			relPath = relPath.substring(1);
-
-		String name = relPath.replace('/', '_')
-				.replace("_f.png", ".png")
-				.replace("_n.png", ".png");
-
 		File outDir;
 
 		switch(textureType) {
@@ -95,35 +93,44 @@ public class TexturePackTarget implements PackTarget {
 				throw new IllegalStateException("Invalid texture type " + textureType);
 		}
 
-		File dest = new File(outDir, name);
-		Files.copy(new File(baseDir, path).toPath(), dest.toPath(), REPLACE_EXISTING);
-		extendInPlace(dest, extendLeft, extendRight, extendTop, extendBottom);
-		downscaleInPlace(dest, bundle.getBaseScale() * scale *
-				(noDownscale ? 1f : resolution.getScale()));
+		processRegion(bundle, resolution, new File(baseDir, path),
+				new File(outDir, getRegionName(bundle) + ".png"));
 	}
 
 	@Override
-	public boolean matches(AssetBundle bundle, TextureType textureType, File baseDir, String name) {
-		if(textureType != this.textureType)
-			return false;
-
-		String relPath = path;
-		int curBest = 0;
+	public ObjectMap<String, File> getRegionSources(AssetBundle bundle,
+	                                                TextureType textureType,
+	                                                File baseDir) {
+		ObjectMap<String, File> sources = new ObjectMap<>();
+		if(textureType == this.textureType)
+			sources.put(getRegionName(bundle), new File(baseDir, path));
+		return sources;
+	}
 
-		for(String basePath : bundle.getBasePaths())
-			if(path.startsWith(basePath) && basePath.length() > curBest) {
-				relPath = path.replaceFirst(Pattern.quote(basePath), "");
-				curBest = basePath.length();
-			}
+	@Override
+	public void processRegion(AssetBundle bundle,
+	                          AssetResolution resolution,
+	                          File source,
+	                          File dest) throws IOException {
+		prepareImage(source, dest, extendLeft, extendRight, extendTop, extendBottom,
+				bundle.getBaseScale() * scale * (noDownscale ? 1f : resolution.getScale()));
+	}
 
-		while(relPath.startsWith("/"))
-			relPath = relPath.substring(1);
+	private String getRegionName(AssetBundle bundle) {
+		String name = regionName;
+		return name != null ? name : computeRegionName(bundle);
+	}
 
-		return relPath.replace('/', '_')
+	private String computeRegionName(AssetBundle bundle) {
+		return bundle.getRelativePath(path).replace('/', '_')
 				.replace("_n.png", "")
 				.replace("_f.png", "")
-				.replace(".png", "")
-				.equals(name);
+				.replace(".png", "");
+	}
+
+	@Override
+	public boolean matches(AssetBundle bundle, TextureType textureType, File baseDir, String name) {
+		return textureType == this.textureType && getRegionName(bundle).equals(name);
 	}
 
 	@Override
@@ -131,6 +138,51 @@ public class TexturePackTarget implements PackTarget {
 		return stripWhitespace;
 	}
 
+	/**
+	 * Copies a source image to the input directory of the packer, extending and downscaling
+	 * it on the way. Images which are extended or downscaled are taken from the
+	 * {@link ProcessedImageCache} when the same source was already processed with the same
+	 * parameters, other images are copied as is.
+	 *
+	 * @param source source image to copy
+	 * @param dest destination of the copy
+	 * @param extendLeft amount of pixels to extend the image by on the left
+	 * @param extendRight amount of pixels to extend the image by on the right
+	 * @param extendTop amount of pixels to extend the image by on the top
+	 * @param extendBottom amount of pixels to extend the image by on the bottom
+	 * @param scale scale to downscale the image by
+	 * @throws IOException if the image could not be copied or processed
+	 */
+	public static void prepareImage(File source,
+	                                File dest,
+	                                int extendLeft,
+	                                int extendRight,
+	                                int extendTop,
+	                                int extendBottom,
+	                                float scale) throws IOException {
+		// nothing to process, caching the source bytes would only spend the budget on copies
+		if(extendLeft == 0 && extendRight == 0 && extendTop == 0 && extendBottom == 0
+				&& scale == 1f) {
+			Files.copy(source.toPath(), dest.toPath(), REPLACE_EXISTING);
+			return;
+		}
+
+		ProcessedImageCache cache = ProcessedImageCache.getInstance();
+		String key = ProcessedImageCache.getKey(source,
+				extendLeft, extendRight, extendTop, extendBottom, scale);
+		byte[] cached = cache.get(key);
+
+		if(cached != null) {
+			Files.write(dest.toPath(), cached);
+			return;
+		}
+
+		Files.copy(source.toPath(), dest.toPath(), REPLACE_EXISTING);
+		extendInPlace(dest, extendLeft, extendRight, extendTop, extendBottom);
+		downscaleInPlace(dest, scale);
+		cache.put(key, Files.readAllBytes(dest.toPath()));
+	}
+
 	public static void extendInPlace(File file,
 	                                 int extendLeft,
 	                                 int extendRight,
@@ -222,6 +274,11 @@ public class TexturePackTarget implements PackTarget {
 		return extendBottom;
 	}
 
+	@Override
+	public int getPolygonVertices() {
+		return polygonVertices;
+	}
+
 	@Override
 	public long lastModified(File baseDir) {
 		return new File(baseDir, path).lastModified();
@@ -0,0 +1,268 @@
+package com.winteralexander.gdx.masterpacker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static com.winteralexander.gdx.utils.Validation.ensureNotNull;
+
+/**
+ * Estimates the video memory used by the pages of the bundles, from the atlases in the
+ * output directory. Pages are counted in the format they are loaded in: the largest KTX
+ * format of the bundle if it is compressed, otherwise its page format, with their whole
+ * mipmap chain when the bundle has mipmaps or a mipmap min filter.
+ * <p>
+ * Budgets are checked against each resolution separately, since a game only loads one.
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class VramReport {
+	private final List<PageEntry> pages = new ArrayList<>();
+
+	/**
+	 * Measures the pages of every atlas of a bundle, at every resolution
+	 *
+	 * @param bundle bundle to measure
+	 * @param outputDir output directory of the master packer
+	 * @throws IOException if an atlas could not be read
+	 */
+	public void addBundle(AssetBundle bundle, File outputDir) throws IOException {
+		ensureNotNull(bundle, "bundle");
+		ensureNotNull(outputDir, "outputDir");
+
+		boolean mipmaps = bundle.isMipmaps() || bundle.getMinFilter().isMipMap();
+		TextureCompression[] compressions = bundle.getCompressions();
+
+		for(AssetResolution resolution : bundle.getOutRes()) {
+			File resDir = new File(outputDir, resolution.getDirectory());
+			File outDir = new File(resDir, bundle.getOutPath());
+
+			for(TextureType textureType : TextureType.values) {
+				if(textureType != TextureType.FLAT && !bundle.isShaded())
+					continue;
+
+				String atlasName = MasterPacker.getAtlasName(bundle, outDir, textureType);
+				File atlas = new File(outDir, atlasName + ".atlas");
+				if(!atlas.exists())
+					continue;
+
+				for(PageEntry page : readPages(atlas)) {
+					page.bundleId = bundle.getBundleId();
+					page.resolution = resolution;
+					page.atlasName = atlasName;
+					page.mipmaps = mipmaps;
+
+					if(compressions.length == 0) {
+						page.format = bundle.getFormat().name();
+						page.bytes = getBytes(page.width, page.height, mipmaps,
+								bundle.getFormat().getBytesPerPixel(), null);
+					} else
+						for(TextureCompression compression : compressions) {
+							long bytes = getBytes(page.width, page.height, mipmaps, 4,
+									compression.getEncoder());
+							if(page.format == null || bytes > page.bytes) {
+								page.format = compression.name();
+								page.bytes = bytes;
+							}
+						}
+					pages.add(page);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Lists the pages of an atlas with the area of the regions in them
+	 */
+	private static List<PageEntry> readPages(File atlas) throws IOException {
+		List<PageEntry> pages = new ArrayList<>();
+		PageEntry page = null;
+		boolean pageStart = true;
+
+		for(String line : Files.readAllLines(atlas.toPath())) {
+			if(line.isEmpty()) {
+				pageStart = true;
+				continue;
+			}
+
+			if(!line.startsWith(" ")) {
+				if(pageStart) {
+					page = new PageEntry(line);
+					pages.add(page);
+				} else if(line.startsWith("size:") && page != null) {
+					String[] values = line.substring(5).trim().split(",");
+					page.width = Integer.parseInt(values[0].trim());
+					page.height = Integer.parseInt(values[1].trim());
+				}
+				pageStart = false;
+				continue;
+			}
+
+			if(line.startsWith("  size:") && page != null) {
+				String[] values = line.substring(7).trim().split(",");
+				page.usedArea += (long)Integer.parseInt(values[0].trim())
+						* Integer.parseInt(values[1].trim());
+			}
+		}
+		return pages;
+	}
+
+	/**
+	 * Computes the size of a texture in video memory
+	 *
+	 * @param width width of the texture
+	 * @param height height of the texture
+	 * @param mipmaps true to include its mipmap chain
+	 * @param bytesPerPixel size of a pixel, when uncompressed
+	 * @param encoder block encoder of its format, or null if it is uncompressed
+	 * @return size in bytes
+	 */
+	static long getBytes(int width, int height, boolean mipmaps, int bytesPerPixel,
+	                     BlockEncoder encoder) {
+		long bytes = 0L;
+		int levelWidth = width, levelHeight = height;
+
+		while(true) {
+			if(encoder != null) {
+				long blocksX = (levelWidth + BlockEncoder.BLOCK_SIZE - 1) / BlockEncoder.BLOCK_SIZE;
+				long blocksY = (levelHeight + BlockEncoder.BLOCK_SIZE - 1) / BlockEncoder.BLOCK_SIZE;
+				bytes += blocksX * blocksY * encoder.getBlockBytes();
+			} else
+				bytes += (long)levelWidth * levelHeight * bytesPerPixel;
+
+			if(!mipmaps || levelWidth == 1 && levelHeight == 1)
+				return bytes;
+
+			levelWidth = Math.max(1, levelWidth / 2);
+			levelHeight = Math.max(1, levelHeight / 2);
+		}
+	}
+
+	/**
+	 * @param bundleId ID of the bundle, or null for all bundles
+	 * @param resolution resolution to measure
+	 * @return estimated bytes used by the pages of the bundle at that resolution
+	 */
+	public long getBytes(String bundleId, AssetResolution resolution) {
+		long bytes = 0L;
+		for(PageEntry page : pages)
+			if(page.resolution == resolution && (bundleId == null || bundleId.equals(page.bundleId)))
+				bytes += page.bytes;
+		return bytes;
+	}
+
+	/**
+	 * Checks the budgets of the bundles and the global budget
+	 *
+	 * @param bundles bundles of the master packer
+	 * @param globalBudget maximum amount of bytes used by all bundles at a resolution, or -1
+	 * if unlimited
+	 * @return a message for every budget exceeded
+	 */
+	public List<String> checkBudgets(Iterable<AssetBundle> bundles, long globalBudget) {
+		List<String> exceeded = new ArrayList<>();
+
+		for(AssetBundle bundle : bundles) {
+			if(bundle.getVramBudget() < 0L)
+				continue;
+
+			for(AssetResolution resolution : bundle.getOutRes()) {
+				long bytes = getBytes(bundle.getBundleId(), resolution);
+				if(bytes > bundle.getVramBudget())
+					exceeded.add("Bundle " + bundle.getBundleId() + " uses " + toMb(bytes) +
+							" at " + resolution.getDirectory() + ", over its budget of " +
+							toMb(bundle.getVramBudget()));
+			}
+		}
+
+		if(globalBudget >= 0L)
+			for(AssetResolution resolution : AssetResolution.values) {
+				long bytes = getBytes(null, resolution);
+				if(bytes > globalBudget)
+					exceeded.add("Bundles use " + toMb(bytes) + " at " +
+							resolution.getDirectory() + ", over the budget of " +
+							toMb(globalBudget));
+			}
+		return exceeded;
+	}
+
+	/**
+	 * Prints the page count, size and occupancy of every bundle at every resolution
+	 */
+	public void printSummary() {
+		List<String> printed = new ArrayList<>();
+
+		for(PageEntry entry : pages) {
+			String key = entry.bundleId + "/" + entry.resolution;
+			if(printed.contains(key))
+				continue;
+			printed.add(key);
+
+			int count = 0;
+			long area = 0L, usedArea = 0L;
+			for(PageEntry page : pages)
+				if(page.bundleId.equals(entry.bundleId) && page.resolution == entry.resolution) {
+					count++;
+					area += (long)page.width * page.height;
+					usedArea += page.usedArea;
+				}
+
+			System.out.println("Bundle " + entry.bundleId + " at " +
+					entry.resolution.getDirectory() + ": " + count + " page(s), " +
+					toMb(getBytes(entry.bundleId, entry.resolution)) + ", " +
+					String.format(Locale.ROOT, "%.1f", area == 0L ? 0f : usedArea * 100f / area) +
+					"% occupied");
+		}
+	}
+
+	/**
+	 * Writes the report as CSV, one line per page
+	 *
+	 * @param file file to write the report to
+	 * @throws IOException if the file could not be written
+	 */
+	public void write(File file) throws IOException {
+		try(PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file.toPath()))) {
+			writer.println("bundle,resolution,atlas,page,width,height,format,mipmaps,bytes,occupancy");
+
+			for(PageEntry page : pages)
+				writer.println(page.bundleId + "," +
+						page.resolution.getDirectory() + "," +
+						page.atlasName + "," +
+						page.name + "," +
+						page.width + "," +
+						page.height + "," +
+						page.format + "," +
+						page.mipmaps + "," +
+						page.bytes + "," +
+						String.format(Locale.ROOT, "%.1f", page.getOccupancy() * 100f));
+		}
+	}
+
+	private static String toMb(long bytes) {
+		return String.format(Locale.ROOT, "%.2f MB", bytes / 1024f / 1024f);
+	}
+
+	private static class PageEntry {
+		private final String name;
+		private String bundleId, atlasName, format;
+		private AssetResolution resolution;
+		private int width, height;
+		private long usedArea, bytes;
+		private boolean mipmaps;
+
+		public PageEntry(String name) {
+			this.name = name;
+		}
+
+		private float getOccupancy() {
+			return width == 0 || height == 0 ? 0f : (float)usedArea / ((long)width * height);
+		}
+	}
+}
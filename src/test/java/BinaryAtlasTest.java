@@ -0,0 +1,154 @@
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData;
+import com.winteralexander.gdx.masterpacker.BinaryAtlasLoader;
+import com.winteralexander.gdx.masterpacker.BinaryAtlasWriter;
+import com.winteralexander.gdx.utils.io.FileUtil;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit test that converts text atlases to binary atlases and checks the loaded binary atlas
+ * holds the same data as the text atlas
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class BinaryAtlasTest {
+	private static final File OUT = new File("out-binary/");
+
+	@Test
+	public void testOldFormatAtlas() throws IOException {
+		testAtlas(new File("src/test/resources/atlases/log.atlas"));
+	}
+
+	@Test
+	public void testCustomFields() throws IOException {
+		if(OUT.exists())
+			FileUtil.deleteRecursively(OUT);
+		OUT.mkdirs();
+
+		// two pages, rotated and indexed regions, a repeated name and polygon fields
+		File atlas = new File(OUT, "custom.atlas");
+		Files.write(atlas.toPath(), String.join("\n",
+				"custom.png",
+				"size: 64,32",
+				"format: RGBA4444",
+				"filter: Nearest,Linear",
+				"repeat: x",
+				"pma: true",
+				"frame",
+				"  bounds: 0,0,10,12",
+				"  offsets: 1,2,14,16",
+				"  rotate: 90",
+				"  index: 0",
+				"  vertices: 0, 0",
+				"  vertices: 10, 0",
+				"  vertices: 10, 12",
+				"  vertices: 0, 12",
+				"  triangles: 0, 1, 2",
+				"  triangles: 0, 2, 3",
+				"frame",
+				"  bounds: 12,0,4,4",
+				"  index: 1",
+				"",
+				"custom2.png",
+				"size: 16,16",
+				"filter: MipMapLinearLinear,Linear",
+				"repeat: xy",
+				"solid",
+				"  bounds: 0,0,16,16",
+				"").getBytes(StandardCharsets.UTF_8));
+
+		BinaryAtlasLoader loader = testAtlas(atlas);
+		assertEquals(0, loader.findRegion("frame").index);
+
+		// repeated fields are kept in order, as PolygonMesher writes meshes
+		TextureAtlasData.Region frame = loader.findRegion("frame");
+		assertEquals(6, frame.names.length);
+		assertArrayEquals(new int[] { 10, 12 }, frame.values[2]);
+		assertArrayEquals(new int[] { 0, 2, 3 }, frame.values[5]);
+	}
+
+	private static BinaryAtlasLoader testAtlas(File atlas) throws IOException {
+		OUT.mkdirs();
+		File binary = new File(OUT, atlas.getName() + ".bin");
+		BinaryAtlasWriter.write(atlas, binary);
+
+		FileHandle imagesDir = new FileHandle(atlas.getParentFile());
+		TextureAtlasData expected = new TextureAtlasData(new FileHandle(atlas), imagesDir, false);
+		BinaryAtlasLoader loader = new BinaryAtlasLoader(new FileHandle(binary), imagesDir);
+		TextureAtlasData actual = loader.getData();
+
+		assertEquals(expected.getPages().size, actual.getPages().size);
+		for(int i = 0; i < expected.getPages().size; i++)
+			assertPageEquals(expected.getPages().get(i), actual.getPages().get(i));
+
+		assertEquals(expected.getRegions().size, actual.getRegions().size);
+		for(int i = 0; i < expected.getRegions().size; i++) {
+			TextureAtlasData.Region region = expected.getRegions().get(i);
+			assertRegionEquals(region, actual.getRegions().get(i));
+			assertEquals(expected.getPages().indexOf(region.page, true),
+					actual.getPages().indexOf(actual.getRegions().get(i).page, true));
+
+			// lookups find the first region of a name, like TextureAtlas.findRegion
+			int first = 0;
+			while(!expected.getRegions().get(first).name.equals(region.name))
+				first++;
+			assertEquals(first, loader.indexOf(region.name));
+			assertEquals(actual.getRegions().get(first), loader.findRegion(region.name));
+		}
+
+		assertEquals(-1, loader.indexOf("missing"));
+		assertNull(loader.findRegion("missing"));
+		return loader;
+	}
+
+	private static void assertPageEquals(TextureAtlasData.Page expected,
+	                                     TextureAtlasData.Page actual) {
+		assertEquals(expected.textureFile.name(), actual.textureFile.name());
+		assertEquals(expected.width, actual.width, 0f);
+		assertEquals(expected.height, actual.height, 0f);
+		assertEquals(expected.format, actual.format);
+		assertEquals(expected.minFilter, actual.minFilter);
+		assertEquals(expected.magFilter, actual.magFilter);
+		assertEquals(expected.uWrap, actual.uWrap);
+		assertEquals(expected.vWrap, actual.vWrap);
+		assertEquals(expected.useMipMaps, actual.useMipMaps);
+		assertEquals(expected.pma, actual.pma);
+	}
+
+	private static void assertRegionEquals(TextureAtlasData.Region expected,
+	                                       TextureAtlasData.Region actual) {
+		assertEquals(expected.name, actual.name);
+		assertEquals(expected.index, actual.index);
+		assertEquals(expected.left, actual.left);
+		assertEquals(expected.top, actual.top);
+		assertEquals(expected.width, actual.width);
+		assertEquals(expected.height, actual.height);
+		assertEquals(expected.offsetX, actual.offsetX, 0f);
+		assertEquals(expected.offsetY, actual.offsetY, 0f);
+		assertEquals(expected.originalWidth, actual.originalWidth);
+		assertEquals(expected.originalHeight, actual.originalHeight);
+		assertEquals(expected.degrees, actual.degrees);
+		assertEquals(expected.rotate, actual.rotate);
+
+		assertEquals(expected.names == null ? 0 : expected.names.length,
+				actual.names == null ? 0 : actual.names.length);
+		if(expected.names == null)
+			return;
+
+		for(int i = 0; i < expected.names.length; i++) {
+			assertEquals(expected.names[i], actual.names[i]);
+			assertArrayEquals(expected.values[i], actual.values[i]);
+		}
+	}
+}
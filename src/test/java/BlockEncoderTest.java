@@ -0,0 +1,280 @@
+import com.winteralexander.gdx.masterpacker.AstcBlockEncoder;
+import com.winteralexander.gdx.masterpacker.BlockEncoder;
+import com.winteralexander.gdx.masterpacker.Etc2BlockEncoder;
+import com.winteralexander.gdx.masterpacker.KtxWriter;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test that decodes blocks encoded to ETC2 and ASTC, following the specifications of the
+ * formats for the modes the encoders use, and checks the KTX container they are written in
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class BlockEncoderTest {
+	private static final int[][] ETC_MODIFIERS = {
+			{ 2, 8, -2, -8 }, { 5, 17, -5, -17 }, { 9, 29, -9, -29 }, { 13, 42, -13, -42 },
+			{ 18, 60, -18, -60 }, { 24, 80, -24, -80 }, { 33, 106, -33, -106 },
+			{ 47, 183, -47, -183 }
+	};
+
+	private static final int[][] EAC_MODIFIERS = {
+			{ -3, -6, -9, -15, 2, 5, 8, 14 }, { -3, -7, -10, -13, 2, 6, 9, 12 },
+			{ -2, -5, -8, -13, 1, 4, 7, 12 }, { -2, -4, -6, -13, 1, 3, 5, 12 },
+			{ -3, -6, -8, -12, 2, 5, 7, 11 }, { -3, -7, -9, -11, 2, 6, 8, 10 },
+			{ -4, -7, -8, -11, 3, 6, 7, 10 }, { -3, -5, -8, -11, 2, 4, 7, 10 },
+			{ -2, -6, -8, -10, 1, 5, 7, 9 }, { -2, -5, -8, -10, 1, 4, 7, 9 },
+			{ -2, -4, -8, -10, 1, 3, 7, 9 }, { -2, -5, -7, -10, 1, 4, 6, 9 },
+			{ -3, -4, -7, -10, 2, 3, 6, 9 }, { -1, -2, -3, -10, 0, 1, 2, 9 },
+			{ -4, -6, -8, -9, 3, 5, 7, 8 }, { -3, -5, -7, -9, 2, 4, 6, 8 }
+	};
+
+	@Test
+	public void testEtc2SolidBlock() {
+		int[] pixels = solid(0xC0C86432);
+		int[] decoded = decodeEtc2(encode(new Etc2BlockEncoder(), pixels));
+
+		// alpha is exact, colors are quantized to 5 bits plus a modifier
+		for(int i = 0; i < 16; i++)
+			assertEquals(pixels[i] >>> 24, decoded[i] >>> 24);
+		assertTrue(getMaxError(pixels, decoded) <= 4);
+	}
+
+	@Test
+	public void testEtc2GradientBlock() {
+		int[] pixels = gradient();
+		int[] decoded = decodeEtc2(encode(new Etc2BlockEncoder(), pixels));
+
+		// each half shares a base color, varying only in luminance
+		assertTrue(getMaxError(pixels, decoded) <= 12);
+		assertTrue(getMeanError(pixels, decoded) <= 4.0);
+	}
+
+	@Test
+	public void testAstcSolidBlock() {
+		int[] pixels = solid(0xC0C86432);
+		assertArrayEquals(pixels, decodeAstc(encode(new AstcBlockEncoder(), pixels)));
+	}
+
+	@Test
+	public void testAstcGradientBlock() {
+		int[] pixels = gradient();
+		int[] decoded = decodeAstc(encode(new AstcBlockEncoder(), pixels));
+
+		// a linear ramp of 4 pixels falls on the 4 weight levels
+		assertTrue(getMaxError(pixels, decoded) <= 4);
+		assertTrue(getMeanError(pixels, decoded) <= 2.0);
+	}
+
+	@Test
+	public void testKtxHeader() throws IOException {
+		File file = File.createTempFile("masterpacker", ".ktx");
+		try {
+			byte[] level0 = new byte[32], level1 = new byte[16];
+			Arrays.fill(level0, (byte)1);
+			Arrays.fill(level1, (byte)2);
+			KtxWriter.write(file, 0, 0, 0x9278, 8, 4, Arrays.asList(level0, level1));
+
+			ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()))
+					.order(ByteOrder.LITTLE_ENDIAN);
+			buffer.position(12);
+			assertEquals(0x04030201, buffer.getInt());
+			assertEquals(0, buffer.getInt()); // glType
+			assertEquals(1, buffer.getInt()); // glTypeSize
+			assertEquals(0, buffer.getInt()); // glFormat
+			assertEquals(0x9278, buffer.getInt());
+			assertEquals(KtxWriter.GL_RGBA, buffer.getInt());
+			assertEquals(8, buffer.getInt());
+			assertEquals(4, buffer.getInt());
+			buffer.position(buffer.position() + 12); // depth, array elements and faces
+			assertEquals(2, buffer.getInt());
+			assertEquals(0, buffer.getInt()); // key and values
+
+			assertEquals(level0.length, buffer.getInt());
+			buffer.position(buffer.position() + level0.length);
+			assertEquals(level1.length, buffer.getInt());
+			assertEquals(2, buffer.get());
+			assertEquals(64 + 4 + 32 + 4 + 16, buffer.limit());
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static int[] solid(int color) {
+		int[] pixels = new int[16];
+		Arrays.fill(pixels, color);
+		return pixels;
+	}
+
+	/**
+	 * @return block fading from a dark opaque color to a light translucent one, left to right
+	 */
+	private static int[] gradient() {
+		int[] pixels = new int[16];
+		for(int y = 0; y < 4; y++)
+			for(int x = 0; x < 4; x++)
+				pixels[y * 4 + x] = (255 - x * 30) << 24
+						| (40 + x * 40) << 16
+						| (60 + x * 40) << 8
+						| (80 + x * 36);
+		return pixels;
+	}
+
+	private static byte[] encode(BlockEncoder encoder, int[] pixels) {
+		byte[] block = new byte[encoder.getBlockBytes()];
+		encoder.encode(pixels, block, 0);
+		return block;
+	}
+
+	private static int getMaxError(int[] expected, int[] actual) {
+		int max = 0;
+		for(int i = 0; i < 16; i++)
+			for(int shift = 0; shift < 32; shift += 8)
+				max = Math.max(max, Math.abs((expected[i] >>> shift & 0xFF)
+						- (actual[i] >>> shift & 0xFF)));
+		return max;
+	}
+
+	private static double getMeanError(int[] expected, int[] actual) {
+		double total = 0.0;
+		for(int i = 0; i < 16; i++)
+			for(int shift = 0; shift < 32; shift += 8)
+				total += Math.abs((expected[i] >>> shift & 0xFF)
+						- (actual[i] >>> shift & 0xFF));
+		return total / 64.0;
+	}
+
+	/**
+	 * Decodes an ETC2 RGBA8 block whose colors are in the individual or differential mode
+	 */
+	private static int[] decodeEtc2(byte[] block) {
+		long alpha = ByteBuffer.wrap(block, 0, 8).getLong();
+		long color = ByteBuffer.wrap(block, 8, 8).getLong();
+
+		int alphaBase = (int)(alpha >>> 56 & 0xFF);
+		int multiplier = (int)(alpha >>> 52 & 0xF);
+		int[] alphaModifiers = EAC_MODIFIERS[(int)(alpha >>> 48 & 0xF)];
+
+		boolean differential = (color >>> 33 & 1L) != 0L;
+		boolean flip = (color >>> 32 & 1L) != 0L;
+		int[][] bases = new int[2][3];
+
+		for(int c = 0; c < 3; c++) {
+			int shift = 56 - 8 * c;
+			if(differential) {
+				int first = (int)(color >>> (shift + 3) & 0x1F);
+				int delta = (int)(color >>> shift & 0x7);
+				int second = first + (delta >= 4 ? delta - 8 : delta);
+				assertTrue("T, H and planar modes aren't used", second >= 0 && second <= 31);
+
+				bases[0][c] = first << 3 | first >> 2;
+				bases[1][c] = second << 3 | second >> 2;
+			} else {
+				int first = (int)(color >>> (shift + 4) & 0xF);
+				int second = (int)(color >>> shift & 0xF);
+				bases[0][c] = first << 4 | first;
+				bases[1][c] = second << 4 | second;
+			}
+		}
+
+		int[] tables = { (int)(color >>> 37 & 7), (int)(color >>> 34 & 7) };
+		int[] pixels = new int[16];
+
+		for(int y = 0; y < 4; y++)
+			for(int x = 0; x < 4; x++) {
+				// pixels are indexed column by column
+				int position = x * 4 + y;
+				int subblock = flip ? y / 2 : x / 2;
+				int index = (int)(color >>> (16 + position) & 1) << 1
+						| (int)(color >>> position & 1);
+				int modifier = ETC_MODIFIERS[tables[subblock]][index];
+
+				int alphaIndex = (int)(alpha >>> (45 - 3 * position) & 7);
+				int a = clamp(alphaBase + alphaModifiers[alphaIndex] * multiplier);
+
+				int pixel = a << 24;
+				for(int c = 0; c < 3; c++)
+					pixel |= clamp(bases[subblock][c] + modifier) << (16 - 8 * c);
+				pixels[y * 4 + x] = pixel;
+			}
+		return pixels;
+	}
+
+	/**
+	 * Decodes an ASTC 4x4 LDR block with a single partition and RGBA direct endpoints,
+	 * checking it has the 4x4 grid of 2 bits weights the encoder uses
+	 */
+	private static int[] decodeAstc(byte[] block) {
+		int blockMode = getBits(block, 0, 11);
+
+		// layout with the low bits of the weight range in bits 0 and 1 and bits 2 and 3 clear
+		assertTrue((blockMode & 3) != 0 && (blockMode >> 2 & 3) == 0);
+		int gridWidth = (blockMode >> 7 & 3) + 4;
+		int gridHeight = (blockMode >> 5 & 3) + 2;
+		int range = (blockMode & 3) << 1 | blockMode >> 4 & 1;
+		boolean highPrecision = (blockMode >> 9 & 1) != 0;
+		boolean dualPlane = (blockMode >> 10 & 1) != 0;
+
+		assertEquals(4, gridWidth);
+		assertEquals(4, gridHeight);
+		assertEquals("weights of 4 levels", 4, range);
+		assertTrue(!highPrecision && !dualPlane);
+
+		assertEquals("single partition", 0, getBits(block, 11, 2));
+		assertEquals("LDR RGBA direct", 12, getBits(block, 13, 4));
+
+		// 79 bits are left for the 8 endpoint values, which fit quantized to 8 bits
+		int[] values = new int[8];
+		for(int i = 0; i < 8; i++)
+			values[i] = getBits(block, 17 + i * 8, 8);
+
+		int[] start = { values[0], values[2], values[4], values[6] };
+		int[] end = { values[1], values[3], values[5], values[7] };
+		assertTrue("blue contraction isn't used",
+				end[0] + end[1] + end[2] >= start[0] + start[1] + start[2]);
+
+		int[] pixels = new int[16];
+		for(int i = 0; i < 16; i++) {
+			// weights are read from the end of the block, bit reversed
+			int quantized = getBit(block, 127 - 2 * i) | getBit(block, 126 - 2 * i) << 1;
+			int weight = quantized << 4 | quantized << 2 | quantized;
+			if(weight > 32)
+				weight++;
+
+			int[] rgba = new int[4];
+			for(int c = 0; c < 4; c++) {
+				int value = (start[c] * 257 * (64 - weight) + end[c] * 257 * weight + 32) >> 6;
+				rgba[c] = value >> 8;
+			}
+			pixels[i] = rgba[3] << 24 | rgba[0] << 16 | rgba[1] << 8 | rgba[2];
+		}
+		return pixels;
+	}
+
+	private static int getBits(byte[] block, int start, int count) {
+		int value = 0;
+		for(int i = 0; i < count; i++)
+			value |= getBit(block, start + i) << i;
+		return value;
+	}
+
+	private static int getBit(byte[] block, int bit) {
+		return block[bit / 8] >> bit % 8 & 1;
+	}
+
+	private static int clamp(int value) {
+		return Math.max(0, Math.min(255, value));
+	}
+}
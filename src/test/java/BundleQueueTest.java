@@ -0,0 +1,107 @@
+import com.winteralexander.gdx.masterpacker.MasterPacker;
+import com.winteralexander.gdx.masterpacker.MasterPackerConfig;
+import com.winteralexander.gdx.utils.io.FileUtil;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test that packs the test bundles with a coordinator and two workers, each in its own
+ * process, sharing a bundle queue
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class BundleQueueTest {
+	private static final File OUT = new File("out-queue/");
+	private static final File QUEUE = new File(OUT, "queue");
+
+	@Test
+	public void testPackingWithWorkers() throws IOException, InterruptedException {
+		if(OUT.exists())
+			FileUtil.deleteRecursively(OUT);
+
+		// leaves a finished run in the queue, which the workers must not mistake for the next
+		MasterPacker.main(getArgs(new File(OUT, "first-cache"), "--coordinator", QUEUE.getPath()));
+
+		File cacheDir = new File(OUT, "cache");
+		List<Process> processes = new ArrayList<>();
+		List<File> logs = new ArrayList<>();
+
+		// workers started before the coordinator wait for its run
+		for(int i = 0; i < 2; i++)
+			processes.add(start(cacheDir, new File(OUT, "worker" + i + ".log"), logs, "--worker"));
+		for(File log : logs)
+			waitForLine(log, "Waiting for a coordinator");
+		processes.add(start(cacheDir, new File(OUT, "coordinator.log"), logs, "--coordinator"));
+
+		for(Process process : processes) {
+			assertTrue("Packer didn't stop", process.waitFor(5L, TimeUnit.MINUTES));
+			assertEquals(0, process.exitValue());
+		}
+
+		StringBuilder output = new StringBuilder();
+		for(File log : logs)
+			output.append(new String(Files.readAllBytes(log.toPath()), StandardCharsets.UTF_8));
+
+		// every bundle is packed once, by any of the processes
+		for(String bundleId : Arrays.asList("1", "2", "3"))
+			assertEquals(output.toString(), 1,
+					output.toString().split("Packed bundle " + bundleId + " in ", -1).length - 1);
+
+		// the coordinator merged the results of the workers in its cache
+		MasterPackerConfig config = MasterPackerConfig.fromArgs(getArgs(cacheDir));
+		try(MasterPacker packer = new MasterPacker(config)) {
+			assertTrue(packer.plan().isEmpty());
+		}
+	}
+
+	private static Process start(File cacheDir,
+	                             File log,
+	                             List<File> logs,
+	                             String role) throws IOException {
+		List<String> command = new ArrayList<>(Arrays.asList(
+				new File(System.getProperty("java.home"), "bin/java").getPath(),
+				"-Djava.awt.headless=true",
+				"-cp", System.getProperty("java.class.path"),
+				MasterPacker.class.getName()));
+		command.addAll(Arrays.asList(getArgs(cacheDir, role, QUEUE.getPath())));
+
+		logs.add(log);
+		return new ProcessBuilder(command)
+				.redirectErrorStream(true)
+				.redirectOutput(log)
+				.start();
+	}
+
+	private static void waitForLine(File log, String line) throws IOException, InterruptedException {
+		long deadline = System.currentTimeMillis() + 60_000L;
+		while(!log.isFile()
+				|| !new String(Files.readAllBytes(log.toPath()), StandardCharsets.UTF_8).contains(line)) {
+			assertTrue("Packer didn't start", System.currentTimeMillis() < deadline);
+			Thread.sleep(100L);
+		}
+	}
+
+	private static String[] getArgs(File cacheDir, String... extra) {
+		List<String> args = new ArrayList<>(Arrays.asList(
+				"-b", "src/test/resources/bundles.bundlelist",
+				"-p", "src/test/resources/assets.packlist",
+				"-i", "src/test/resources/",
+				"-o", OUT.getPath(),
+				"-c", cacheDir.getPath()));
+		args.addAll(Arrays.asList(extra));
+		return args.toArray(new String[0]);
+	}
+}
@@ -1,10 +1,23 @@
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData;
 import com.winteralexander.gdx.masterpacker.MasterPacker;
+import com.winteralexander.gdx.masterpacker.MasterPackerConfig;
 import com.winteralexander.gdx.utils.io.FileUtil;
 import org.junit.Test;
 
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -41,4 +54,123 @@ public class MasterPackerTest {
 
 
 	}
+
+	@Test
+	public void testPackingInProcess() throws IOException {
+		if(new File("out-session/").exists())
+			FileUtil.deleteRecursively(new File("out-session/"));
+
+		MasterPackerConfig config = new MasterPackerConfig();
+		config.bundleFile = new File("src/test/resources/bundles.bundlelist");
+		config.packListFile = new File("src/test/resources/assets.packlist");
+		config.inputDir = new File("src/test/resources/");
+		config.outputDir = new File("out-session/");
+		config.cacheDir = new File("out-session/");
+
+		try(MasterPacker packer = new MasterPacker(config)) {
+			packer.pack();
+			assertFalse(packer.getChangedFiles().isEmpty());
+
+			// nothing changed in between, so the same packer has nothing left to pack
+			assertTrue(packer.plan().isEmpty());
+			packer.pack();
+			assertTrue(packer.getChangedFiles().isEmpty());
+		}
+	}
+
+	@Test
+	public void testStableLayoutAfterResize() throws IOException {
+		MasterPackerConfig config = createStableConfig(new File("out-stable-resize/"));
+		File atlas = new File(config.outputDir, "gfx/stable/stable.atlas");
+
+		try(MasterPacker packer = new MasterPacker(config)) {
+			packer.pack();
+			Map<String, int[]> before = readPositions(atlas);
+
+			File sprite = new File(config.inputDir, "textures/sugarcane.png");
+			BufferedImage image = ImageIO.read(sprite);
+			BufferedImage resized = new BufferedImage(image.getWidth() + 16,
+					image.getHeight() + 16, BufferedImage.TYPE_INT_ARGB);
+			Graphics2D graphics = resized.createGraphics();
+			graphics.drawImage(image, 0, 0, resized.getWidth(), resized.getHeight(), null);
+			graphics.dispose();
+			writeModified(resized, sprite);
+
+			packer.pack();
+			Map<String, int[]> after = readPositions(atlas);
+
+			// only the resized sprite is placed again, the others stay where they were
+			assertEquals(before.keySet(), after.keySet());
+			for(Map.Entry<String, int[]> region : before.entrySet())
+				if(!region.getKey().equals("sugarcane"))
+					assertArrayEquals(region.getKey(), region.getValue(), after.get(region.getKey()));
+		}
+	}
+
+	@Test
+	public void testPagePatchAfterRecolor() throws IOException {
+		MasterPackerConfig config = createStableConfig(new File("out-stable-recolor/"));
+		File atlas = new File(config.outputDir, "gfx/stable/stable.atlas");
+
+		try(MasterPacker packer = new MasterPacker(config)) {
+			packer.pack();
+			byte[] atlasBefore = Files.readAllBytes(atlas.toPath());
+			long atlasModified = atlas.lastModified();
+
+			// same size and alpha, so the sprite is patched in its page
+			File sprite = new File(config.inputDir, "textures/sugarcane.png");
+			BufferedImage image = ImageIO.read(sprite);
+			BufferedImage recolored = new BufferedImage(image.getWidth(), image.getHeight(),
+					BufferedImage.TYPE_INT_ARGB);
+			for(int y = 0; y < image.getHeight(); y++)
+				for(int x = 0; x < image.getWidth(); x++)
+					recolored.setRGB(x, y, image.getRGB(x, y) ^ 0x00FFFFFF);
+			writeModified(recolored, sprite);
+
+			packer.pack();
+
+			assertEquals(1, packer.getChangedFiles().size());
+			assertTrue(packer.getChangedFiles().get(0).getName().matches("stable\\d*\\.png"));
+			assertArrayEquals(atlasBefore, Files.readAllBytes(atlas.toPath()));
+			assertEquals(atlasModified, atlas.lastModified());
+		}
+	}
+
+	private static MasterPackerConfig createStableConfig(File dir) throws IOException {
+		if(dir.exists())
+			FileUtil.deleteRecursively(dir);
+
+		// the sprites are modified by the tests, so they are packed from a copy
+		File textures = new File(dir, "in/textures/");
+		textures.mkdirs();
+		File[] sources = new File("src/test/resources/textures/").listFiles();
+		assertNotNull(sources);
+		for(File source : sources)
+			Files.copy(source.toPath(), new File(textures, source.getName()).toPath());
+
+		MasterPackerConfig config = new MasterPackerConfig();
+		config.bundleFile = new File("src/test/resources/stable.bundlelist");
+		config.packListFile = new File("src/test/resources/stable.packlist");
+		config.inputDir = new File(dir, "in/");
+		config.outputDir = new File(dir, "out/");
+		config.cacheDir = new File(dir, "cache/");
+		return config;
+	}
+
+	private static void writeModified(BufferedImage image, File file) throws IOException {
+		ImageIO.write(image, "png", file);
+		// newer than the last pack even on file systems with a coarse modification time
+		assertTrue(file.setLastModified(System.currentTimeMillis() + 2000L));
+	}
+
+	private static Map<String, int[]> readPositions(File atlas) {
+		TextureAtlasData data = new TextureAtlasData(new FileHandle(atlas),
+				new FileHandle(atlas.getParentFile()), false);
+		Map<String, int[]> positions = new HashMap<>();
+		for(TextureAtlasData.Region region : data.getRegions())
+			positions.put(region.name, new int[] {
+					data.getPages().indexOf(region.page, true), region.left, region.top
+			});
+		return positions;
+	}
 }
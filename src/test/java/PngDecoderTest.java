@@ -0,0 +1,159 @@
+import com.winteralexander.gdx.masterpacker.PngDecoder;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test that decodes PNG images written by ImageIO row by row and checks they hold the
+ * same pixels as the images written
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class PngDecoderTest {
+	// large enough for the noise to span several IDAT chunks
+	private static final int WIDTH = 300, HEIGHT = 200;
+
+	@Test
+	public void testArgb() throws IOException {
+		BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+		fillNoise(image, 0xFFFFFFFF);
+
+		int[] pixels = decode(image, true);
+		for(int y = 0; y < HEIGHT; y++)
+			for(int x = 0; x < WIDTH; x++)
+				assertEquals(image.getRGB(x, y), pixels[y * WIDTH + x]);
+	}
+
+	@Test
+	public void testRgb() throws IOException {
+		BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		fillNoise(image, 0xFFFFFF);
+
+		int[] pixels = decode(image, false);
+		for(int y = 0; y < HEIGHT; y++)
+			for(int x = 0; x < WIDTH; x++)
+				assertEquals(image.getRGB(x, y), pixels[y * WIDTH + x]);
+	}
+
+	@Test
+	public void testIndexed() throws IOException {
+		// translucent entries are written in a tRNS chunk
+		byte[] reds = new byte[256], greens = new byte[256], blues = new byte[256];
+		byte[] alphas = new byte[256];
+		for(int i = 0; i < 256; i++) {
+			reds[i] = (byte)i;
+			greens[i] = (byte)(255 - i);
+			blues[i] = (byte)(i * 7);
+			alphas[i] = (byte)(i < 16 ? i * 16 : 0xFF);
+		}
+		IndexColorModel palette = new IndexColorModel(8, 256, reds, greens, blues, alphas);
+
+		BufferedImage image = new BufferedImage(WIDTH, HEIGHT,
+				BufferedImage.TYPE_BYTE_INDEXED, palette);
+		fillNoise(image, 0xFF);
+
+		int[] pixels = decode(image, true);
+		for(int y = 0; y < HEIGHT; y++)
+			for(int x = 0; x < WIDTH; x++)
+				assertEquals(image.getRGB(x, y), pixels[y * WIDTH + x]);
+	}
+
+	@Test
+	public void testPackedIndexed() throws IOException {
+		// 16 colors are written 4 bits per pixel, two pixels per byte
+		byte[] reds = new byte[16], greens = new byte[16], blues = new byte[16];
+		for(int i = 0; i < 16; i++) {
+			reds[i] = (byte)(i * 17);
+			greens[i] = (byte)(i * 5);
+			blues[i] = (byte)(255 - i * 13);
+		}
+		IndexColorModel palette = new IndexColorModel(4, 16, reds, greens, blues);
+
+		// odd width, so the last byte of every row is half used
+		BufferedImage image = new BufferedImage(WIDTH - 1, HEIGHT,
+				BufferedImage.TYPE_BYTE_BINARY, palette);
+		fillNoise(image, 0xF);
+
+		int[] pixels = decode(image, false);
+		for(int y = 0; y < HEIGHT; y++)
+			for(int x = 0; x < WIDTH - 1; x++)
+				assertEquals(image.getRGB(x, y), pixels[y * (WIDTH - 1) + x]);
+	}
+
+	@Test
+	public void testGray() throws IOException {
+		BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+		fillNoise(image, 0xFF);
+
+		// getRGB converts gray from a linear color space, samples are compared instead
+		int[] pixels = decode(image, false);
+		for(int y = 0; y < HEIGHT; y++)
+			for(int x = 0; x < WIDTH; x++) {
+				int gray = image.getRaster().getSample(x, y, 0);
+				assertEquals(0xFF000000 | gray << 16 | gray << 8 | gray, pixels[y * WIDTH + x]);
+			}
+	}
+
+	@Test
+	public void testGray16() throws IOException {
+		BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_USHORT_GRAY);
+		fillNoise(image, 0xFFFF);
+
+		// 16 bits samples are truncated to their high byte
+		int[] pixels = decode(image, false);
+		for(int y = 0; y < HEIGHT; y++)
+			for(int x = 0; x < WIDTH; x++) {
+				int gray = image.getRaster().getSample(x, y, 0) >> 8;
+				assertEquals(0xFF000000 | gray << 16 | gray << 8 | gray, pixels[y * WIDTH + x]);
+			}
+	}
+
+	private static void fillNoise(BufferedImage image, int mask) {
+		Random random = new Random(42L);
+		WritableRaster raster = image.getRaster();
+		int[] samples = new int[raster.getNumBands()];
+
+		for(int y = 0; y < image.getHeight(); y++)
+			for(int x = 0; x < image.getWidth(); x++) {
+				if(image.getType() == BufferedImage.TYPE_INT_ARGB
+						|| image.getType() == BufferedImage.TYPE_INT_RGB) {
+					image.setRGB(x, y, random.nextInt() & mask);
+					continue;
+				}
+
+				for(int band = 0; band < samples.length; band++)
+					samples[band] = random.nextInt() & mask;
+				raster.setPixel(x, y, samples);
+			}
+	}
+
+	private static int[] decode(BufferedImage image, boolean alpha) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		assertTrue(ImageIO.write(image, "png", output));
+
+		try(PngDecoder decoder = new PngDecoder(new ByteArrayInputStream(output.toByteArray()))) {
+			assertEquals(image.getWidth(), decoder.getWidth());
+			assertEquals(image.getHeight(), decoder.getHeight());
+			assertFalse(decoder.isInterlaced());
+			assertEquals(alpha, decoder.hasAlpha());
+
+			int[] pixels = new int[image.getWidth() * image.getHeight()];
+			for(int y = 0; y < image.getHeight(); y++)
+				decoder.readRow(pixels, y * image.getWidth());
+			return pixels;
+		}
+	}
+}
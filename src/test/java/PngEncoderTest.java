@@ -0,0 +1,154 @@
+import com.winteralexander.gdx.masterpacker.PngEncoder;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Unit test that encodes images of every color type with every row filter and checks ImageIO
+ * decodes back the same pixels
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class PngEncoderTest {
+	private static final int WIDTH = 37, HEIGHT = 23;
+
+	private static final int[] FILTERS = {
+			PngEncoder.FILTER_NONE, PngEncoder.FILTER_SUB, PngEncoder.FILTER_UP,
+			PngEncoder.FILTER_AVERAGE, PngEncoder.FILTER_PAETH, PngEncoder.FILTER_ADAPTIVE
+	};
+
+	@Test
+	public void testRgba() throws IOException {
+		int[] pixels = createPixels(null);
+
+		for(int filter : FILTERS) {
+			BufferedImage image = encode(pixels, PngEncoder.COLOR_RGBA, null, filter);
+			for(int y = 0; y < HEIGHT; y++)
+				for(int x = 0; x < WIDTH; x++)
+					assertEquals("filter " + filter, pixels[y * WIDTH + x], image.getRGB(x, y));
+		}
+	}
+
+	@Test
+	public void testRgb() throws IOException {
+		int[] pixels = createPixels(null);
+
+		for(int filter : FILTERS) {
+			BufferedImage image = encode(pixels, PngEncoder.COLOR_RGB, null, filter);
+			for(int y = 0; y < HEIGHT; y++)
+				for(int x = 0; x < WIDTH; x++)
+					assertEquals("filter " + filter, pixels[y * WIDTH + x] | 0xFF000000,
+							image.getRGB(x, y));
+		}
+	}
+
+	@Test
+	public void testPalette() throws IOException {
+		// translucent and transparent entries first, so they need a tRNS chunk
+		int[] palette = new int[40];
+		for(int i = 0; i < palette.length; i++)
+			palette[i] = (i < 8 ? i * 30 : 0xFF) << 24 | i * 6 << 16 | (255 - i * 5) << 8 | i * 3;
+		int[] pixels = createPixels(palette);
+
+		for(int filter : FILTERS) {
+			BufferedImage image = encode(pixels, PngEncoder.COLOR_PALETTE, palette, filter);
+			for(int y = 0; y < HEIGHT; y++)
+				for(int x = 0; x < WIDTH; x++)
+					assertEquals("filter " + filter, pixels[y * WIDTH + x], image.getRGB(x, y));
+		}
+	}
+
+	@Test
+	public void testGray() throws IOException {
+		int[] pixels = createPixels(null);
+
+		// getRGB converts gray from a linear color space, samples are compared instead
+		for(int filter : FILTERS) {
+			Raster raster = encode(pixels, PngEncoder.COLOR_GRAY, null, filter).getRaster();
+			assertEquals(1, raster.getNumBands());
+			for(int y = 0; y < HEIGHT; y++)
+				for(int x = 0; x < WIDTH; x++)
+					assertEquals("filter " + filter, pixels[y * WIDTH + x] & 0xFF,
+							raster.getSample(x, y, 0));
+		}
+	}
+
+	@Test
+	public void testGrayAlpha() throws IOException {
+		int[] pixels = createPixels(null);
+
+		for(int filter : FILTERS) {
+			Raster raster = encode(pixels, PngEncoder.COLOR_GRAY_ALPHA, null, filter).getRaster();
+			assertEquals(2, raster.getNumBands());
+			for(int y = 0; y < HEIGHT; y++)
+				for(int x = 0; x < WIDTH; x++) {
+					int pixel = pixels[y * WIDTH + x];
+					assertEquals("filter " + filter, pixel & 0xFF, raster.getSample(x, y, 0));
+					assertEquals("filter " + filter, pixel >>> 24, raster.getSample(x, y, 1));
+				}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testColorNotInPalette() throws IOException {
+		encode(createPixels(null), PngEncoder.COLOR_PALETTE, new int[] { 0xFF000000 },
+				PngEncoder.FILTER_NONE);
+	}
+
+	/**
+	 * @param palette colors to pick the pixels from, or null for any color
+	 * @return gradients with noise, so that every filter gives different bytes
+	 */
+	private static int[] createPixels(int[] palette) {
+		Random random = new Random(42L);
+		int[] pixels = new int[WIDTH * HEIGHT];
+
+		for(int y = 0; y < HEIGHT; y++)
+			for(int x = 0; x < WIDTH; x++) {
+				if(palette != null) {
+					pixels[y * WIDTH + x] = palette[(x + y * 3 + random.nextInt(4)) % palette.length];
+					continue;
+				}
+
+				int noise = random.nextInt(16);
+				pixels[y * WIDTH + x] = (255 - y * 11 + noise & 0xFF) << 24
+						| (x * 7 + noise & 0xFF) << 16
+						| (y * 11 & 0xFF) << 8
+						| (x * y + noise & 0xFF);
+			}
+		return pixels;
+	}
+
+	private static BufferedImage encode(int[] pixels,
+	                                    int colorType,
+	                                    int[] palette,
+	                                    int filter) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+		// strategies vary with the filter, decoding must not depend on them
+		PngEncoder encoder = new PngEncoder(output, WIDTH, HEIGHT, colorType, palette, filter,
+				Deflater.BEST_COMPRESSION,
+				filter == PngEncoder.FILTER_ADAPTIVE ? Deflater.FILTERED : Deflater.DEFAULT_STRATEGY);
+		for(int y = 0; y < HEIGHT; y++)
+			encoder.writeRow(pixels, y * WIDTH);
+		encoder.finish();
+
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(output.toByteArray()));
+		assertNotNull(image);
+		assertEquals(WIDTH, image.getWidth());
+		assertEquals(HEIGHT, image.getHeight());
+		return image;
+	}
+}
@@ -0,0 +1,114 @@
+import com.winteralexander.gdx.masterpacker.PngDecoder;
+import com.winteralexander.gdx.masterpacker.PngEncoder;
+import com.winteralexander.gdx.masterpacker.StripResampler;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test that resizes images streamed through the PNG decoder and encoder
+ * <p>
+ * Created on 2026-10-19.
+ *
+ * @author Alexander Winter
+ */
+public class StripResamplerTest {
+	@Test
+	public void testSolidImage() throws IOException {
+		int[] source = new int[64 * 48];
+		for(int i = 0; i < source.length; i++)
+			source[i] = 0xC0336699;
+
+		// the weights of every output pixel add up to 1
+		for(int[] size : new int[][] { { 20, 13 }, { 64, 48 }, { 100, 77 }, { 1, 1 } }) {
+			int[] resized = resize(source, 64, 48, size[0], size[1], false);
+			assertEquals(size[0] * size[1], resized.length);
+			for(int pixel : resized)
+				assertEquals(0xC0336699, pixel);
+		}
+	}
+
+	@Test
+	public void testGradient() throws IOException {
+		int[] source = new int[64 * 8];
+		for(int y = 0; y < 8; y++)
+			for(int x = 0; x < 64; x++)
+				source[y * 64 + x] = 0xFF000000 | x * 4 << 16 | (255 - x * 4) << 8;
+
+		// downscaled and upscaled horizontally, the ramp stays a ramp without ringing
+		for(int width : new int[] { 16, 27, 150 }) {
+			int[] resized = resize(source, 64, 8, width, 3, false);
+
+			for(int y = 0; y < 3; y++)
+				for(int x = 1; x < width; x++) {
+					int left = resized[y * width + x - 1], pixel = resized[y * width + x];
+					assertEquals(0xFF, pixel >>> 24);
+					assertTrue(left + " " + pixel, (pixel >> 16 & 0xFF) >= (left >> 16 & 0xFF));
+					assertTrue(left + " " + pixel, (pixel >> 8 & 0xFF) <= (left >> 8 & 0xFF));
+				}
+		}
+	}
+
+	@Test
+	public void testPremultiplied() throws IOException {
+		// opaque red on the left, transparent green on the right
+		int[] source = new int[32 * 32];
+		for(int y = 0; y < 32; y++)
+			for(int x = 0; x < 32; x++)
+				source[y * 32 + x] = x < 16 ? 0xFFFF0000 : 0x0000FF00;
+
+		int[] premultiplied = resize(source, 32, 32, 11, 11, true);
+		int[] straight = resize(source, 32, 32, 11, 11, false);
+
+		boolean bleeds = false;
+		for(int i = 0; i < premultiplied.length; i++) {
+			if(premultiplied[i] >>> 24 != 0)
+				assertEquals(0, premultiplied[i] >> 8 & 0xFF);
+			bleeds |= straight[i] >>> 24 != 0 && (straight[i] >> 8 & 0xFF) != 0;
+		}
+
+		// without premultiplying, the transparent green shows at the edge
+		assertTrue(bleeds);
+	}
+
+	private static int[] resize(int[] source,
+	                            int sourceWidth,
+	                            int sourceHeight,
+	                            int destWidth,
+	                            int destHeight,
+	                            boolean premultiplied) throws IOException {
+		ByteArrayOutputStream sourcePng = new ByteArrayOutputStream();
+		PngEncoder sourceEncoder = new PngEncoder(sourcePng, sourceWidth, sourceHeight,
+				PngEncoder.COLOR_RGBA, null, PngEncoder.FILTER_ADAPTIVE,
+				Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+		for(int y = 0; y < sourceHeight; y++)
+			sourceEncoder.writeRow(source, y * sourceWidth);
+		sourceEncoder.finish();
+
+		ByteArrayOutputStream destPng = new ByteArrayOutputStream();
+		try(PngDecoder decoder = new PngDecoder(new ByteArrayInputStream(sourcePng.toByteArray()))) {
+			PngEncoder encoder = new PngEncoder(destPng, destWidth, destHeight,
+					PngEncoder.COLOR_RGBA, null, PngEncoder.FILTER_ADAPTIVE,
+					Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+			new StripResampler(sourceWidth, sourceHeight, destWidth, destHeight, premultiplied)
+					.resize(decoder, encoder);
+			encoder.finish();
+		}
+
+		try(PngDecoder decoder = new PngDecoder(new ByteArrayInputStream(destPng.toByteArray()))) {
+			assertEquals(destWidth, decoder.getWidth());
+			assertEquals(destHeight, decoder.getHeight());
+
+			int[] pixels = new int[destWidth * destHeight];
+			for(int y = 0; y < destHeight; y++)
+				decoder.readRow(pixels, y * destWidth);
+			return pixels;
+		}
+	}
+}